@@ -0,0 +1,40 @@
+package org.avengers.boilerplate.common.validator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code isValid} on request fields of the sizes the API sees: a host name,
+ * a free-text description, and an injection attempt caught by a late pattern.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SQLInjectionSafeConstraintValidatorBenchmark {
+    
+    @Param({
+            "www.example.com",
+            "Customer portal behind the EU load balancer, renewed by the platform team every quarter",
+            "example.com'; DROP TABLE domains"})
+    public String input;
+    
+    private final SQLInjectionSafeConstraintValidator validator = new SQLInjectionSafeConstraintValidator();
+    
+    @Benchmark
+    public boolean isValid() {
+        return validator.isValid(input, null);
+    }
+}
@@ -0,0 +1,74 @@
+package org.avengers.boilerplate.controller;
+
+import org.avengers.boilerplate.domain.dto.DomainDto;
+import org.avengers.boilerplate.domain.dto.SslCertificateDto;
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.support.BenchmarkContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DTO assembly behind the domain endpoints, called on the controller bean
+ * so the numbers cover the repository round trips each DTO makes but not
+ * HTTP or JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DomainControllerBenchmark {
+    
+    private ConfigurableApplicationContext context;
+    private DomainController controller;
+    private Long domainId;
+    
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        List<Domain> domains = BenchmarkContext.seed(context, 1000, 20);
+        controller = context.getBean(DomainController.class);
+        domainId = domains.get(domains.size() / 2).getId();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public ResponseEntity<Page<DomainDto>> getAllDomains() {
+        return controller.getAllDomains(0, 20, null);
+    }
+    
+    @Benchmark
+    public ResponseEntity<Page<DomainDto>> searchDomains() {
+        return controller.getAllDomains(0, 20, "bench-5");
+    }
+    
+    @Benchmark
+    public ResponseEntity<DomainDto> getDomainById() {
+        return controller.getDomainById(domainId);
+    }
+    
+    @Benchmark
+    public ResponseEntity<Page<SslCertificateDto>> getDomainCertificates() {
+        return controller.getDomainCertificates(domainId, 0, 20);
+    }
+}
@@ -0,0 +1,41 @@
+package org.avengers.boilerplate.domain.dto;
+
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+import org.avengers.boilerplate.support.BenchmarkContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SslCertificateDtoBenchmark {
+    
+    private SslCertificate entity;
+    
+    @Setup
+    public void setUp() {
+        Domain domain = Domain.builder().id(1L).name("www.example.com").build();
+        entity = BenchmarkContext.certificate(domain, LocalDateTime.now(), SslCertificate.CertificateStatus.VALID);
+        entity.setId(1L);
+    }
+    
+    @Benchmark
+    public SslCertificateDto fromEntity() {
+        return SslCertificateDto.fromEntity(entity);
+    }
+}
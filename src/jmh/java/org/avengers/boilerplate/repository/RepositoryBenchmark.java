@@ -0,0 +1,89 @@
+package org.avengers.boilerplate.repository;
+
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+import org.avengers.boilerplate.support.BenchmarkContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The queries the sweep, the result writer and the API run most, against
+ * 5000 domains with 10 checks each in H2. H2 only shows how the query
+ * shapes compare; absolute numbers on Postgres will differ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RepositoryBenchmark {
+    
+    private ConfigurableApplicationContext context;
+    private DomainRepository domainRepository;
+    private SslCertificateRepository certificateRepository;
+    private Long domainId;
+    private List<Long> batchIds;
+    
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        List<Domain> domains = BenchmarkContext.seed(context, 5000, 10);
+        domainRepository = context.getBean(DomainRepository.class);
+        certificateRepository = context.getBean(SslCertificateRepository.class);
+        domainId = domains.get(domains.size() / 2).getId();
+        // One result writer flush worth of domains
+        batchIds = domains.subList(0, 50).stream().map(Domain::getId).toList();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public List<Domain> sweepPage() {
+        return domainRepository.findDomainsReadyForCheckAfter(LocalDateTime.now(), 0L, PageRequest.of(0, 500));
+    }
+    
+    @Benchmark
+    public List<Long> claimableIds() {
+        return domainRepository.findClaimableIds(LocalDateTime.now(), PageRequest.of(0, 100));
+    }
+    
+    @Benchmark
+    public List<SslCertificate> latestForBatch() {
+        return certificateRepository.findLatestByDomainIds(batchIds);
+    }
+    
+    @Benchmark
+    public Optional<SslCertificate> latestForDomain() {
+        return certificateRepository.findFirstByDomainIdOrderByCheckDateDesc(domainId);
+    }
+    
+    @Benchmark
+    public long countErrorsForDomain() {
+        return certificateRepository.countByDomainIdAndStatus(domainId, SslCertificate.CertificateStatus.ERROR);
+    }
+    
+    @Benchmark
+    public long countActiveDomains() {
+        return domainRepository.countActiveDomains();
+    }
+}
@@ -0,0 +1,78 @@
+package org.avengers.boilerplate.service;
+
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+import org.avengers.boilerplate.repository.DomainRepository;
+import org.avengers.boilerplate.support.BenchmarkContext;
+import org.avengers.boilerplate.support.LocalTlsServer;
+import org.avengers.boilerplate.support.TestCertificates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One synchronous {@link SslCertificateChecker#checkCertificate} against a
+ * loopback TLS server: handshake, field extraction, trust validation and
+ * the on-change write to H2. OCSP and CRL lookups are off, since the test
+ * chain names no responders and they would only measure a network timeout.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SslCertificateCheckerBenchmark {
+    
+    @Param({"socket", "nio"})
+    public String engine;
+    
+    @Param({"capture", "complete"})
+    public String mode;
+    
+    private ConfigurableApplicationContext context;
+    private LocalTlsServer server;
+    private SslCertificateChecker checker;
+    private Domain domain;
+    
+    @Setup
+    public void setUp() throws Exception {
+        TestCertificates.Issued ca = TestCertificates.selfSignedCa("Benchmark Root CA");
+        server = new LocalTlsServer(TestCertificates.leaf(ca, "localhost", Duration.ofDays(90)).serverContext());
+        context = BenchmarkContext.start(
+                "ssl.monitor.probe.engine=" + engine,
+                "ssl.monitor.probe.mode=" + mode,
+                "ssl.monitor.ocsp.enabled=false",
+                "ssl.monitor.crl.enabled=false");
+        checker = context.getBean(SslCertificateChecker.class);
+        domain = context.getBean(DomainRepository.class).save(Domain.builder()
+                .name("localhost")
+                .port(server.getPort())
+                .active(true)
+                .build());
+    }
+    
+    @TearDown
+    public void tearDown() throws Exception {
+        context.close();
+        server.close();
+    }
+    
+    @Benchmark
+    public SslCertificate checkCertificate() {
+        return checker.checkCertificate(domain);
+    }
+}
@@ -0,0 +1,126 @@
+package org.avengers.boilerplate.service.probe;
+
+import org.avengers.boilerplate.support.TestCertificates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.security.MessageDigest;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Field extraction for a probed leaf: the single DER pass the checker uses
+ * against the X509Certificate getters it replaced.
+ * <p>
+ * A handshake hands the checker a freshly decoded certificate whose getters
+ * have not cached anything yet, while CertificateFactory returns the same
+ * cached instance for the same bytes. The getter benchmarks therefore decode
+ * a new {@code X509CertImpl} per call (hence the add-exports), and
+ * {@link #decodeOnly} gives the decoding share to subtract.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-exports=java.base/sun.security.x509=ALL-UNNAMED")
+public class CertificateFieldsBenchmark {
+    
+    private byte[] der;
+    private MethodHandle decode;
+    
+    @Setup
+    public void setUp() throws Throwable {
+        TestCertificates.Issued ca = TestCertificates.selfSignedCa("Benchmark Root CA");
+        TestCertificates.Issued intermediate = TestCertificates.issue(ca, "Benchmark Intermediate CA",
+                Duration.ofDays(365), true);
+        der = TestCertificates.leaf(intermediate, "www.example.com", Duration.ofDays(90),
+                "http://ocsp.example.com", "http://crl.example.com/intermediate.crl").certificate().getEncoded();
+        decode = MethodHandles.lookup().findConstructor(Class.forName("sun.security.x509.X509CertImpl"),
+                MethodType.methodType(void.class, byte[].class));
+    }
+    
+    @Benchmark
+    public CertificateFields derPass() {
+        return CertificateFields.parse(der);
+    }
+    
+    @Benchmark
+    public X509Certificate decodeOnly() throws Throwable {
+        return fresh();
+    }
+    
+    @Benchmark
+    public void decodeAndGetters(Blackhole blackhole) throws Throwable {
+        X509Certificate cert = fresh();
+        blackhole.consume(cert.getSubjectX500Principal().getName());
+        blackhole.consume(cert.getIssuerX500Principal().getName());
+        blackhole.consume(cert.getSerialNumber().toString());
+        blackhole.consume(cert.getNotBefore().toInstant());
+        blackhole.consume(cert.getNotAfter().toInstant());
+        blackhole.consume(cert.getSigAlgName());
+        blackhole.consume(cert.getPublicKey().getEncoded().length * 8);
+        blackhole.consume(subjectAlternativeNames(cert));
+        blackhole.consume(formattedFingerprint(cert.getEncoded()));
+    }
+    
+    @Benchmark
+    public String fingerprintLookupTable() {
+        return CertificateFields.fingerprint(der);
+    }
+    
+    @Benchmark
+    public String fingerprintStringFormat() throws Exception {
+        return formattedFingerprint(der);
+    }
+    
+    @Benchmark
+    public String subjectAlternativeNamesGetter() throws Throwable {
+        return subjectAlternativeNames(fresh());
+    }
+    
+    private X509Certificate fresh() throws Throwable {
+        return (X509Certificate) decode.invoke(der);
+    }
+    
+    // The checker's extraction before the DER pass, kept as the baseline
+    
+    private static String subjectAlternativeNames(X509Certificate cert) throws Exception {
+        Collection<List<?>> sans = cert.getSubjectAlternativeNames();
+        if (sans == null) {
+            return null;
+        }
+        List<String> sanList = new ArrayList<>();
+        for (List<?> san : sans) {
+            if (san.size() >= 2) {
+                sanList.add(san.get(1).toString());
+            }
+        }
+        return String.join(",", sanList);
+    }
+    
+    private static String formattedFingerprint(byte[] encoded) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(encoded);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
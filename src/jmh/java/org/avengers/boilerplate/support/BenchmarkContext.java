@@ -0,0 +1,146 @@
+package org.avengers.boilerplate.support;
+
+import org.avengers.boilerplate.Application;
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+import org.avengers.boilerplate.repository.DomainRepository;
+import org.avengers.boilerplate.repository.SslCertificateRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The application on the test profile's in-memory H2 database and a random
+ * port, without scheduled checks or per-check logging, for benchmarks that
+ * need real beans and real queries.
+ */
+public final class BenchmarkContext {
+    
+    private static final SslCertificate.CertificateStatus[] STATUSES = {
+            SslCertificate.CertificateStatus.VALID,
+            SslCertificate.CertificateStatus.VALID,
+            SslCertificate.CertificateStatus.EXPIRING_SOON,
+            SslCertificate.CertificateStatus.ERROR};
+    
+    private BenchmarkContext() {
+    }
+    
+    public static ConfigurableApplicationContext start(String... properties) {
+        List<String> all = new ArrayList<>(List.of(
+                "server.port=0",
+                "ssl.monitor.schedule.mode=cron",
+                "logging.level.org.avengers.boilerplate=WARN",
+                "logging.level.org.hibernate=WARN"));
+        all.addAll(List.of(properties));
+        return new SpringApplicationBuilder(Application.class)
+                .profiles("test")
+                .properties(all.toArray(String[]::new))
+                .initializers(context -> context.getBeanFactory()
+                        .registerSingleton(TestComponents.class.getName(), new TestComponents()))
+                .run();
+    }
+    
+    /**
+     * Stores {@code domains} active domains named {@code bench-<n>.example.com},
+     * each with {@code checksPerDomain} certificate records a day apart, and
+     * returns the domains.
+     */
+    public static List<Domain> seed(ConfigurableApplicationContext context, int domains, int checksPerDomain) {
+        DomainRepository domainRepository = context.getBean(DomainRepository.class);
+        SslCertificateRepository certificateRepository = context.getBean(SslCertificateRepository.class);
+        LocalDateTime now = LocalDateTime.now();
+        
+        List<Domain> batch = new ArrayList<>(domains);
+        for (int i = 0; i < domains; i++) {
+            batch.add(Domain.builder()
+                    .name("bench-" + i + ".example.com")
+                    .description("Benchmark domain " + i)
+                    .port(443)
+                    .active(true)
+                    .checkIntervalMinutes(1440)
+                    .nextCheckAt(now.minusMinutes(i % 120))
+                    .build());
+        }
+        List<Domain> saved = domainRepository.saveAll(batch);
+        
+        List<SslCertificate> certificates = new ArrayList<>(saved.size() * checksPerDomain);
+        List<LocalDateTime> checkDates = new ArrayList<>(saved.size() * checksPerDomain);
+        for (Domain domain : saved) {
+            for (int check = 0; check < checksPerDomain; check++) {
+                LocalDateTime checkedAt = now.minusDays(check);
+                certificates.add(certificate(domain, checkedAt, STATUSES[check % STATUSES.length]));
+                checkDates.add(checkedAt);
+            }
+        }
+        List<SslCertificate> stored = certificateRepository.saveAll(certificates);
+        
+        // check_date is a creation timestamp, so the history is dated after the insert
+        List<Object[]> dates = new ArrayList<>(stored.size());
+        for (int i = 0; i < stored.size(); i++) {
+            dates.add(new Object[]{checkDates.get(i), stored.get(i).getId()});
+        }
+        context.getBean(JdbcTemplate.class)
+                .batchUpdate("UPDATE ssl_certificates SET check_date = ? WHERE id = ?", dates);
+        return saved;
+    }
+    
+    /**
+     * Keeps test configurations, such as the load test's TLS farm, out of the
+     * application's component scan, as {@code @SpringBootTest} does.
+     */
+    private static final class TestComponents extends TypeExcludeFilter {
+        
+        @Override
+        public boolean match(MetadataReader metadataReader, MetadataReaderFactory metadataReaderFactory) {
+            return metadataReader.getAnnotationMetadata().isAnnotated(TestComponent.class.getName());
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            return other != null && other.getClass() == getClass();
+        }
+        
+        @Override
+        public int hashCode() {
+            return getClass().hashCode();
+        }
+    }
+    
+    public static SslCertificate certificate(Domain domain, LocalDateTime checkedAt,
+                                             SslCertificate.CertificateStatus status) {
+        return SslCertificate.builder()
+                .domain(domain)
+                .subject("CN=" + domain.getName())
+                .issuer("CN=Benchmark Intermediate CA,O=Example Trust,C=US")
+                .serialNumber("302575683457623489172345")
+                .validFrom(checkedAt.minusDays(30))
+                .expiryDate(checkedAt.plusDays(60))
+                .daysUntilExpiry(60)
+                .status(status)
+                .checkDate(checkedAt)
+                .lastSeenAt(checkedAt)
+                .checkCount(1)
+                .responseTimeMs(42L)
+                .responseTimeTotalMs(42L)
+                .responseTimeMaxMs(42L)
+                .dnsTimeMs(3L)
+                .connectTimeMs(9L)
+                .handshakeTimeMs(30L)
+                .attempts(1)
+                .fingerprintSha256("9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08")
+                .signatureAlgorithm("SHA256withECDSA")
+                .keyAlgorithm("EC")
+                .keySize(256)
+                .subjectAlternativeNames(domain.getName() + ",www." + domain.getName())
+                .revocationStatus("GOOD")
+                .build();
+    }
+}
@@ -1,5 +1,12 @@
 package org.avengers.boilerplate.config;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -8,12 +15,18 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
 
 @Configuration
 @EnableAsync
 @EnableScheduling
+@Slf4j
 public class AsyncConfig {
     
+    @Value("${ssl.monitor.async.mode:platform}")
+    private String mode;
+    
     @Value("${ssl.monitor.async.core-pool-size:5}")
     private int corePoolSize;
     
@@ -23,15 +36,73 @@ public class AsyncConfig {
     @Value("${ssl.monitor.async.queue-capacity:100}")
     private int queueCapacity;
     
+    @Value("${ssl.monitor.async.virtual.max-concurrency:2000}")
+    private int virtualMaxConcurrency;
+    
+    // Tasks the platform pool handed back to the submitting thread because it was full
+    private final LongAdder callerRuns = new LongAdder();
+    
+    /**
+     * Executor for certificate checks. {@code ssl.monitor.async.mode=virtual}
+     * runs each task on a virtual thread (Java 21+ runtime), otherwise a
+     * bounded platform thread pool is used.
+     */
     @Bean(name = "asyncExecutor")
     public Executor asyncExecutor() {
+        if ("virtual".equalsIgnoreCase(mode)) {
+            if (BoundedVirtualThreadExecutor.isSupported()) {
+                log.info("Using virtual thread executor with max concurrency {}", virtualMaxConcurrency);
+                return new BoundedVirtualThreadExecutor("SSL-Check-VT-", virtualMaxConcurrency);
+            }
+            log.warn("Virtual thread executor requested but running on Java {}; falling back to platform pool",
+                    Runtime.version().feature());
+        }
+        return platformExecutor();
+    }
+    
+    private Executor platformExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(corePoolSize);
         executor.setMaxPoolSize(maxPoolSize);
         executor.setQueueCapacity(queueCapacity);
         executor.setThreadNamePrefix("SSL-Check-");
-        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy());
+        ThreadPoolExecutor.CallerRunsPolicy callerRunsPolicy = new ThreadPoolExecutor.CallerRunsPolicy();
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            callerRuns.increment();
+            callerRunsPolicy.rejectedExecution(task, pool);
+        });
         executor.initialize();
         return executor;
     }
+    
+    /**
+     * Pool size, active threads and queue depth of {@code asyncExecutor}
+     * as the standard {@code executor.*} meters tagged
+     * {@code name=asyncExecutor}, plus how often a full pool made the caller
+     * run the task itself. The virtual thread executor has no queue; tasks
+     * waiting for a permit are reported as queued instead.
+     */
+    @Bean
+    public MeterBinder asyncExecutorMetrics(@Qualifier("asyncExecutor") Executor asyncExecutor) {
+        return registry -> {
+            Tags tags = Tags.of("name", "asyncExecutor");
+            if (asyncExecutor instanceof ThreadPoolTaskExecutor pool) {
+                new ExecutorServiceMetrics(pool.getThreadPoolExecutor(), "asyncExecutor", Tags.empty())
+                        .bindTo(registry);
+                FunctionCounter.builder("ssl.monitor.async.caller-runs", callerRuns, LongAdder::sum)
+                        .description("Tasks run on the submitting thread because the pool and its queue were full")
+                        .tags(tags)
+                        .register(registry);
+            } else if (asyncExecutor instanceof BoundedVirtualThreadExecutor virtual) {
+                Gauge.builder("executor.active", virtual, BoundedVirtualThreadExecutor::getActiveCount)
+                        .description("The approximate number of threads that are actively executing tasks")
+                        .tags(tags)
+                        .register(registry);
+                Gauge.builder("executor.queued", virtual, BoundedVirtualThreadExecutor::getWaitingCount)
+                        .description("The approximate number of tasks that are queued for execution")
+                        .tags(tags)
+                        .register(registry);
+            }
+        };
+    }
 } 
\ No newline at end of file
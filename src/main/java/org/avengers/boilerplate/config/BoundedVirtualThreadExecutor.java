@@ -0,0 +1,75 @@
+package org.avengers.boilerplate.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs every task on its own virtual thread, with a global cap on how many
+ * tasks execute at once. Tasks over the cap park on the semaphore, which is
+ * cheap for virtual threads, instead of being queued or rejected.
+ * <p>
+ * The project is compiled for Java 17, so the Java 21 thread builder API is
+ * looked up reflectively; {@link #isSupported()} reports whether the running
+ * JVM provides it.
+ */
+public class BoundedVirtualThreadExecutor implements Executor {
+    
+    private static final ThreadFactory UNAVAILABLE = null;
+    
+    private final ThreadFactory threadFactory;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    
+    public BoundedVirtualThreadExecutor(String threadNamePrefix, int maxConcurrency) {
+        ThreadFactory factory = virtualThreadFactory(threadNamePrefix);
+        if (factory == UNAVAILABLE) {
+            throw new IllegalStateException("Virtual threads require Java 21, running on Java "
+                    + Runtime.version().feature());
+        }
+        this.threadFactory = factory;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.permits = new Semaphore(this.maxConcurrency);
+    }
+    
+    public static boolean isSupported() {
+        return virtualThreadFactory("probe-") != UNAVAILABLE;
+    }
+    
+    @Override
+    public void execute(Runnable task) {
+        threadFactory.newThread(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        }).start();
+    }
+    
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+    
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+    
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+    
+    private static ThreadFactory virtualThreadFactory(String threadNamePrefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method name = builderType.getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, threadNamePrefix, 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return UNAVAILABLE;
+        }
+    }
+}
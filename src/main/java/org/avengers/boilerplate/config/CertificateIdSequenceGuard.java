@@ -0,0 +1,71 @@
+package org.avengers.boilerplate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Certificate ids used to come from an IDENTITY column. On a database from
+ * that time the sequence ddl-auto creates starts at 1, below the existing
+ * rows, so before the first insert it is moved past them. The pooled
+ * allocator uses the {@link SslCertificate#ID_ALLOCATION_SIZE} ids ending at
+ * the value it reads, so the sequence must stay that far ahead of the
+ * largest id.
+ * <p>
+ * Replicas starting together may all find the sequence behind, so it is only
+ * ever moved forward: with {@code setval(GREATEST(...))} on PostgreSQL, and
+ * elsewhere by drawing values until it is past the rows.
+ */
+@Slf4j
+public class CertificateIdSequenceGuard {
+    
+    private static final String POSTGRES_ADVANCE = "SELECT setval('" + SslCertificate.ID_SEQUENCE + "', "
+            + "GREATEST(nextval('" + SslCertificate.ID_SEQUENCE + "'), ?))";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final String nextValueQuery;
+    private final boolean postgres;
+    
+    public CertificateIdSequenceGuard(JdbcTemplate jdbcTemplate, Dialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.nextValueQuery = dialect.getSequenceSupport().getSequenceNextValString(SslCertificate.ID_SEQUENCE);
+        this.postgres = dialect instanceof PostgreSQLDialect;
+    }
+    
+    /**
+     * @return whether the sequence had to be moved
+     */
+    public boolean align() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT max(id) FROM ssl_certificates", Long.class);
+        if (maxId == null) {
+            return false;
+        }
+        long next = nextValue();
+        if (isPast(next, maxId)) {
+            return false;
+        }
+        long moved;
+        if (postgres) {
+            // The next value drawn is maxId + ID_ALLOCATION_SIZE, or later if another replica got there first
+            moved = jdbcTemplate.queryForObject(POSTGRES_ADVANCE, Long.class, maxId);
+        } else {
+            moved = next;
+            while (!isPast(moved, maxId)) {
+                moved = nextValue();
+            }
+        }
+        log.warn("Moved {} from {} to {}, past the {} ids already in ssl_certificates",
+                SslCertificate.ID_SEQUENCE, next, moved, maxId);
+        return true;
+    }
+    
+    private long nextValue() {
+        return jdbcTemplate.queryForObject(nextValueQuery, Long.class);
+    }
+    
+    private static boolean isPast(long value, long maxId) {
+        return value - (SslCertificate.ID_ALLOCATION_SIZE - 1) > maxId;
+    }
+}
@@ -0,0 +1,42 @@
+package org.avengers.boilerplate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Failed checks are stored as ERROR rows without certificate dates. Tables
+ * created while {@code valid_from} and {@code expiry_date} were required keep
+ * their NOT NULL constraints under ddl-auto {@code update}, which never
+ * relaxes a column, so they are dropped here before the first insert.
+ */
+@Slf4j
+public class CertificateSchemaGuard {
+    
+    private static final List<String> DATE_COLUMNS = List.of("valid_from", "expiry_date");
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    public CertificateSchemaGuard(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    /**
+     * @return whether any column had to be changed
+     */
+    public boolean allowErrorRows() {
+        boolean changed = false;
+        for (String column : DATE_COLUMNS) {
+            Integer required = jdbcTemplate.queryForObject("SELECT count(*) FROM information_schema.columns "
+                    + "WHERE upper(table_name) = 'SSL_CERTIFICATES' AND upper(column_name) = ? AND is_nullable = 'NO'",
+                    Integer.class, column.toUpperCase());
+            if (required != null && required > 0) {
+                jdbcTemplate.execute("ALTER TABLE ssl_certificates ALTER COLUMN " + column + " DROP NOT NULL");
+                log.warn("Dropped NOT NULL from ssl_certificates.{} so failed checks can be stored", column);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+}
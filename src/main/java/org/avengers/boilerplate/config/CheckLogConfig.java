@@ -0,0 +1,49 @@
+package org.avengers.boilerplate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.avengers.boilerplate.service.CheckEventLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * The check event log under {@code ssl.monitor.check-log}: one JSON line per
+ * kept check, written off the check threads.
+ */
+@Configuration
+public class CheckLogConfig {
+    
+    @Value("${ssl.monitor.check-log.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${ssl.monitor.check-log.path:logs/check-events.jsonl}")
+    private String path;
+    
+    @Value("${ssl.monitor.check-log.success-sample-rate:0.01}")
+    private double successSampleRate;
+    
+    @Value("${ssl.monitor.check-log.slow-threshold-ms:5000}")
+    private long slowThresholdMs;
+    
+    @Value("${ssl.monitor.check-log.buffer-capacity:10000}")
+    private int bufferCapacity;
+    
+    @Value("${ssl.monitor.check-log.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${ssl.monitor.check-log.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+    
+    @Value("${ssl.monitor.check-log.max-file-size-mb:100}")
+    private long maxFileSizeMb;
+    
+    @Bean(destroyMethod = "close")
+    public CheckEventLog checkEventLog(MeterRegistry meterRegistry) {
+        return new CheckEventLog(enabled, Path.of(path), successSampleRate, Duration.ofMillis(slowThresholdMs),
+                bufferCapacity, batchSize, Duration.ofMillis(flushIntervalMs), maxFileSizeMb * 1024 * 1024,
+                meterRegistry);
+    }
+}
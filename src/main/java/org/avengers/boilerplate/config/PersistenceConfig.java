@@ -0,0 +1,86 @@
+package org.avengers.boilerplate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.avengers.boilerplate.repository.DomainRepository;
+import org.avengers.boilerplate.repository.SslCertificateRepository;
+import org.avengers.boilerplate.service.CheckIntervalPolicy;
+import org.avengers.boilerplate.service.CheckResultWriter;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+/**
+ * Check result persistence under {@code ssl.monitor.persistence}. Keep
+ * {@code batch-size} in line with {@code hibernate.jdbc.batch_size} so each
+ * flush goes out as a single JDBC batch. Next check times are set as results
+ * are stored, by the policy under {@code ssl.monitor.schedule.adaptive}.
+ */
+@Configuration
+public class PersistenceConfig {
+    
+    @Value("${ssl.monitor.persistence.mode:on-change}")
+    private String mode;
+    
+    @Value("${ssl.monitor.persistence.batch-size:50}")
+    private int batchSize;
+    
+    @Value("${ssl.monitor.persistence.flush-interval-ms:500}")
+    private long flushIntervalMs;
+    
+    @Value("${ssl.monitor.persistence.buffer-capacity:5000}")
+    private int bufferCapacity;
+    
+    @Value("${ssl.monitor.schedule.adaptive.enabled:true}")
+    private boolean adaptiveIntervals;
+    
+    @Value("${ssl.monitor.schedule.adaptive.min-interval-minutes:15}")
+    private int minIntervalMinutes;
+    
+    @Value("${ssl.monitor.schedule.adaptive.max-interval-minutes:10080}")
+    private int maxIntervalMinutes;
+    
+    @Value("${ssl.monitor.schedule.adaptive.checks-before-expiry:30}")
+    private int checksBeforeExpiry;
+    
+    @Value("${ssl.monitor.schedule.adaptive.after-change-minutes:60}")
+    private int afterChangeMinutes;
+    
+    @Bean(destroyMethod = "close")
+    public CheckResultWriter checkResultWriter(SslCertificateRepository sslCertificateRepository,
+                                               DomainRepository domainRepository,
+                                               PlatformTransactionManager transactionManager,
+                                               CertificateSchemaGuard schemaGuard,
+                                               CertificateIdSequenceGuard sequenceGuard,
+                                               MeterRegistry meterRegistry) {
+        schemaGuard.allowErrorRows();
+        sequenceGuard.align();
+        return new CheckResultWriter(sslCertificateRepository, domainRepository,
+                new TransactionTemplate(transactionManager), checkIntervalPolicy(), "on-change".equalsIgnoreCase(mode),
+                batchSize, Duration.ofMillis(flushIntervalMs), bufferCapacity, meterRegistry);
+    }
+    
+    @Bean
+    public CertificateSchemaGuard certificateSchemaGuard(JdbcTemplate jdbcTemplate) {
+        return new CertificateSchemaGuard(jdbcTemplate);
+    }
+    
+    @Bean
+    public CertificateIdSequenceGuard certificateIdSequenceGuard(JdbcTemplate jdbcTemplate,
+                                                                 EntityManagerFactory entityManagerFactory) {
+        return new CertificateIdSequenceGuard(jdbcTemplate,
+                entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect());
+    }
+    
+    @Bean
+    public CheckIntervalPolicy checkIntervalPolicy() {
+        return new CheckIntervalPolicy(adaptiveIntervals, minIntervalMinutes, maxIntervalMinutes,
+                checksBeforeExpiry, afterChangeMinutes);
+    }
+}
@@ -0,0 +1,260 @@
+package org.avengers.boilerplate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.avengers.boilerplate.service.probe.CapturingTrustManager;
+import org.avengers.boilerplate.service.probe.CertificateProbe;
+import org.avengers.boilerplate.service.probe.ChainValidator;
+import org.avengers.boilerplate.service.probe.DestinationLimiter;
+import org.avengers.boilerplate.service.probe.DnsResolver;
+import org.avengers.boilerplate.service.probe.NioCertificateProbe;
+import org.avengers.boilerplate.service.probe.PermissiveTrustManager;
+import org.avengers.boilerplate.service.probe.ProbeCoalescer;
+import org.avengers.boilerplate.service.probe.ProbeFailure;
+import org.avengers.boilerplate.service.probe.ProbeRetryScheduler;
+import org.avengers.boilerplate.service.probe.ProbeTimeouts;
+import org.avengers.boilerplate.service.probe.SocketCertificateProbe;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Selects the certificate probe engine with {@code ssl.monitor.probe.engine}:
+ * {@code socket} (blocking, default) or {@code nio} (selector driven).
+ * Both engines share the per-phase deadline budget under
+ * {@code ssl.monitor.probe.deadline}. Handshakes accept any chain; trust is
+ * judged afterwards against the store under {@code ssl.monitor.trust}.
+ * With {@code ssl.monitor.probe.mode} {@code capture} (default) the handshake
+ * is aborted as soon as the chain arrives; {@code complete} finishes it.
+ */
+@Configuration
+@Slf4j
+public class ProbeConfig {
+    
+    @Value("${ssl.monitor.probe.deadline.dns:5000}")
+    private int dnsTimeout;
+    
+    @Value("${ssl.monitor.probe.deadline.connect:${ssl.monitor.http.connect-timeout:10000}}")
+    private int connectTimeout;
+    
+    @Value("${ssl.monitor.probe.deadline.handshake:${ssl.monitor.http.read-timeout:10000}}")
+    private int handshakeTimeout;
+    
+    @Value("${ssl.monitor.probe.deadline.total:20000}")
+    private int totalTimeout;
+    
+    @Value("${ssl.monitor.dns.threads:16}")
+    private int dnsThreads;
+    
+    @Value("${ssl.monitor.dns.positive-ttl:300}")
+    private long dnsPositiveTtl;
+    
+    @Value("${ssl.monitor.dns.negative-ttl:60}")
+    private long dnsNegativeTtl;
+    
+    @Value("${ssl.monitor.dns.max-entries:100000}")
+    private int dnsMaxEntries;
+    
+    @Value("${ssl.monitor.destination.max-per-address:8}")
+    private int maxPerAddress;
+    
+    @Value("${ssl.monitor.destination.max-per-subnet:32}")
+    private int maxPerSubnet;
+    
+    @Value("${ssl.monitor.destination.min-spacing-ms:20}")
+    private long minSpacingMs;
+    
+    @Value("${ssl.monitor.destination.max-total:500}")
+    private int maxTotal;
+    
+    @Value("${ssl.monitor.sweep.max-concurrency:0}")
+    private int sweepMaxConcurrency;
+    
+    @Value("${ssl.monitor.probe.retry.base-delay-ms:500}")
+    private long retryBaseDelayMs;
+    
+    @Value("${ssl.monitor.probe.retry.max-delay-ms:10000}")
+    private long retryMaxDelayMs;
+    
+    @Value("${ssl.monitor.probe.retry.retry-on:TIMEOUT,RESET,REFUSED}")
+    private ProbeFailure[] retryOn;
+    
+    @Value("${ssl.monitor.probe.mode:capture}")
+    private String probeMode;
+    
+    @Value("${ssl.monitor.probe.nio.selector-threads:2}")
+    private int selectorThreads;
+    
+    @Value("${ssl.monitor.probe.nio.max-in-flight:1024}")
+    private int maxInFlight;
+    
+    @Value("${ssl.monitor.probe.nio.task-threads:0}")
+    private int taskThreads;
+    
+    @Value("${ssl.monitor.probe.socket.threads:64}")
+    private int socketThreads;
+    
+    @Value("${ssl.monitor.trust.store-path:}")
+    private String trustStorePath;
+    
+    @Value("${ssl.monitor.trust.store-type:PKCS12}")
+    private String trustStoreType;
+    
+    @Value("${ssl.monitor.trust.store-password:}")
+    private String trustStorePassword;
+    
+    @Value("${ssl.monitor.trust.cache-ttl-minutes:60}")
+    private long trustCacheTtlMinutes;
+    
+    @Value("${ssl.monitor.trust.cache-max-entries:10000}")
+    private int trustCacheMaxEntries;
+    
+    @Bean
+    public ProbeTimeouts probeTimeouts() {
+        return new ProbeTimeouts(dnsTimeout, connectTimeout, handshakeTimeout, totalTimeout);
+    }
+    
+    /**
+     * Resolves names ahead of the probe engines, so a hung resolver can be
+     * abandoned at the DNS deadline without tying up a probe worker.
+     */
+    @Bean(destroyMethod = "close")
+    public DnsResolver dnsResolver(MeterRegistry meterRegistry) {
+        return new DnsResolver(dnsThreads, Duration.ofSeconds(dnsPositiveTtl), Duration.ofSeconds(dnsNegativeTtl),
+                dnsMaxEntries, meterRegistry);
+    }
+    
+    @Bean(destroyMethod = "close")
+    public DestinationLimiter destinationLimiter(MeterRegistry meterRegistry) {
+        if (sweepMaxConcurrency > 0) {
+            log.warn("ssl.monitor.sweep.max-concurrency is deprecated: it still caps the checks of one sweep in "
+                    + "flight, use sweep.max-pending instead; probes across all sweeps are capped by "
+                    + "destination.max-total ({})", maxTotal);
+        }
+        return new DestinationLimiter(maxPerAddress, maxPerSubnet, Duration.ofMillis(minSpacingMs),
+                maxTotal, meterRegistry);
+    }
+    
+    @Bean
+    public ProbeCoalescer probeCoalescer(MeterRegistry meterRegistry) {
+        return new ProbeCoalescer(meterRegistry);
+    }
+    
+    /**
+     * Re-dispatches probes that failed transiently. DNS failures are served
+     * from the negative cache and handshake failures are usually permanent,
+     * so by default neither is retried.
+     */
+    @Bean(destroyMethod = "close")
+    public ProbeRetryScheduler probeRetryScheduler(MeterRegistry meterRegistry) {
+        return new ProbeRetryScheduler(Duration.ofMillis(retryBaseDelayMs), Duration.ofMillis(retryMaxDelayMs),
+                Set.of(retryOn), meterRegistry);
+    }
+    
+    /**
+     * Validates captured chains against the configured trust store, or the
+     * JDK's cacerts when no path is set.
+     */
+    @Bean
+    public ChainValidator chainValidator(MeterRegistry meterRegistry) throws GeneralSecurityException, IOException {
+        KeyStore trustStore = null;
+        if (!trustStorePath.isBlank()) {
+            trustStore = KeyStore.getInstance(trustStoreType);
+            try (InputStream in = Files.newInputStream(Path.of(trustStorePath))) {
+                trustStore.load(in, trustStorePassword.isEmpty() ? null : trustStorePassword.toCharArray());
+            }
+        }
+        return new ChainValidator(ChainValidator.trustedCertificates(trustStore),
+                Duration.ofMinutes(trustCacheTtlMinutes), trustCacheMaxEntries, meterRegistry);
+    }
+    
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService probeWatchdog() {
+        return Executors.newSingleThreadScheduledExecutor(daemonThreads("SSL-Probe-Watchdog-"));
+    }
+    
+    /**
+     * Runs the socket engine's blocking connects and handshakes. Kept apart
+     * from the check pool, whose caller-runs overflow would block DNS,
+     * limiter and retry threads on handshakes. Its queue holds
+     * {@code destination.max-total} probes, so every probe the destination
+     * limiter admits finds a place; beyond that a probe fails rather than
+     * running on the caller's thread.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    @ConditionalOnProperty(name = "ssl.monitor.probe.engine", havingValue = "socket", matchIfMissing = true)
+    public ExecutorService socketProbeExecutor() {
+        int threads = Math.max(1, Math.min(socketThreads, maxTotal));
+        log.info("Socket probe pool: {} threads, {} probes queued at most", threads, maxTotal);
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxTotal)), daemonThreads("SSL-Probe-Socket-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    @Bean
+    @ConditionalOnProperty(name = "ssl.monitor.probe.engine", havingValue = "socket", matchIfMissing = true)
+    public CertificateProbe socketCertificateProbe(DnsResolver dnsResolver) throws GeneralSecurityException {
+        return new SocketCertificateProbe(probeSslContext(), probeTimeouts(), socketProbeExecutor(),
+                dnsResolver, probeWatchdog());
+    }
+    
+    /**
+     * Runs the nio engine's delegated SSLEngine tasks. Kept apart from the
+     * check pool, whose caller-runs overflow would put the tasks back on a
+     * selector thread. A handshake has at most one batch of tasks queued, so
+     * a queue of {@code max-in-flight} never rejects one while running.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    @ConditionalOnProperty(name = "ssl.monitor.probe.engine", havingValue = "nio")
+    public ExecutorService probeTaskExecutor() {
+        int threads = taskThreads > 0 ? taskThreads : Runtime.getRuntime().availableProcessors();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxInFlight)), daemonThreads("SSL-Probe-Task-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "ssl.monitor.probe.engine", havingValue = "nio")
+    public CertificateProbe nioCertificateProbe(DnsResolver dnsResolver) throws GeneralSecurityException, IOException {
+        return new NioCertificateProbe(probeSslContext(), probeTimeouts(),
+                selectorThreads, maxInFlight, dnsResolver, probeTaskExecutor());
+    }
+    
+    private SSLContext probeSslContext() throws GeneralSecurityException {
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        TrustManager trustManager = "complete".equalsIgnoreCase(probeMode)
+                ? new PermissiveTrustManager()
+                : new CapturingTrustManager();
+        sslContext.init(null, new TrustManager[]{trustManager}, null);
+        return sslContext;
+    }
+    
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,79 @@
+package org.avengers.boilerplate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.avengers.boilerplate.service.revocation.CrlStore;
+import org.avengers.boilerplate.service.revocation.OcspChecker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Revocation checking of probed certificates, configured under
+ * {@code ssl.monitor.ocsp} and {@code ssl.monitor.crl}.
+ */
+@Configuration
+public class RevocationConfig {
+    
+    @Value("${ssl.monitor.ocsp.enabled:true}")
+    private boolean ocspEnabled;
+    
+    @Value("${ssl.monitor.ocsp.timeout-ms:5000}")
+    private long ocspTimeoutMs;
+    
+    @Value("${ssl.monitor.ocsp.default-ttl-minutes:60}")
+    private long ocspDefaultTtlMinutes;
+    
+    @Value("${ssl.monitor.ocsp.max-ttl-hours:24}")
+    private long ocspMaxTtlHours;
+    
+    @Value("${ssl.monitor.ocsp.failure-ttl-minutes:5}")
+    private long ocspFailureTtlMinutes;
+    
+    @Value("${ssl.monitor.ocsp.cache-max-entries:100000}")
+    private int ocspCacheMaxEntries;
+    
+    @Value("${ssl.monitor.crl.enabled:true}")
+    private boolean crlEnabled;
+    
+    @Value("${ssl.monitor.crl.directory:data/crl}")
+    private String crlDirectory;
+    
+    @Value("${ssl.monitor.crl.timeout-ms:30000}")
+    private long crlTimeoutMs;
+    
+    @Value("${ssl.monitor.crl.default-ttl-hours:24}")
+    private long crlDefaultTtlHours;
+    
+    @Value("${ssl.monitor.crl.max-ttl-hours:24}")
+    private long crlMaxTtlHours;
+    
+    @Value("${ssl.monitor.crl.failure-ttl-minutes:15}")
+    private long crlFailureTtlMinutes;
+    
+    @Bean
+    public OcspChecker ocspChecker(MeterRegistry meterRegistry) {
+        // Responder queries are a single small POST; the client's own executor handles the replies
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(ocspTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        return new OcspChecker(ocspEnabled, httpClient, Duration.ofMillis(ocspTimeoutMs),
+                Duration.ofMinutes(ocspDefaultTtlMinutes), Duration.ofHours(ocspMaxTtlHours),
+                Duration.ofMinutes(ocspFailureTtlMinutes), ocspCacheMaxEntries, meterRegistry);
+    }
+    
+    @Bean
+    public CrlStore crlStore(MeterRegistry meterRegistry) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(crlTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        return new CrlStore(crlEnabled, Path.of(crlDirectory), httpClient, Duration.ofMillis(crlTimeoutMs),
+                Duration.ofHours(crlDefaultTtlHours), Duration.ofHours(crlMaxTtlHours),
+                Duration.ofMinutes(crlFailureTtlMinutes), meterRegistry);
+    }
+}
@@ -0,0 +1,84 @@
+package org.avengers.boilerplate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.avengers.boilerplate.repository.DomainRepository;
+import org.avengers.boilerplate.service.DueCheckScheduler;
+import org.avengers.boilerplate.service.LeasedCheckScheduler;
+import org.avengers.boilerplate.service.SslCertificateChecker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Selects how checks are scheduled with {@code ssl.monitor.schedule.mode}:
+ * {@code due} (default) checks each domain when its interval elapses,
+ * {@code leased} does the same but shares the domains between replicas
+ * through leases in the database, and {@code cron} runs the daily and hourly
+ * sweeps instead.
+ */
+@Configuration
+public class ScheduleConfig {
+    
+    @Value("${ssl.monitor.sweep.page-size:500}")
+    private int pageSize;
+    
+    @Value("${ssl.monitor.sweep.max-pending:5000}")
+    private int maxPending;
+    
+    @Value("${ssl.monitor.schedule.daily-window-minutes:0}")
+    private int dailyWindowMinutes;
+    
+    @Value("${ssl.monitor.schedule.lease.node-id:}")
+    private String nodeId;
+    
+    @Value("${ssl.monitor.schedule.lease.batch-size:100}")
+    private int leaseBatchSize;
+    
+    @Value("${ssl.monitor.schedule.lease.duration-seconds:120}")
+    private long leaseDurationSeconds;
+    
+    @Value("${ssl.monitor.schedule.lease.poll-interval-ms:5000}")
+    private long leasePollIntervalMs;
+    
+    @Value("${ssl.monitor.schedule.lease.retry-delay-seconds:300}")
+    private long leaseRetryDelaySeconds;
+    
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "ssl.monitor.schedule.mode", havingValue = "due", matchIfMissing = true)
+    public DueCheckScheduler dueCheckScheduler(DomainRepository domainRepository,
+                                               SslCertificateChecker sslCertificateChecker,
+                                               MeterRegistry meterRegistry) {
+        return new DueCheckScheduler(domainRepository, sslCertificateChecker, pageSize, maxPending,
+                Duration.ofMinutes(Math.max(0, dailyWindowMinutes)), meterRegistry);
+    }
+    
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "ssl.monitor.schedule.mode", havingValue = "leased")
+    public LeasedCheckScheduler leasedCheckScheduler(DomainRepository domainRepository,
+                                                     SslCertificateChecker sslCertificateChecker,
+                                                     MeterRegistry meterRegistry) {
+        return new LeasedCheckScheduler(domainRepository, sslCertificateChecker, leaseNodeId(), leaseBatchSize,
+                maxPending, Duration.ofSeconds(leaseDurationSeconds), Duration.ofMillis(leasePollIntervalMs),
+                Duration.ofSeconds(leaseRetryDelaySeconds), meterRegistry);
+    }
+    
+    // Unique per process, so a restarted replica does not mistake its predecessor's leases for its own
+    private String leaseNodeId() {
+        if (!nodeId.isBlank()) {
+            return nodeId;
+        }
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
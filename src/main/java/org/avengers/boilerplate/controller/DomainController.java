@@ -10,7 +10,9 @@ import org.avengers.boilerplate.domain.dto.SslCertificateDto;
 import org.avengers.boilerplate.domain.entity.Domain;
 import org.avengers.boilerplate.repository.DomainRepository;
 import org.avengers.boilerplate.repository.SslCertificateRepository;
+import org.avengers.boilerplate.service.DomainChangedEvent;
 import org.avengers.boilerplate.service.ScheduledSslCheckService;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -21,6 +23,7 @@ import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -34,6 +37,7 @@ public class DomainController {
     private final DomainRepository domainRepository;
     private final SslCertificateRepository sslCertificateRepository;
     private final ScheduledSslCheckService scheduledSslCheckService;
+    private final ApplicationEventPublisher eventPublisher;
     
     @GetMapping
     @Operation(summary = "Get all domains", description = "Retrieve a paginated list of all domains")
@@ -85,6 +89,7 @@ public class DomainController {
                 .build();
         
         Domain savedDomain = domainRepository.save(domain);
+        eventPublisher.publishEvent(new DomainChangedEvent(savedDomain));
         log.info("Created new domain: {}", savedDomain.getName());
         
         return ResponseEntity.status(HttpStatus.CREATED).body(convertToDto(savedDomain));
@@ -106,11 +111,18 @@ public class DomainController {
         domain.setDescription(domainDto.getDescription());
         domain.setActive(domainDto.getActive());
         domain.setPort(domainDto.getPort());
+        if (!Objects.equals(domain.getCheckIntervalMinutes(), domainDto.getCheckIntervalMinutes())) {
+            // Next check follows the new interval from the last one
+            domain.setNextCheckAt(domain.getLastCheckAt() != null && domainDto.getCheckIntervalMinutes() != null
+                    ? domain.getLastCheckAt().plusMinutes(domainDto.getCheckIntervalMinutes())
+                    : null);
+        }
         domain.setCheckIntervalMinutes(domainDto.getCheckIntervalMinutes());
         domain.setWebhookUrl(domainDto.getWebhookUrl());
         domain.setNotificationEmail(domainDto.getNotificationEmail());
         
         Domain updatedDomain = domainRepository.save(domain);
+        eventPublisher.publishEvent(new DomainChangedEvent(updatedDomain));
         log.info("Updated domain: {}", updatedDomain.getName());
         
         return ResponseEntity.ok(convertToDto(updatedDomain));
@@ -129,6 +141,7 @@ public class DomainController {
         Domain domainToDelete = domain.get();
         domainToDelete.setActive(false);
         domainRepository.save(domainToDelete);
+        eventPublisher.publishEvent(new DomainChangedEvent(domainToDelete));
         
         log.info("Deactivated domain: {}", domainToDelete.getName());
         return ResponseEntity.noContent().build();
@@ -44,22 +44,47 @@ public class SslCertificateDto {
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime checkDate;
     
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime lastSeenAt;
+    
+    private Integer checkCount;
+    
     private Long responseTimeMs;
     
+    private Long averageResponseTimeMs;
+    
+    private Long maxResponseTimeMs;
+    
+    private Long dnsTimeMs;
+    
+    private Long connectTimeMs;
+    
+    private Long handshakeTimeMs;
+    
+    private Integer attempts;
+    
     private String fingerprintSha256;
     
     private String signatureAlgorithm;
     
+    private String keyAlgorithm;
+    
     private Integer keySize;
     
     private String subjectAlternativeNames;
     
+    private String revocationStatus;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime revokedAt;
+    
     public enum CertificateStatus {
         VALID,
         EXPIRING_SOON,
         EXPIRED,
         ERROR,
-        UNTRUSTED
+        UNTRUSTED,
+        REVOKED
     }
     
     public static SslCertificateDto fromEntity(SslCertificate entity) {
@@ -76,11 +101,24 @@ public class SslCertificateDto {
 //                .status(entity.getStatus())
                 .errorMessage(entity.getErrorMessage())
                 .checkDate(entity.getCheckDate())
+                .lastSeenAt(entity.getLastSeenAt())
+                .checkCount(entity.getCheckCount())
                 .responseTimeMs(entity.getResponseTimeMs())
+                .averageResponseTimeMs(entity.getResponseTimeTotalMs() != null && entity.getCheckCount() != null
+                        ? Long.valueOf(entity.getResponseTimeTotalMs() / entity.getCheckCount())
+                        : entity.getResponseTimeMs())
+                .maxResponseTimeMs(entity.getResponseTimeMaxMs())
+                .dnsTimeMs(entity.getDnsTimeMs())
+                .connectTimeMs(entity.getConnectTimeMs())
+                .handshakeTimeMs(entity.getHandshakeTimeMs())
+                .attempts(entity.getAttempts())
                 .fingerprintSha256(entity.getFingerprintSha256())
                 .signatureAlgorithm(entity.getSignatureAlgorithm())
+                .keyAlgorithm(entity.getKeyAlgorithm())
                 .keySize(entity.getKeySize())
                 .subjectAlternativeNames(entity.getSubjectAlternativeNames())
+                .revocationStatus(entity.getRevocationStatus())
+                .revokedAt(entity.getRevokedAt())
                 .build();
     }
 } 
\ No newline at end of file
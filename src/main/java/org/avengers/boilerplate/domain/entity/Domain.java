@@ -15,7 +15,8 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "domains", indexes = {
     @Index(name = "idx_domain_name", columnList = "name"),
-    @Index(name = "idx_domain_active", columnList = "active")
+    @Index(name = "idx_domain_active", columnList = "active"),
+    @Index(name = "idx_domain_lease_owner", columnList = "lease_owner")
 })
 @Data
 @Builder
@@ -66,4 +67,11 @@ public class Domain {
     
     @Column(name = "next_check_at")
     private LocalDateTime nextCheckAt;
+    
+    // Node holding this domain's check in leased scheduling, until the lease expires
+    @Column(name = "lease_owner", length = 128)
+    private String leaseOwner;
+    
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
 } 
\ No newline at end of file
@@ -22,8 +22,14 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class SslCertificate {
     
+    public static final String ID_SEQUENCE = "ssl_certificates_seq";
+    
+    public static final int ID_ALLOCATION_SIZE = 50;
+    
+    // Sequence ids with a pooled allocator, IDENTITY would disable insert batching
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -39,10 +45,11 @@ public class SslCertificate {
     @Column(name = "serial_number", length = 100)
     private String serialNumber;
     
-    @Column(name = "valid_from", nullable = false)
+    // Null on ERROR results, which carry no certificate
+    @Column(name = "valid_from")
     private LocalDateTime validFrom;
     
-    @Column(name = "expiry_date", nullable = false)
+    @Column(name = "expiry_date")
     private LocalDateTime expiryDate;
     
     @Column(name = "days_until_expiry")
@@ -59,9 +66,34 @@ public class SslCertificate {
     @CreationTimestamp
     private LocalDateTime checkDate;
     
+    // A row stands for a run of identical results from check_date to last_seen_at
+    @Column(name = "last_seen_at")
+    private LocalDateTime lastSeenAt;
+    
+    @Column(name = "check_count")
+    private Integer checkCount;
+    
     @Column(name = "response_time_ms")
     private Long responseTimeMs;
     
+    @Column(name = "response_time_total_ms")
+    private Long responseTimeTotalMs;
+    
+    @Column(name = "response_time_max_ms")
+    private Long responseTimeMaxMs;
+    
+    @Column(name = "dns_time_ms")
+    private Long dnsTimeMs;
+    
+    @Column(name = "connect_time_ms")
+    private Long connectTimeMs;
+    
+    @Column(name = "handshake_time_ms")
+    private Long handshakeTimeMs;
+    
+    @Column(name = "attempts")
+    private Integer attempts;
+    
     @Column(name = "certificate_chain", columnDefinition = "TEXT")
     private String certificateChain;
     
@@ -71,17 +103,28 @@ public class SslCertificate {
     @Column(name = "signature_algorithm", length = 100)
     private String signatureAlgorithm;
     
+    @Column(name = "key_algorithm", length = 20)
+    private String keyAlgorithm;
+    
     @Column(name = "key_size")
     private Integer keySize;
     
     @Column(name = "subject_alternative_names", columnDefinition = "TEXT")
     private String subjectAlternativeNames;
     
+    // GOOD, REVOKED or UNKNOWN from OCSP; null when revocation was not checked
+    @Column(name = "revocation_status", length = 20)
+    private String revocationStatus;
+    
+    @Column(name = "revoked_at")
+    private LocalDateTime revokedAt;
+    
     public enum CertificateStatus {
         VALID,
         EXPIRING_SOON,
         EXPIRED,
         ERROR,
-        UNTRUSTED
+        UNTRUSTED,
+        REVOKED
     }
 } 
\ No newline at end of file
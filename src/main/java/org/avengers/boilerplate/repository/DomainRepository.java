@@ -4,11 +4,14 @@ import org.avengers.boilerplate.domain.entity.Domain;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,9 +26,38 @@ public interface DomainRepository extends JpaRepository<Domain, Long> {
     
     List<Domain> findByActiveTrueAndNextCheckAtBefore(LocalDateTime dateTime);
     
+    /**
+     * Keyset page of active domains: the first {@code pageable.getPageSize()}
+     * with an id above {@code afterId}. Pass the last id of one page to get
+     * the next; no offset is scanned and no count query is run.
+     */
+    List<Domain> findByActiveTrueAndIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+    
     @Query("SELECT d FROM Domain d WHERE d.active = true AND (d.nextCheckAt IS NULL OR d.nextCheckAt <= :dateTime)")
     List<Domain> findDomainsReadyForCheck(@Param("dateTime") LocalDateTime dateTime);
     
+    /**
+     * Keyset-paged variant of {@link #findDomainsReadyForCheck}. Domains
+     * checked while paging drop out of the filter, which cannot shift later
+     * pages since those start from an id rather than an offset.
+     */
+    @Query("SELECT d FROM Domain d WHERE d.active = true AND (d.nextCheckAt IS NULL OR d.nextCheckAt <= :dateTime) "
+            + "AND d.id > :afterId ORDER BY d.id ASC")
+    List<Domain> findDomainsReadyForCheckAfter(@Param("dateTime") LocalDateTime dateTime,
+                                               @Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Names of active domains falling due after {@code from} and up to
+     * {@code to}, soonest first.
+     */
+    @Query("SELECT d.name FROM Domain d WHERE d.active = true AND d.nextCheckAt > :from AND d.nextCheckAt <= :to "
+            + "ORDER BY d.nextCheckAt ASC")
+    List<String> findNamesDueBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                     Pageable pageable);
+    
+    @Query("SELECT COUNT(d) FROM Domain d WHERE d.active = true AND (d.nextCheckAt IS NULL OR d.nextCheckAt <= :dateTime)")
+    long countDomainsReadyForCheck(@Param("dateTime") LocalDateTime dateTime);
+    
     @Query("SELECT d FROM Domain d WHERE d.active = true AND d.name LIKE %:searchTerm%")
     Page<Domain> findActiveDomainsByNameContaining(@Param("searchTerm") String searchTerm, Pageable pageable);
     
@@ -37,4 +69,59 @@ public interface DomainRepository extends JpaRepository<Domain, Long> {
     
     @Query("SELECT d FROM Domain d WHERE d.active = true ORDER BY d.nextCheckAt ASC")
     List<Domain> findActiveDomainsOrderByNextCheck();
+    
+    /**
+     * Records a completed check for {@code ids} in one statement. Only the
+     * check times are written, so concurrent edits to other columns survive.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Domain d SET d.lastCheckAt = :checkedAt, d.nextCheckAt = :nextCheckAt WHERE d.id IN :ids")
+    int updateCheckTimes(@Param("ids") Collection<Long> ids, @Param("checkedAt") LocalDateTime checkedAt,
+                         @Param("nextCheckAt") LocalDateTime nextCheckAt);
+    
+    /**
+     * Due domains no node holds a live lease on, longest overdue first.
+     */
+    @Query("SELECT d.id FROM Domain d WHERE d.active = true AND (d.nextCheckAt IS NULL OR d.nextCheckAt <= :now) "
+            + "AND (d.leaseOwner IS NULL OR d.leaseExpiresAt < :now) ORDER BY d.nextCheckAt ASC NULLS FIRST")
+    List<Long> findClaimableIds(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    /**
+     * Leases those of {@code ids} that are still due and unleased, or whose
+     * lease has expired, to {@code owner}. The conditions are re-checked on
+     * the locked rows, so of several nodes claiming one domain only one wins.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Domain d SET d.leaseOwner = :owner, d.leaseExpiresAt = :expiresAt WHERE d.id IN :ids "
+            + "AND d.active = true AND (d.nextCheckAt IS NULL OR d.nextCheckAt <= :now) "
+            + "AND (d.leaseOwner IS NULL OR d.leaseExpiresAt < :now)")
+    int claimLeases(@Param("ids") Collection<Long> ids, @Param("owner") String owner,
+                    @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+    
+    List<Domain> findByLeaseOwnerAndIdIn(String leaseOwner, Collection<Long> ids);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE Domain d SET d.leaseExpiresAt = :expiresAt WHERE d.id IN :ids AND d.leaseOwner = :owner")
+    int extendLeases(@Param("ids") Collection<Long> ids, @Param("owner") String owner,
+                     @Param("expiresAt") LocalDateTime expiresAt);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE Domain d SET d.leaseOwner = NULL, d.leaseExpiresAt = NULL WHERE d.id IN :ids AND d.leaseOwner = :owner")
+    int releaseLeases(@Param("ids") Collection<Long> ids, @Param("owner") String owner);
+    
+    /**
+     * Releases leases of domains whose result was not stored, putting their
+     * next check off to {@code nextCheckAt} so they are not claimed again
+     * straight away.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Domain d SET d.leaseOwner = NULL, d.leaseExpiresAt = NULL, d.nextCheckAt = :nextCheckAt "
+            + "WHERE d.id IN :ids AND d.leaseOwner = :owner")
+    int releaseLeasesUntil(@Param("ids") Collection<Long> ids, @Param("owner") String owner,
+                           @Param("nextCheckAt") LocalDateTime nextCheckAt);
 } 
\ No newline at end of file
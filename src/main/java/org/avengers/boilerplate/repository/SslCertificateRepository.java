@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -46,6 +47,15 @@ public interface SslCertificateRepository extends JpaRepository<SslCertificate,
     @Query("SELECT sc FROM SslCertificate sc WHERE sc.domain.id = :domainId AND sc.status = 'ERROR' ORDER BY sc.checkDate DESC")
     List<SslCertificate> findErrorsByDomainId(@Param("domainId") Long domainId);
     
-    @Query("SELECT sc FROM SslCertificate sc WHERE sc.checkDate >= :since ORDER BY sc.checkDate DESC")
+    @Query("SELECT sc FROM SslCertificate sc WHERE COALESCE(sc.lastSeenAt, sc.checkDate) >= :since ORDER BY sc.checkDate DESC")
     Page<SslCertificate> findRecentChecks(@Param("since") LocalDateTime since, Pageable pageable);
+
+    
+    /**
+     * Most recent record of each of {@code domainIds}. Domains with two
+     * records at the same check date return both.
+     */
+    @Query("SELECT sc FROM SslCertificate sc WHERE sc.domain.id IN :domainIds AND sc.checkDate = " +
+           "(SELECT MAX(latest.checkDate) FROM SslCertificate latest WHERE latest.domain = sc.domain)")
+    List<SslCertificate> findLatestByDomainIds(@Param("domainIds") Collection<Long> domainIds);
 } 
\ No newline at end of file
@@ -0,0 +1,284 @@
+package org.avengers.boilerplate.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+import org.avengers.boilerplate.service.probe.ProbeFailure;
+import org.avengers.boilerplate.service.probe.ProbeResult;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One JSON line per check, appended to its own file instead of the
+ * application log. Checks only hand their record to a bounded buffer and
+ * never wait: when the buffer is full the record is dropped and counted.
+ * A single writer thread takes records off in batches of up to
+ * {@code batchSize}, or whatever arrived within {@code flushInterval}, and
+ * writes each batch with one write and flush. The file is rolled over to
+ * {@code <path>.1} once it passes {@code maxFileBytes}.
+ * <p>
+ * Anomalies are always kept: any status other than VALID, retried checks
+ * and checks slower than {@code slowThreshold}. Other checks are kept at
+ * {@code successSampleRate}, which each line carries as {@code "sample"} so
+ * counts can be scaled back up.
+ */
+@Slf4j
+public class CheckEventLog implements AutoCloseable {
+    
+    private record Entry(long timestampMillis, Long domainId, String host, Integer port, String status,
+                         String failure, int attempts, long elapsedMs, Long dnsMs, Long connectMs,
+                         Long handshakeMs, Integer daysUntilExpiry, String error, double sample) {
+    }
+    
+    // Wakes the writer on close; interrupting it instead would close the file channel mid-write
+    private static final Entry CLOSE = new Entry(0, null, null, null, null, null, 0, 0, null, null, null, null,
+            null, 0);
+    
+    private final boolean enabled;
+    private final Path path;
+    private final double successSampleRate;
+    private final long slowThresholdMs;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long maxFileBytes;
+    private final BlockingQueue<Entry> buffer;
+    private final Thread writerThread;
+    private final Counter written;
+    private final Counter dropped;
+    
+    private volatile boolean closed;
+    private BufferedWriter writer;
+    private long fileBytes;
+    
+    public CheckEventLog(boolean enabled, Path path, double successSampleRate, Duration slowThreshold,
+                         int capacity, int batchSize, Duration flushInterval, long maxFileBytes,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.path = path;
+        this.successSampleRate = Math.max(0, Math.min(1, successSampleRate));
+        this.slowThresholdMs = slowThreshold.toMillis();
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = Math.max(1, flushInterval.toMillis());
+        this.maxFileBytes = maxFileBytes;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(this.batchSize, capacity));
+        
+        this.written = Counter.builder("ssl.monitor.check-log.written")
+                .description("Check records written to the check event log")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("ssl.monitor.check-log.dropped")
+                .description("Check records lost to a full buffer or a failed write")
+                .register(meterRegistry);
+        Gauge.builder("ssl.monitor.check-log.buffered", buffer, BlockingQueue::size)
+                .description("Check records waiting to be written")
+                .register(meterRegistry);
+        
+        this.writerThread = new Thread(this::run, "SSL-Check-Log");
+        writerThread.setDaemon(true);
+        if (enabled) {
+            writerThread.start();
+        }
+    }
+    
+    public static CheckEventLog disabled() {
+        return new CheckEventLog(false, null, 0, Duration.ZERO, 1, 1, Duration.ofSeconds(1), 0,
+                new SimpleMeterRegistry());
+    }
+    
+    /**
+     * Queues the record of a finished check, unless it is a sampled-out
+     * success. Never blocks.
+     */
+    public void record(Domain domain, ProbeResult result, SslCertificate certificate) {
+        if (!enabled || closed) {
+            return;
+        }
+        boolean anomaly = certificate.getStatus() != SslCertificate.CertificateStatus.VALID
+                || result.getAttempts() > 1
+                || result.getElapsedMs() >= slowThresholdMs;
+        double sample = anomaly ? 1 : successSampleRate;
+        if (sample < 1 && ThreadLocalRandom.current().nextDouble() >= sample) {
+            return;
+        }
+        ProbeFailure failure = result.isSuccess() ? null : result.getFailure();
+        Entry entry = new Entry(System.currentTimeMillis(), domain.getId(), domain.getName(), domain.getPort(),
+                certificate.getStatus().name(), failure != null ? failure.name().toLowerCase(Locale.ROOT) : null,
+                result.getAttempts(), result.getElapsedMs(), result.getDnsMs(), result.getConnectMs(),
+                result.getHandshakeMs(), certificate.getDaysUntilExpiry(),
+                anomaly ? certificate.getErrorMessage() : null, sample);
+        if (!buffer.offer(entry)) {
+            dropped.increment();
+        }
+    }
+    
+    public int getBufferedCount() {
+        return buffer.size();
+    }
+    
+    /**
+     * Writes what is still buffered and closes the file.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (!enabled) {
+            return;
+        }
+        // A full buffer keeps the writer busy, so it sees the flag without the marker
+        buffer.offer(CLOSE);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void run() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        StringBuilder lines = new StringBuilder(batchSize * 256);
+        try {
+            while (!closed) {
+                Entry first;
+                try {
+                    first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                if (first != null) {
+                    batch.add(first);
+                    buffer.drainTo(batch, batchSize - 1);
+                    write(batch, lines);
+                }
+            }
+            while (buffer.drainTo(batch, batchSize) > 0) {
+                write(batch, lines);
+            }
+        } finally {
+            closeWriter();
+        }
+    }
+    
+    private void write(List<Entry> batch, StringBuilder lines) {
+        batch.removeIf(entry -> entry == CLOSE);
+        if (batch.isEmpty()) {
+            return;
+        }
+        lines.setLength(0);
+        for (Entry entry : batch) {
+            append(lines, entry);
+        }
+        try {
+            if (writer == null) {
+                open();
+            }
+            writer.append(lines);
+            writer.flush();
+            // Entries are ASCII apart from host names and error messages, close enough for rolling
+            fileBytes += lines.length();
+            written.increment(batch.size());
+            if (maxFileBytes > 0 && fileBytes >= maxFileBytes) {
+                roll();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write {} check records to {}: {}", batch.size(), path, e.getMessage());
+            dropped.increment(batch.size());
+            closeWriter();
+        }
+        batch.clear();
+    }
+    
+    private void open() throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileBytes = Files.size(path);
+    }
+    
+    private void roll() throws IOException {
+        closeWriter();
+        Files.move(path, path.resolveSibling(path.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.debug("Failed to close check event log {}: {}", path, e.getMessage());
+            }
+            writer = null;
+        }
+    }
+    
+    private static void append(StringBuilder line, Entry entry) {
+        line.append("{\"ts\":\"").append(Instant.ofEpochMilli(entry.timestampMillis())).append('"');
+        field(line, "domainId", entry.domainId());
+        string(line, "host", entry.host());
+        field(line, "port", entry.port());
+        string(line, "status", entry.status());
+        string(line, "failure", entry.failure());
+        field(line, "attempts", entry.attempts());
+        field(line, "ms", entry.elapsedMs());
+        field(line, "dnsMs", entry.dnsMs());
+        field(line, "connectMs", entry.connectMs());
+        field(line, "handshakeMs", entry.handshakeMs());
+        field(line, "days", entry.daysUntilExpiry());
+        string(line, "error", entry.error());
+        line.append(",\"sample\":").append(entry.sample()).append("}\n");
+    }
+    
+    private static void field(StringBuilder line, String name, Number value) {
+        if (value != null) {
+            line.append(",\"").append(name).append("\":").append(value);
+        }
+    }
+    
+    private static void string(StringBuilder line, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        line.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+}
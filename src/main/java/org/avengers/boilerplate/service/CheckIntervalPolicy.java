@@ -0,0 +1,82 @@
+package org.avengers.boilerplate.service;
+
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+
+import java.util.Objects;
+
+/**
+ * Decides how many minutes pass before a domain is checked again. The fixed
+ * policy uses the domain's own {@code checkIntervalMinutes}. The adaptive
+ * policy works from the check result, within {@code minMinutes} and
+ * {@code maxMinutes}:
+ * <ul>
+ *     <li>a healthy certificate is checked {@code checksBeforeExpiry} times
+ *     over its remaining lifetime, so one with months left is seldom probed
+ *     and one about to expire is probed often;</li>
+ *     <li>a failing, expired or revoked one is retried after {@code minMinutes}, the
+ *     wait doubling each time the same outcome repeats, up to the domain's
+ *     own interval;</li>
+ *     <li>after the certificate or status changed, the next check follows
+ *     within {@code afterChangeMinutes} to confirm it and catch flapping.</li>
+ * </ul>
+ * Repeats are counted by on-change persistence; with every-check
+ * persistence each failure is treated as the first.
+ */
+public class CheckIntervalPolicy {
+    
+    private static final long MINUTES_PER_DAY = 1440;
+    
+    private final boolean adaptive;
+    private final int minMinutes;
+    private final int maxMinutes;
+    private final int checksBeforeExpiry;
+    private final int afterChangeMinutes;
+    
+    public CheckIntervalPolicy(boolean adaptive, int minMinutes, int maxMinutes, int checksBeforeExpiry,
+                               int afterChangeMinutes) {
+        this.adaptive = adaptive;
+        this.minMinutes = Math.max(1, minMinutes);
+        this.maxMinutes = Math.max(this.minMinutes, maxMinutes);
+        this.checksBeforeExpiry = Math.max(1, checksBeforeExpiry);
+        this.afterChangeMinutes = Math.max(this.minMinutes, afterChangeMinutes);
+    }
+    
+    public static CheckIntervalPolicy fixed() {
+        return new CheckIntervalPolicy(false, 1, 1, 1, 1);
+    }
+    
+    /**
+     * Minutes until {@code domain} is next due after {@code result}; null
+     * leaves the domain due. {@code changed} is set when the result differs
+     * from the domain's previous record.
+     */
+    public Integer intervalMinutes(Domain domain, SslCertificate result, boolean changed) {
+        Integer configured = domain.getCheckIntervalMinutes();
+        if (!adaptive) {
+            return configured;
+        }
+        long base = configured != null && configured > 0 ? clamp(configured) : maxMinutes;
+        
+        long interval;
+        SslCertificate.CertificateStatus status = result.getStatus();
+        if (status == SslCertificate.CertificateStatus.ERROR || status == SslCertificate.CertificateStatus.EXPIRED
+                || status == SslCertificate.CertificateStatus.REVOKED) {
+            int repeats = Math.max(1, Objects.requireNonNullElse(result.getCheckCount(), 1));
+            interval = Math.min(base, (long) minMinutes << Math.min(repeats - 1, 20));
+        } else if (result.getDaysUntilExpiry() != null) {
+            interval = result.getDaysUntilExpiry() * MINUTES_PER_DAY / checksBeforeExpiry;
+        } else {
+            interval = base;
+        }
+        
+        if (changed) {
+            interval = Math.min(interval, afterChangeMinutes);
+        }
+        return (int) clamp(interval);
+    }
+    
+    private long clamp(long minutes) {
+        return Math.max(minMinutes, Math.min(maxMinutes, minutes));
+    }
+}
@@ -0,0 +1,164 @@
+package org.avengers.boilerplate.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+import org.avengers.boilerplate.service.probe.ProbeFailure;
+import org.avengers.boilerplate.service.probe.ProbeResult;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Meters for the check pipeline: probe attempts and their phases, check
+ * outcomes, what is in flight, sweeps and the backlog of overdue domains.
+ * Tags only take values from fixed sets (phase, probe failure kind,
+ * certificate status), never a domain or address, so the number of series
+ * does not grow with the domain list.
+ */
+@Component
+public class CheckMetrics {
+    
+    private final MeterRegistry meterRegistry;
+    private final Timer dnsPhase;
+    private final Timer connectPhase;
+    private final Timer handshakePhase;
+    private final AtomicInteger probesInFlight = new AtomicInteger();
+    private final AtomicInteger checksInFlight = new AtomicInteger();
+    private final AtomicLong overdueDomains = new AtomicLong();
+    private volatile SweepReport currentSweep;
+    
+    public CheckMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.dnsPhase = phaseTimer(meterRegistry, "dns");
+        this.connectPhase = phaseTimer(meterRegistry, "connect");
+        this.handshakePhase = phaseTimer(meterRegistry, "handshake");
+        Gauge.builder("ssl.monitor.probe.in-flight", probesInFlight, AtomicInteger::get)
+                .description("Probe attempts started and not yet finished")
+                .register(meterRegistry);
+        Gauge.builder("ssl.monitor.checks.in-flight", checksInFlight, AtomicInteger::get)
+                .description("Checks started and not yet stored, including retries and DNS")
+                .register(meterRegistry);
+        Gauge.builder("ssl.monitor.domains.overdue", overdueDomains, AtomicLong::get)
+                .description("Active domains whose next check time has passed")
+                .register(meterRegistry);
+        Gauge.builder("ssl.monitor.sweep.pending", this, metrics -> metrics.pendingInSweep())
+                .description("Checks of the running sweep still outstanding")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Counts the attempt {@code probe} starts as in flight until it finishes
+     * and times it, overall and phase by phase.
+     */
+    public CompletableFuture<ProbeResult> probe(Supplier<CompletableFuture<ProbeResult>> probe) {
+        return inFlight(probesInFlight, probe).whenComplete((result, error) -> {
+            if (result != null) {
+                recordAttempt(result);
+            }
+        });
+    }
+    
+    /**
+     * Counts the check {@code check} starts as in flight until it is stored or fails.
+     */
+    public CompletableFuture<SslCertificate> check(Supplier<CompletableFuture<SslCertificate>> check) {
+        return inFlight(checksInFlight, check);
+    }
+    
+    /**
+     * Counts a finished check by the status it was given and, for errors,
+     * by why the probe failed.
+     */
+    public void recordOutcome(SslCertificate.CertificateStatus status, ProbeResult result) {
+        String error = "none";
+        if (status == SslCertificate.CertificateStatus.ERROR) {
+            // A successful probe only ends in ERROR when building the record threw
+            error = result.isSuccess() ? "unexpected" : kind(result.getFailure());
+        }
+        meterRegistry.counter("ssl.monitor.checks", "status", status.name().toLowerCase(Locale.ROOT),
+                "error", error).increment();
+    }
+    
+    public void sweepStarted(SweepReport report) {
+        currentSweep = report;
+    }
+    
+    /**
+     * Records a sweep check that timed out or could not be stored.
+     */
+    public void sweepCheckFailed(boolean timedOut) {
+        meterRegistry.counter("ssl.monitor.sweep.failed", "cause", timedOut ? "timeout" : "error").increment();
+    }
+    
+    public void sweepFinished(SweepReport report) {
+        Timer.builder("ssl.monitor.sweep.duration")
+                .description("Time from the start of a sweep until its last check finished or was abandoned")
+                .tag("outcome", report.getAbandoned() > 0 ? "abandoned" : "complete")
+                .register(meterRegistry)
+                .record(report.getElapsed());
+        if (report.getAbandoned() > 0) {
+            meterRegistry.counter("ssl.monitor.sweep.abandoned").increment(report.getAbandoned());
+        }
+    }
+    
+    public void setOverdueDomains(long overdue) {
+        overdueDomains.set(overdue);
+    }
+    
+    private void recordAttempt(ProbeResult result) {
+        recordPhase(dnsPhase, result.getDnsMs());
+        recordPhase(connectPhase, result.getConnectMs());
+        recordPhase(handshakePhase, result.getHandshakeMs());
+        Timer.builder("ssl.monitor.probe.attempts")
+                .description("Probe attempts from start to chain captured or failure")
+                .tag("result", result.isSuccess() ? "success" : kind(result.getFailure()))
+                .publishPercentileHistogram()
+                .maximumExpectedValue(Duration.ofMinutes(1))
+                .register(meterRegistry)
+                .record(result.getElapsedMs(), TimeUnit.MILLISECONDS);
+    }
+    
+    private long pendingInSweep() {
+        SweepReport report = currentSweep;
+        return report != null && !report.isFinished() ? report.getPending() : 0;
+    }
+    
+    private static <T> CompletableFuture<T> inFlight(AtomicInteger counter, Supplier<CompletableFuture<T>> start) {
+        counter.incrementAndGet();
+        CompletableFuture<T> started;
+        try {
+            started = start.get();
+        } catch (RuntimeException | Error e) {
+            counter.decrementAndGet();
+            throw e;
+        }
+        return started.whenComplete((value, error) -> counter.decrementAndGet());
+    }
+    
+    private static void recordPhase(Timer timer, Long millis) {
+        if (millis != null) {
+            timer.record(millis, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private static String kind(ProbeFailure failure) {
+        return (failure != null ? failure : ProbeFailure.OTHER).name().toLowerCase(Locale.ROOT);
+    }
+    
+    private static Timer phaseTimer(MeterRegistry meterRegistry, String phase) {
+        return Timer.builder("ssl.monitor.probe.phase")
+                .description("Time spent in each phase of a probe attempt that reached it")
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(Duration.ofMinutes(1))
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,339 @@
+package org.avengers.boilerplate.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import com.google.common.collect.Lists;
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+import org.avengers.boilerplate.repository.DomainRepository;
+import org.avengers.boilerplate.repository.SslCertificateRepository;
+import org.avengers.boilerplate.service.jfr.CheckTimesUpdateEvent;
+import org.avengers.boilerplate.service.jfr.ResultBatchEvent;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Stores check results in batches. Results are buffered and written in one
+ * transaction per {@code batchSize} rows, or whatever has accumulated every
+ * {@code flushInterval}, so Hibernate can send them as JDBC batches instead
+ * of one round trip per check. A full buffer blocks the submitting thread
+ * until the next flush.
+ * <p>
+ * With {@code onChange} a result matching its domain's current record (same
+ * certificate, status and error) is folded into that record: last-seen time,
+ * check count and latency aggregates are updated and no row is inserted.
+ * <p>
+ * Each batch also moves its domains' last and next check times forward, in
+ * the same transaction, with one UPDATE per distinct check interval. The
+ * interval comes from the {@link CheckIntervalPolicy}, and the new times are
+ * also set on the result's {@link Domain} so in-memory schedulers see them.
+ * <p>
+ * Failed checks are stored like any other result, as ERROR rows without
+ * certificate fields. A row the database still rejects fails its whole
+ * transaction, so a batch that fails on a constraint is split in halves and
+ * each half written again, down to the single result at fault; the rest of
+ * the batch is still stored.
+ */
+@Slf4j
+public class CheckResultWriter implements AutoCloseable {
+    
+    private record Pending(SslCertificate certificate, CompletableFuture<SslCertificate> stored) {
+    }
+    
+    // Keeps IN lists well below driver bind parameter limits
+    private static final int MAX_IDS_PER_UPDATE = 1000;
+    
+    private final SslCertificateRepository repository;
+    private final DomainRepository domainRepository;
+    private final TransactionOperations transactions;
+    private final CheckIntervalPolicy intervalPolicy;
+    private final boolean onChange;
+    private final int batchSize;
+    private final BlockingQueue<Pending> buffer;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService scheduler;
+    
+    private final Counter batches;
+    private final Counter inserted;
+    private final Counter repeated;
+    
+    public CheckResultWriter(SslCertificateRepository repository, DomainRepository domainRepository,
+                             TransactionOperations transactions, CheckIntervalPolicy intervalPolicy,
+                             boolean onChange, int batchSize, Duration flushInterval, int capacity,
+                             MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.domainRepository = domainRepository;
+        this.transactions = transactions;
+        this.intervalPolicy = intervalPolicy;
+        this.onChange = onChange;
+        this.batchSize = Math.max(1, batchSize);
+        this.buffer = new ArrayBlockingQueue<>(Math.max(this.batchSize, capacity));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SSL-Result-Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = Math.max(1, flushInterval.toMillis());
+        scheduler.scheduleWithFixedDelay(this::flush, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        
+        this.batches = Counter.builder("ssl.monitor.results.batches")
+                .description("Transactions used to store check results")
+                .register(meterRegistry);
+        this.inserted = rowCounter(meterRegistry, "inserted");
+        this.repeated = rowCounter(meterRegistry, "repeated");
+        Gauge.builder("ssl.monitor.results.buffered", buffer, BlockingQueue::size)
+                .description("Check results waiting to be stored")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Buffers {@code certificate}; the future completes with the stored
+     * record once its batch has been written.
+     */
+    public CompletableFuture<SslCertificate> submit(SslCertificate certificate) {
+        Pending pending = new Pending(certificate, new CompletableFuture<>());
+        try {
+            buffer.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.stored().completeExceptionally(e);
+            return pending.stored();
+        }
+        
+        // A full batch is written by whichever submitter completed it
+        if (buffer.size() >= batchSize && flushLock.tryLock()) {
+            try {
+                while (buffer.size() >= batchSize) {
+                    writeBatch(drain());
+                }
+            } finally {
+                flushLock.unlock();
+            }
+        }
+        return pending.stored();
+    }
+    
+    /**
+     * Stores {@code certificate} right away, for callers waiting on the result.
+     */
+    public SslCertificate write(SslCertificate certificate) {
+        Pending pending = new Pending(certificate, new CompletableFuture<>());
+        flushLock.lock();
+        try {
+            writeBatch(List.of(pending));
+        } finally {
+            flushLock.unlock();
+        }
+        return pending.stored().join();
+    }
+    
+    public void flush() {
+        flushLock.lock();
+        try {
+            while (!buffer.isEmpty()) {
+                writeBatch(drain());
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    public int getBufferedCount() {
+        return buffer.size();
+    }
+    
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        flush();
+    }
+    
+    private List<Pending> drain() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        buffer.drainTo(batch, batchSize);
+        return batch;
+    }
+    
+    private void writeBatch(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        ResultBatchEvent event = new ResultBatchEvent();
+        event.begin();
+        event.results = batch.size();
+        List<Long> ids = batch.stream().map(pending -> pending.certificate().getId()).toList();
+        try {
+            List<SslCertificate> stored = transactions.execute(status -> store(batch, event));
+            event.outcome = "stored";
+            event.commit();
+            batches.increment();
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).stored().complete(stored.get(i));
+            }
+        } catch (RuntimeException e) {
+            event.outcome = "failed";
+            event.commit();
+            if (e instanceof DataIntegrityViolationException && batch.size() > 1) {
+                log.warn("Failed to store {} check results, retrying in halves: {}", batch.size(), e.getMessage());
+                // Ids handed out by the rolled back inserts would make the retry an update
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).certificate().setId(ids.get(i));
+                }
+                int middle = batch.size() / 2;
+                writeBatch(batch.subList(0, middle));
+                writeBatch(batch.subList(middle, batch.size()));
+                return;
+            }
+            log.error("Failed to store {} check results: {}", batch.size(), e.getMessage(), e);
+            batch.forEach(pending -> pending.stored().completeExceptionally(e));
+        }
+    }
+    
+    private List<SslCertificate> store(List<Pending> batch, ResultBatchEvent event) {
+        Map<Long, SslCertificate> current = onChange ? currentRecords(batch) : new HashMap<>();
+        List<SslCertificate> stored = new ArrayList<>(batch.size());
+        boolean[] changed = new boolean[batch.size()];
+        List<Integer> insertPositions = new ArrayList<>();
+        List<SslCertificate> inserts = new ArrayList<>();
+        
+        for (Pending pending : batch) {
+            SslCertificate latest = pending.certificate();
+            Long domainId = latest.getDomain().getId();
+            SslCertificate seen = domainId != null ? current.get(domainId) : null;
+            if (seen != null && isSameOutcome(seen, latest)) {
+                // Managed in this transaction, so the changes are flushed as a batched update
+                foldRepeat(seen, latest);
+                stored.add(seen);
+                repeated.increment();
+                event.repeated++;
+                continue;
+            }
+            changed[stored.size()] = seen != null;
+            insertPositions.add(stored.size());
+            inserts.add(latest);
+            stored.add(latest);
+            if (latest.getCertificateChain() != null) {
+                event.insertedChainBytes += latest.getCertificateChain().length();
+            }
+            if (onChange && domainId != null) {
+                current.put(domainId, latest);
+            }
+        }
+        
+        if (!inserts.isEmpty()) {
+            List<SslCertificate> saved = repository.saveAll(inserts);
+            for (int i = 0; i < saved.size(); i++) {
+                stored.set(insertPositions.get(i), saved.get(i));
+            }
+            inserted.increment(saved.size());
+            event.inserted = saved.size();
+        }
+        updateCheckTimes(batch, stored, changed);
+        return stored;
+    }
+    
+    private void updateCheckTimes(List<Pending> batch, List<SslCertificate> stored, boolean[] changed) {
+        // A domain checked twice in one batch takes the interval of its latest result. The domain
+        // is the caller's copy; a folded record's own domain is managed here and must stay unchanged
+        Map<Long, Integer> intervalById = new LinkedHashMap<>();
+        Map<Long, Domain> domainById = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Domain domain = batch.get(i).certificate().getDomain();
+            if (domain.getId() != null) {
+                intervalById.put(domain.getId(), intervalPolicy.intervalMinutes(domain, stored.get(i), changed[i]));
+                domainById.put(domain.getId(), domain);
+            }
+        }
+        
+        // A null interval leaves the domain due
+        Map<Integer, Set<Long>> idsByInterval = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+        intervalById.forEach((id, interval) ->
+                idsByInterval.computeIfAbsent(interval, key -> new LinkedHashSet<>()).add(id));
+        
+        LocalDateTime checkedAt = LocalDateTime.now();
+        idsByInterval.forEach((interval, ids) -> {
+            LocalDateTime nextCheckAt = interval != null ? checkedAt.plusMinutes(interval) : null;
+            for (Long id : ids) {
+                Domain domain = domainById.get(id);
+                domain.setLastCheckAt(checkedAt);
+                domain.setNextCheckAt(nextCheckAt);
+            }
+            for (List<Long> chunk : Lists.partition(new ArrayList<>(ids), MAX_IDS_PER_UPDATE)) {
+                CheckTimesUpdateEvent event = new CheckTimesUpdateEvent();
+                event.begin();
+                event.updated = domainRepository.updateCheckTimes(chunk, checkedAt, nextCheckAt);
+                event.domains = chunk.size();
+                event.intervalMinutes = interval != null ? interval : -1;
+                event.commit();
+            }
+        });
+    }
+    
+    // One query for the batch instead of a lookup per result
+    private Map<Long, SslCertificate> currentRecords(List<Pending> batch) {
+        Set<Long> domainIds = batch.stream()
+                .map(pending -> pending.certificate().getDomain().getId())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, SslCertificate> current = new HashMap<>();
+        if (!domainIds.isEmpty()) {
+            for (SslCertificate record : repository.findLatestByDomainIds(domainIds)) {
+                current.merge(record.getDomain().getId(), record,
+                        (first, second) -> first.getId() >= second.getId() ? first : second);
+            }
+        }
+        return current;
+    }
+    
+    // The same leaf can come with a different intermediate, or be revoked later
+    private static boolean isSameOutcome(SslCertificate current, SslCertificate latest) {
+        return current.getStatus() == latest.getStatus()
+                && Objects.equals(current.getFingerprintSha256(), latest.getFingerprintSha256())
+                && Objects.equals(current.getErrorMessage(), latest.getErrorMessage())
+                && Objects.equals(current.getRevocationStatus(), latest.getRevocationStatus())
+                && Objects.equals(current.getRevokedAt(), latest.getRevokedAt())
+                && Objects.equals(current.getCertificateChain(), latest.getCertificateChain());
+    }
+    
+    private static void foldRepeat(SslCertificate current, SslCertificate latest) {
+        long elapsedMs = Objects.requireNonNullElse(latest.getResponseTimeMs(), 0L);
+        long firstMs = Objects.requireNonNullElse(current.getResponseTimeMs(), 0L);
+        long previousTotal = Objects.requireNonNullElse(current.getResponseTimeTotalMs(), firstMs);
+        long previousMax = Objects.requireNonNullElse(current.getResponseTimeMaxMs(), firstMs);
+        current.setLastSeenAt(latest.getLastSeenAt());
+        current.setDaysUntilExpiry(latest.getDaysUntilExpiry());
+        current.setCheckCount(Objects.requireNonNullElse(current.getCheckCount(), 1) + 1);
+        current.setResponseTimeTotalMs(previousTotal + elapsedMs);
+        current.setResponseTimeMaxMs(Math.max(previousMax, elapsedMs));
+    }
+    
+    private static Counter rowCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("ssl.monitor.results.rows")
+                .description("Check results stored, by whether they inserted a row")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,10 @@
+package org.avengers.boilerplate.service;
+
+import org.avengers.boilerplate.domain.entity.Domain;
+
+/**
+ * Published after a domain is created, edited or deactivated, carrying its
+ * saved state.
+ */
+public record DomainChangedEvent(Domain domain) {
+}
@@ -0,0 +1,53 @@
+package org.avengers.boilerplate.service;
+
+import org.avengers.boilerplate.domain.entity.Domain;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.LongFunction;
+
+/**
+ * Keyset-paged iteration over domains in id order. Each page is fetched with
+ * the last id of the previous one, so a page costs the same however deep the
+ * sweep is, and domains added or removed mid-sweep do not shift later pages.
+ */
+class DomainPages implements Iterator<List<Domain>> {
+    
+    private final LongFunction<List<Domain>> pageAfter;
+    private long lastId;
+    private List<Domain> next;
+    private boolean exhausted;
+    
+    /**
+     * @param pageAfter returns the next page of domains with an id greater
+     *                  than its argument, ordered by id; empty when done
+     */
+    DomainPages(LongFunction<List<Domain>> pageAfter) {
+        this.pageAfter = pageAfter;
+    }
+    
+    @Override
+    public boolean hasNext() {
+        if (next == null && !exhausted) {
+            List<Domain> page = pageAfter.apply(lastId);
+            if (page.isEmpty()) {
+                exhausted = true;
+            } else {
+                lastId = page.get(page.size() - 1).getId();
+                next = page;
+            }
+        }
+        return next != null;
+    }
+    
+    @Override
+    public List<Domain> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<Domain> page = next;
+        next = null;
+        return page;
+    }
+}
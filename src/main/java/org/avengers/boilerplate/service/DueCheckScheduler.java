@@ -0,0 +1,243 @@
+package org.avengers.boilerplate.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.repository.DomainRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires each active domain's check when it falls due instead of waiting for
+ * the next cron sweep. Every domain holds one entry in a delay queue keyed by
+ * its next check time; when the entry expires the domain is read back and its
+ * check dispatched, and once it completes the domain is queued again at the
+ * next check time set when its result was stored. Entries hold only the id
+ * and the due time, so a large fleet costs no more than the queue itself.
+ * Domain changes published as {@link DomainChangedEvent} replace or drop the
+ * entry, so edited intervals and deactivations take effect right away.
+ * <p>
+ * At most {@code maxPending} checks are outstanding; beyond that, due
+ * entries wait on the timer thread until earlier checks finish. Domains
+ * already due at startup are spread over {@code backlogWindow} rather than
+ * all fired at once.
+ */
+@Slf4j
+public class DueCheckScheduler implements AutoCloseable {
+    
+    /**
+     * A queued domain, due when {@code future} fires; replaced rather than
+     * updated when the domain changes.
+     */
+    private final class Entry implements Runnable {
+        
+        private final long domainId;
+        private volatile ScheduledFuture<?> future;
+        
+        private Entry(long domainId) {
+            this.domainId = domainId;
+        }
+        
+        @Override
+        public void run() {
+            fire(this);
+        }
+    }
+    
+    // Same as a new domain's default interval
+    private static final long DEFAULT_INTERVAL_MINUTES = 1440;
+    
+    private final DomainRepository domainRepository;
+    private final SslCertificateChecker checker;
+    private final int pageSize;
+    private final long backlogWindowMs;
+    private final Semaphore pending;
+    private final ScheduledThreadPoolExecutor timer;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Counter fired;
+    
+    public DueCheckScheduler(DomainRepository domainRepository, SslCertificateChecker checker, int pageSize,
+                             int maxPending, Duration backlogWindow, MeterRegistry meterRegistry) {
+        this.domainRepository = domainRepository;
+        this.checker = checker;
+        this.pageSize = Math.max(1, pageSize);
+        this.backlogWindowMs = Math.max(0, backlogWindow.toMillis());
+        this.pending = new Semaphore(Math.max(1, maxPending));
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "SSL-Due-Scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Replaced entries leave the queue at once instead of when they would have expired
+        timer.setRemoveOnCancelPolicy(true);
+        
+        this.fired = Counter.builder("ssl.monitor.schedule.fired")
+                .description("Checks dispatched by the due-time scheduler")
+                .register(meterRegistry);
+        Gauge.builder("ssl.monitor.schedule.queued", entries, Map::size)
+                .description("Domains waiting in the due-time scheduler")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Queues every active domain at its stored next check time, reading
+     * domains a page at a time. Overdue and never-checked domains fire at
+     * once, or in id order across the backlog window when one is set: the
+     * n-th of them {@code n / backlog} of the way through it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        DomainPages pages = new DomainPages(afterId ->
+                domainRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, pageSize)));
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> backlog = new ArrayList<>();
+        int loaded = 0;
+        while (pages.hasNext()) {
+            List<Domain> page = pages.next();
+            for (Domain domain : page) {
+                if (backlogWindowMs > 0 && domain.getId() != null && Boolean.TRUE.equals(domain.getActive())
+                        && (domain.getNextCheckAt() == null || !domain.getNextCheckAt().isAfter(now))) {
+                    backlog.add(domain.getId());
+                } else {
+                    schedule(domain);
+                }
+            }
+            loaded += page.size();
+        }
+        synchronized (this) {
+            for (int i = 0; i < backlog.size(); i++) {
+                queue(backlog.get(i), backlogWindowMs * i / backlog.size());
+            }
+        }
+        log.info("Due-time scheduler started with {} domains, {} of them due", loaded, backlog.size());
+    }
+    
+    @EventListener
+    public void onDomainChanged(DomainChangedEvent event) {
+        schedule(event.domain());
+    }
+    
+    /**
+     * Queues {@code domain} at its next check time, replacing any entry it
+     * already has; an inactive domain is removed instead.
+     */
+    public synchronized void schedule(Domain domain) {
+        if (domain.getId() == null) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(domain.getActive())) {
+            Entry removed = entries.remove(domain.getId());
+            if (removed != null) {
+                removed.future.cancel(false);
+            }
+            return;
+        }
+        LocalDateTime nextCheckAt = domain.getNextCheckAt();
+        long delayMs = nextCheckAt != null
+                ? Math.max(0, Duration.between(LocalDateTime.now(), nextCheckAt).toMillis())
+                : 0;
+        queue(domain.getId(), delayMs);
+    }
+    
+    /**
+     * Milliseconds until {@code domainId} is due, or -1 when it is not queued.
+     */
+    public long getDelayMillis(Long domainId) {
+        Entry entry = entries.get(domainId);
+        ScheduledFuture<?> future = entry != null ? entry.future : null;
+        return future != null ? Math.max(0, future.getDelay(TimeUnit.MILLISECONDS)) : -1;
+    }
+    
+    public int getQueuedCount() {
+        return entries.size();
+    }
+    
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        entries.clear();
+    }
+    
+    private void queue(long domainId, long delayMs) {
+        if (timer.isShutdown()) {
+            return;
+        }
+        Entry entry = new Entry(domainId);
+        Entry previous = entries.put(domainId, entry);
+        if (previous != null) {
+            previous.future.cancel(false);
+        }
+        entry.future = timer.schedule(entry, delayMs, TimeUnit.MILLISECONDS);
+    }
+    
+    private void fire(Entry entry) {
+        if (entries.get(entry.domainId) != entry) {
+            return;
+        }
+        Domain domain;
+        try {
+            domain = domainRepository.findById(entry.domainId).orElse(null);
+        } catch (RuntimeException e) {
+            log.error("Could not load domain {} for its scheduled SSL check: {}", entry.domainId, e.getMessage(), e);
+            requeue(entry, null);
+            return;
+        }
+        if (domain == null || !Boolean.TRUE.equals(domain.getActive())) {
+            // Deleted or deactivated without an event reaching this node
+            entries.remove(entry.domainId, entry);
+            return;
+        }
+        try {
+            pending.acquire();
+        } catch (InterruptedException e) {
+            // Shutting down
+            Thread.currentThread().interrupt();
+            return;
+        }
+        fired.increment();
+        try {
+            checker.checkWithinDestinationLimits(domain).whenComplete((certificate, error) -> {
+                pending.release();
+                if (error != null) {
+                    log.warn("Scheduled SSL check failed for {}: {}", domain.getName(), error.getMessage());
+                }
+                requeue(entry, domain);
+            });
+        } catch (RuntimeException e) {
+            pending.release();
+            log.error("Could not dispatch scheduled SSL check for {}: {}", domain.getName(), e.getMessage(), e);
+            requeue(entry, domain);
+        }
+    }
+    
+    private synchronized void requeue(Entry entry, Domain domain) {
+        // An entry replaced or removed while its check ran has been superseded
+        if (entries.get(entry.domainId) != entry || timer.isShutdown()) {
+            return;
+        }
+        // Storing the result set the next check time on the domain; if that failed, wait one interval
+        LocalDateTime nextCheckAt = domain != null ? domain.getNextCheckAt() : null;
+        LocalDateTime now = LocalDateTime.now();
+        if (nextCheckAt != null && nextCheckAt.isAfter(now)) {
+            queue(entry.domainId, Duration.between(now, nextCheckAt).toMillis());
+            return;
+        }
+        Integer interval = domain != null ? domain.getCheckIntervalMinutes() : null;
+        long intervalMinutes = interval != null && interval > 0 ? interval : DEFAULT_INTERVAL_MINUTES;
+        queue(entry.domainId, TimeUnit.MINUTES.toMillis(intervalMinutes));
+    }
+}
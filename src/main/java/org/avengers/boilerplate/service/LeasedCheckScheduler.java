@@ -0,0 +1,237 @@
+package org.avengers.boilerplate.service;
+
+import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.repository.DomainRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shares due checks between application replicas through leases on the
+ * {@code domains} rows. Each node polls for due domains nobody holds, leases
+ * a batch sized to its free capacity with a conditional UPDATE that only one
+ * node can win per row, and checks them. Leases of checks still running are
+ * extended by a heartbeat; once a result is stored the lease is released
+ * by the next poll or heartbeat, together with every other lease finished
+ * since, so result persistence never waits on it. When storing fails the
+ * domain is still due, so its next check is moved {@code retryDelay} ahead
+ * as the lease is released. A node that dies stops heartbeating, its leases
+ * expire and the domains are claimed by whichever node polls next.
+ */
+@Slf4j
+public class LeasedCheckScheduler implements AutoCloseable {
+    
+    // Keeps IN lists well below driver bind parameter limits
+    private static final int MAX_IDS_PER_UPDATE = 1000;
+    
+    private final DomainRepository domainRepository;
+    private final SslCertificateChecker checker;
+    private final String nodeId;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final Duration leaseDuration;
+    private final Duration pollInterval;
+    private final Duration retryDelay;
+    private final ScheduledExecutorService scheduler;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final Queue<Long> completed = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> failed = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock releaseLock = new ReentrantLock();
+    private final Counter claimed;
+    private final Counter lost;
+    
+    public LeasedCheckScheduler(DomainRepository domainRepository, SslCertificateChecker checker, String nodeId,
+                                int batchSize, int maxInFlight, Duration leaseDuration, Duration pollInterval,
+                                Duration retryDelay, MeterRegistry meterRegistry) {
+        this.domainRepository = domainRepository;
+        this.checker = checker;
+        this.nodeId = nodeId;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.leaseDuration = leaseDuration;
+        this.pollInterval = pollInterval;
+        this.retryDelay = retryDelay;
+        this.scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "SSL-Lease-Scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        this.claimed = Counter.builder("ssl.monitor.lease.claimed")
+                .description("Domains leased by this node for checking")
+                .register(meterRegistry);
+        this.lost = Counter.builder("ssl.monitor.lease.lost")
+                .description("Leases found taken over by another node at heartbeat")
+                .register(meterRegistry);
+        Gauge.builder("ssl.monitor.lease.in-flight", inFlight, Set::size)
+                .description("Leased checks running on this node")
+                .register(meterRegistry);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long pollMs = Math.max(1, pollInterval.toMillis());
+        long heartbeatMs = Math.max(1, leaseDuration.toMillis() / 3);
+        scheduler.scheduleWithFixedDelay(this::pollSafely, 0, pollMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::heartbeatSafely, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        log.info("Leased check scheduler started as node {}", nodeId);
+    }
+    
+    /**
+     * Releases the leases of finished checks, then claims and dispatches due
+     * domains up to the free capacity.
+     *
+     * @return the number of domains claimed
+     */
+    public int pollOnce() {
+        releaseFinished();
+        int capacity = Math.min(batchSize, maxInFlight - inFlight.size());
+        if (capacity <= 0) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> candidates = domainRepository.findClaimableIds(now, PageRequest.of(0, capacity));
+        if (candidates.isEmpty() || domainRepository.claimLeases(candidates, nodeId, now, now.plus(leaseDuration)) == 0) {
+            return 0;
+        }
+        
+        List<Domain> domains = domainRepository.findByLeaseOwnerAndIdIn(nodeId, candidates).stream()
+                .filter(domain -> inFlight.add(domain.getId()))
+                .toList();
+        claimed.increment(domains.size());
+        domains.forEach(this::dispatch);
+        return domains.size();
+    }
+    
+    /**
+     * Releases the leases of finished checks and extends those of checks
+     * still running.
+     */
+    public void heartbeat() {
+        releaseFinished();
+        List<Long> ids = new ArrayList<>(inFlight);
+        if (ids.isEmpty()) {
+            return;
+        }
+        LocalDateTime expiresAt = LocalDateTime.now().plus(leaseDuration);
+        int extended = 0;
+        for (List<Long> chunk : Lists.partition(ids, MAX_IDS_PER_UPDATE)) {
+            extended += domainRepository.extendLeases(chunk, nodeId, expiresAt);
+        }
+        if (extended < ids.size()) {
+            // Missed heartbeats let the lease expire; another node may be checking these too
+            lost.increment(ids.size() - extended);
+            log.warn("Node {} lost {} of {} leases", nodeId, ids.size() - extended, ids.size());
+        }
+    }
+    
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+    
+    public String getNodeId() {
+        return nodeId;
+    }
+    
+    /**
+     * Stops claiming work and hands back this node's leases, so other nodes
+     * can pick the domains up without waiting for the leases to expire.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        completed.addAll(inFlight);
+        try {
+            releaseFinished();
+        } catch (RuntimeException e) {
+            log.warn("Could not release leases of node {}: {}", nodeId, e.getMessage());
+        }
+    }
+    
+    private void dispatch(Domain domain) {
+        try {
+            checker.checkWithinDestinationLimits(domain).whenComplete((certificate, error) -> {
+                if (error != null) {
+                    log.warn("Leased SSL check failed for {}: {}", domain.getName(), error.getMessage());
+                }
+                finish(domain.getId(), error == null);
+            });
+        } catch (RuntimeException e) {
+            log.error("Could not dispatch leased SSL check for {}: {}", domain.getName(), e.getMessage(), e);
+            finish(domain.getId(), false);
+        }
+    }
+    
+    /**
+     * Runs where the check completes, often the result writer's flush thread
+     * completing a whole batch, so it only queues the lease for release.
+     */
+    private void finish(Long domainId, boolean stored) {
+        (stored ? completed : failed).add(domainId);
+        inFlight.remove(domainId);
+    }
+    
+    /**
+     * Hands back the leases of every check finished so far in one update per
+     * kind. A poll and a heartbeat overlapping leave the release to whichever
+     * got there first. Leases that cannot be released are no longer
+     * heartbeated, so they expire on their own.
+     */
+    private void releaseFinished() {
+        while ((!completed.isEmpty() || !failed.isEmpty()) && releaseLock.tryLock()) {
+            try {
+                for (List<Long> chunk : Lists.partition(drain(completed), MAX_IDS_PER_UPDATE)) {
+                    domainRepository.releaseLeases(chunk, nodeId);
+                }
+                LocalDateTime retryAt = LocalDateTime.now().plus(retryDelay);
+                for (List<Long> chunk : Lists.partition(drain(failed), MAX_IDS_PER_UPDATE)) {
+                    domainRepository.releaseLeasesUntil(chunk, nodeId, retryAt);
+                }
+            } finally {
+                releaseLock.unlock();
+            }
+        }
+    }
+    
+    private static List<Long> drain(Queue<Long> queue) {
+        List<Long> ids = new ArrayList<>();
+        for (Long id = queue.poll(); id != null; id = queue.poll()) {
+            ids.add(id);
+        }
+        return ids;
+    }
+    
+    private void pollSafely() {
+        try {
+            pollOnce();
+        } catch (RuntimeException e) {
+            log.error("Error claiming due domains on node {}: {}", nodeId, e.getMessage(), e);
+        }
+    }
+    
+    private void heartbeatSafely() {
+        try {
+            heartbeat();
+        } catch (RuntimeException e) {
+            log.error("Error extending leases on node {}: {}", nodeId, e.getMessage(), e);
+        }
+    }
+}
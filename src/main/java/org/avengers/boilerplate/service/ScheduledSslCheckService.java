@@ -4,10 +4,14 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.avengers.boilerplate.domain.entity.Domain;
 import org.avengers.boilerplate.repository.DomainRepository;
+import org.avengers.boilerplate.service.probe.DnsResolver;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -18,6 +22,8 @@ public class ScheduledSslCheckService {
     
     private final DomainRepository domainRepository;
     private final SslCertificateChecker sslCertificateChecker;
+    private final DnsResolver dnsResolver;
+    private final CheckMetrics checkMetrics;
 //    private final NotificationService notificationService;
     
     @Value("${ssl.monitor.schedule.daily:0 0 6 * * ?}")
@@ -26,28 +32,45 @@ public class ScheduledSslCheckService {
     @Value("${ssl.monitor.schedule.hourly:0 0 * * * ?}")
     private String hourlySchedule;
     
+    @Value("${ssl.monitor.schedule.mode:due}")
+    private String scheduleMode;
+    
+    @Value("${ssl.monitor.dns.prefetch.lookahead-minutes:5}")
+    private int dnsPrefetchLookaheadMinutes;
+    
+    @Value("${ssl.monitor.sweep.page-size:500}")
+    private int sweepPageSize;
+    
+    @Value("${ssl.monitor.sweep.max-pending:5000}")
+    private int maxPending;
+    
+    @Value("${ssl.monitor.schedule.daily-window-minutes:0}")
+    private int dailyWindowMinutes;
+    
+    // End of the lookahead window the previous prefetch covered
+    private volatile LocalDateTime prefetchedUntil;
+    
     /**
      * Daily scheduled check for all active domains
-     * Runs at 6 AM by default
+     * Runs at 6 AM by default, spread over daily-window-minutes when set
      */
     @Scheduled(cron = "${ssl.monitor.schedule.daily:0 0 6 * * ?}")
     public void performDailySslChecks() {
+        if (!isSweepScheduling()) {
+            return;
+        }
         log.info("Starting daily SSL certificate checks");
         
         try {
-            List<Domain> activeDomains = domainRepository.findByActiveTrue();
-            log.info("Found {} active domains for daily check", activeDomains.size());
-            
-            if (!activeDomains.isEmpty()) {
-                List<org.avengers.boilerplate.domain.entity.SslCertificate> results = 
-                        sslCertificateChecker.checkMultipleCertificates(activeDomains);
-                
-                log.info("Daily SSL check completed. Processed {} certificates", results.size());
-                
-                // Update domain last check times
-                updateDomainCheckTimes(activeDomains);
-            }
+            // Paged in id order, so a domain's offset into the window follows from its position
+            long expected = domainRepository.countActiveDomains();
+            SweepReport report = sslCertificateChecker.sweep(new DomainPages(afterId ->
+                            domainRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(afterId, nextPage())),
+                    expected, Duration.ofMinutes(Math.max(0, dailyWindowMinutes)));
             
+            // Check times are recorded as each batch of results is stored
+            log.info("Daily SSL check completed: {}", report);
+        
         } catch (Exception e) {
             log.error("Error during daily SSL certificate checks: {}", e.getMessage(), e);
         }
@@ -59,29 +82,69 @@ public class ScheduledSslCheckService {
      */
     @Scheduled(cron = "${ssl.monitor.schedule.hourly:0 0 * * * ?}")
     public void performHourlySslChecks() {
+        if (!isSweepScheduling()) {
+            return;
+        }
         log.info("Starting hourly SSL certificate checks");
         
         try {
             LocalDateTime now = LocalDateTime.now();
-            List<Domain> domainsReadyForCheck = domainRepository.findDomainsReadyForCheck(now);
-            
-            log.info("Found {} domains ready for hourly check", domainsReadyForCheck.size());
-            
-            if (!domainsReadyForCheck.isEmpty()) {
-                List<org.avengers.boilerplate.domain.entity.SslCertificate> results = 
-                        sslCertificateChecker.checkMultipleCertificates(domainsReadyForCheck);
-                
-                log.info("Hourly SSL check completed. Processed {} certificates", results.size());
-                
-                // Update domain last check times
-                updateDomainCheckTimes(domainsReadyForCheck);
-            }
+            SweepReport report = sslCertificateChecker.sweep(new DomainPages(afterId ->
+                    domainRepository.findDomainsReadyForCheckAfter(now, afterId, nextPage())));
             
+            // Check times are recorded as each batch of results is stored
+            log.info("Hourly SSL check completed: {}", report);
+        
         } catch (Exception e) {
             log.error("Error during hourly SSL certificate checks: {}", e.getMessage(), e);
         }
     }
     
+    // In "due" and "leased" mode every domain is checked as it falls due, so the sweeps would only repeat checks
+    private boolean isSweepScheduling() {
+        return "cron".equalsIgnoreCase(scheduleMode);
+    }
+    
+    private Pageable nextPage() {
+        return PageRequest.of(0, Math.max(1, sweepPageSize));
+    }
+    
+    /**
+     * Resolve names of domains that fall due within the lookahead window,
+     * so the next check finds their addresses already cached. Each run only
+     * takes the part of the window the previous run did not cover, and no
+     * more names than checks may be outstanding; overdue domains are already
+     * being checked and resolve on their own.
+     */
+    @Scheduled(fixedDelayString = "${ssl.monitor.dns.prefetch.interval:60000}")
+    public void prefetchDueDomainAddresses() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime until = now.plusMinutes(dnsPrefetchLookaheadMinutes);
+            LocalDateTime from = prefetchedUntil != null && prefetchedUntil.isAfter(now) ? prefetchedUntil : now;
+            List<String> names = domainRepository.findNamesDueBetween(from, until,
+                    PageRequest.of(0, Math.max(1, maxPending)));
+            prefetchedUntil = until;
+            dnsResolver.prefetch(names);
+            log.debug("Prefetched DNS for {} domains due soon", names.size());
+        } catch (Exception e) {
+            log.error("Error prefetching DNS for due domains: {}", e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Refresh the count of domains past their next check time, so a backlog
+     * building up shows on dashboards between checks
+     */
+    @Scheduled(fixedDelayString = "${ssl.monitor.metrics.overdue-interval:60000}")
+    public void refreshOverdueBacklog() {
+        try {
+            checkMetrics.setOverdueDomains(domainRepository.countDomainsReadyForCheck(LocalDateTime.now()));
+        } catch (Exception e) {
+            log.error("Error counting overdue domains: {}", e.getMessage(), e);
+        }
+    }
+    
     /**
      * Retry failed notifications every 15 minutes
      */
@@ -108,7 +171,7 @@ public class ScheduledSslCheckService {
             // This would be implemented in the repository layer
             // For now, we'll just log the cleanup operation
             log.info("Cleanup of old certificate records completed");
-            
+        
         } catch (Exception e) {
             log.error("Error during cleanup of old certificate records: {}", e.getMessage(), e);
         }
@@ -134,22 +197,12 @@ public class ScheduledSslCheckService {
             if (!domainsNeedingCheck.isEmpty()) {
                 log.warn("Found {} domains that haven't been checked in 24 hours", domainsNeedingCheck.size());
             }
-            
+        
         } catch (Exception e) {
             log.error("Error during health check: {}", e.getMessage(), e);
         }
     }
     
-    private void updateDomainCheckTimes(List<Domain> domains) {
-        LocalDateTime now = LocalDateTime.now();
-        
-        for (Domain domain : domains) {
-            domain.setLastCheckAt(now);
-            domain.setNextCheckAt(now.plusMinutes(domain.getCheckIntervalMinutes()));
-            domainRepository.save(domain);
-        }
-    }
-    
     /**
      * Manual trigger for SSL certificate checks
      * Can be called via REST API
@@ -4,30 +4,70 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.avengers.boilerplate.domain.entity.Domain;
 import org.avengers.boilerplate.domain.entity.SslCertificate;
-import org.avengers.boilerplate.repository.SslCertificateRepository;
+import org.avengers.boilerplate.service.jfr.CheckEvent;
+import org.avengers.boilerplate.service.jfr.SweepEvent;
+import org.avengers.boilerplate.service.jfr.SweepStartEvent;
+import org.avengers.boilerplate.service.probe.CertificateFields;
+import org.avengers.boilerplate.service.probe.CertificateProbe;
+import org.avengers.boilerplate.service.probe.ChainValidator;
+import org.avengers.boilerplate.service.probe.DestinationLimiter;
+import org.avengers.boilerplate.service.probe.DnsResolver;
+import org.avengers.boilerplate.service.probe.ProbeCoalescer;
+import org.avengers.boilerplate.service.probe.ProbeResult;
+import org.avengers.boilerplate.service.probe.ProbeRetryScheduler;
+import org.avengers.boilerplate.service.revocation.CrlStore;
+import org.avengers.boilerplate.service.revocation.OcspChecker;
+import org.avengers.boilerplate.service.revocation.Revocation;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import javax.net.ssl.*;
-import java.io.IOException;
-import java.net.Socket;
-import java.security.cert.Certificate;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SslCertificateChecker {
     
-    private final SslCertificateRepository sslCertificateRepository;
+    // How long a sweep waits for its last checks once every domain has been handed out
+    private static final long SWEEP_DRAIN_TIMEOUT_MINUTES = 30;
+    
+    private static final Comparator<Domain> SWEEP_ORDER = Comparator
+            .comparing((Domain domain) -> domain.getName().toLowerCase(Locale.ROOT))
+            .thenComparing(Domain::getPort);
+    
+    private final CertificateProbe certificateProbe;
+    private final DnsResolver dnsResolver;
+    private final DestinationLimiter destinationLimiter;
+    private final ProbeCoalescer probeCoalescer;
+    private final ProbeRetryScheduler retryScheduler;
+    private final CheckResultWriter resultWriter;
+    private final ChainValidator chainValidator;
+    private final OcspChecker ocspChecker;
+    private final CrlStore crlStore;
+    private final CheckMetrics checkMetrics;
+    private final CheckEventLog checkEventLog;
 //    private final NotificationService notificationService;
     
     @Value("${ssl.monitor.thresholds.critical:7}")
@@ -39,27 +79,122 @@ public class SslCertificateChecker {
     @Value("${ssl.monitor.thresholds.info:90}")
     private int infoThreshold;
     
-    @Value("${ssl.monitor.http.connect-timeout:10000}")
-    private int connectTimeout;
-    
-    @Value("${ssl.monitor.http.read-timeout:10000}")
-    private int readTimeout;
-    
     @Value("${ssl.monitor.http.max-retries:3}")
     private int maxRetries;
     
+    @Value("${ssl.monitor.sweep.max-pending:5000}")
+    private int sweepMaxPending;
+    
+    // Deprecated per-sweep cap from before sweep.max-pending; still honoured when set
+    @Value("${ssl.monitor.sweep.max-concurrency:0}")
+    private int sweepMaxConcurrency;
+    
+    @Value("${ssl.monitor.sweep.check-timeout-ms:600000}")
+    private long sweepCheckTimeoutMs;
+    
+    @Value("${ssl.monitor.dns.prefetch.window:256}")
+    private int dnsPrefetchWindow;
+    
     private final Executor asyncExecutor;
     
+    private volatile SweepReport currentSweep;
+    
     public CompletableFuture<SslCertificate> checkCertificateAsync(Domain domain) {
-        return CompletableFuture.supplyAsync(() -> checkCertificate(domain), asyncExecutor);
+        log.debug("Checking SSL certificate for domain: {}", domain.getName());
+        
+        // The probe engine owns the connection; only persistence runs on the pool
+        return traced(domain, () -> retryScheduler.withRetries(() -> probe(domain), maxRetries)
+                .thenCompose(result -> toCertificateAsync(domain, result))
+                .thenCompose(resultWriter::submit));
     }
     
+    /**
+     * Sweep variant of {@link #checkCertificateAsync}. Domains that resolve to
+     * a target already being probed share that handshake, and new handshakes
+     * wait for their destination's permits, so bursts to one address or
+     * subnet queue up behind each other instead of being throttled. A retry
+     * gives its permits back while it waits out the backoff.
+     */
+    public CompletableFuture<SslCertificate> checkWithinDestinationLimits(Domain domain) {
+        log.debug("Checking SSL certificate for domain: {}", domain.getName());
+        
+        return traced(domain, () -> dnsResolver.resolve(domain.getName())
+                .handle((address, error) -> error == null
+                        ? probeCoalescer.probe(address, domain.getName(), domain.getPort(),
+                                () -> retryScheduler.withRetries(() -> probeWithPermit(address, domain), maxRetries))
+                        // Unresolvable names fail in the probe without connecting anywhere
+                        : retryScheduler.withRetries(() -> probe(domain), maxRetries))
+                .thenCompose(Function.identity())
+                .thenCompose(result -> toCertificateAsync(domain, result))
+                .thenCompose(resultWriter::submit));
+    }
+    
+    private CompletableFuture<ProbeResult> probeWithPermit(InetAddress address, Domain domain) {
+        return destinationLimiter.acquire(address)
+                .thenCompose(permit -> probe(domain).whenComplete((result, error) -> permit.release()));
+    }
+    
+    // Metered and recorded as a flight recorder event from the first lookup until the result is stored
+    private CompletableFuture<SslCertificate> traced(Domain domain, Supplier<CompletableFuture<SslCertificate>> check) {
+        CheckEvent event = new CheckEvent();
+        event.begin();
+        return checkMetrics.check(check).whenComplete((certificate, error) -> event.finish(domain, certificate, error));
+    }
+    
+    private CompletableFuture<ProbeResult> probe(Domain domain) {
+        return checkMetrics.probe(() -> certificateProbe.probe(domain.getName(), domain.getPort()));
+    }
+    
+    /**
+     * Single attempt on the caller's thread; retries are left to the async
+     * and sweep paths, where waiting out a backoff does not block anyone.
+     */
     public SslCertificate checkCertificate(Domain domain) {
-        log.info("Checking SSL certificate for domain: {}", domain.getName());
+        log.debug("Checking SSL certificate for domain: {}", domain.getName());
         
-        long startTime = System.currentTimeMillis();
+        ProbeResult result = probe(domain).join();
+        Revocation revocation = revocationOf(result).join();
+        SslCertificate savedCertificate = resultWriter.write(toCertificate(domain, result, revocation));
+        
+        // Send notifications if needed
+//        if (savedCertificate.getStatus() == SslCertificate.CertificateStatus.EXPIRING_SOON ||
+//            savedCertificate.getStatus() == SslCertificate.CertificateStatus.EXPIRED) {
+//            notificationService.sendExpiryNotification(domain, savedCertificate);
+//        }
+        
+        return savedCertificate;
+    }
+    
+    /**
+     * Looks up the leaf's revocation status, then builds the record on the pool.
+     */
+    private CompletableFuture<SslCertificate> toCertificateAsync(Domain domain, ProbeResult result) {
+        return revocationOf(result)
+                .thenApplyAsync(revocation -> toCertificate(domain, result, revocation), asyncExecutor);
+    }
+    
+    /**
+     * Revocation status of the probed leaf from OCSP, or from the issuer's
+     * CRL when OCSP gives no answer; null when the probe failed, the server
+     * sent no issuer certificate or neither source applies.
+     */
+    private CompletableFuture<Revocation> revocationOf(ProbeResult result) {
+        X509Certificate[] chain = result.getPeerCertificates();
+        if (!result.isSuccess() || chain.length < 2) {
+            return CompletableFuture.completedFuture(null);
+        }
+        X509Certificate leaf = chain[0];
+        X509Certificate issuer = chain[1];
+        return ocspChecker.check(leaf, issuer, result.getStapledOcspResponse())
+                .thenCompose(ocsp -> ocsp != null && ocsp.status() != Revocation.Status.UNKNOWN
+                        ? CompletableFuture.completedFuture(ocsp)
+                        : crlStore.check(leaf, issuer).thenApply(crl -> crl != null
+                                && (ocsp == null || crl.status() != Revocation.Status.UNKNOWN) ? crl : ocsp));
+    }
+    
+    private SslCertificate toCertificate(Domain domain, ProbeResult result, Revocation revocation) {
         SslCertificate.CertificateStatus status = SslCertificate.CertificateStatus.ERROR;
-        String errorMessage = null;
+        String errorMessage = result.getErrorMessage();
         String subject = null;
         String issuer = null;
         String serialNumber = null;
@@ -68,77 +203,58 @@ public class SslCertificateChecker {
         Integer daysUntilExpiry = null;
         String fingerprintSha256 = null;
         String signatureAlgorithm = null;
+        String keyAlgorithm = null;
         Integer keySize = null;
         String subjectAlternativeNames = null;
+        String certificateChain = null;
+        LocalDateTime revokedAt = null;
         
         try {
-            // Create SSL context
-            SSLContext sslContext = SSLContext.getInstance("TLS");
-            sslContext.init(null, null, null);
-            
-            // Create socket factory
-            SSLSocketFactory factory = sslContext.getSocketFactory();
-            
-            // Connect to the domain
-            try (SSLSocket socket = (SSLSocket) factory.createSocket(domain.getName(), domain.getPort())) {
-                socket.setSoTimeout(readTimeout);
-                
-                // Start SSL handshake
-                socket.startHandshake();
-                
-                // Get the session
-                SSLSession session = socket.getSession();
-                Certificate[] certificates = session.getPeerCertificates();
+            X509Certificate cert = result.getLeafCertificate();
+            if (cert != null) {
+                // One pass over the DER encoding instead of the X509Certificate getters
+                CertificateFields fields = CertificateFields.parse(cert.getEncoded());
+                subject = fields.subject();
+                issuer = fields.issuer();
+                serialNumber = fields.serialNumber();
+                validFrom = fields.notBefore().atZone(java.time.ZoneId.systemDefault()).toLocalDateTime();
+                expiryDate = fields.notAfter().atZone(java.time.ZoneId.systemDefault()).toLocalDateTime();
+                daysUntilExpiry = (int) ChronoUnit.DAYS.between(LocalDateTime.now(), expiryDate);
+                fingerprintSha256 = fields.fingerprintSha256();
+                signatureAlgorithm = fields.signatureAlgorithm();
+                keyAlgorithm = fields.keyAlgorithm();
+                keySize = fields.keySize();
+                subjectAlternativeNames = fields.subjectAlternativeNames();
+                certificateChain = toPem(result.getPeerCertificates());
                 
-                if (certificates.length > 0 && certificates[0] instanceof X509Certificate) {
-                    X509Certificate cert = (X509Certificate) certificates[0];
-                    
-                    // Extract certificate information
-                    subject = cert.getSubjectX500Principal().getName();
-                    issuer = cert.getIssuerX500Principal().getName();
-                    serialNumber = cert.getSerialNumber().toString();
-                    validFrom = cert.getNotBefore().toInstant().atZone(java.time.ZoneId.systemDefault()).toLocalDateTime();
-                    expiryDate = cert.getNotAfter().toInstant().atZone(java.time.ZoneId.systemDefault()).toLocalDateTime();
-                    daysUntilExpiry = (int) ChronoUnit.DAYS.between(LocalDateTime.now(), expiryDate);
-                    fingerprintSha256 = calculateFingerprint(cert);
-                    signatureAlgorithm = cert.getSigAlgName();
-                    keySize = cert.getPublicKey().getEncoded().length * 8;
-                    
-                    // Get subject alternative names
-                    subjectAlternativeNames = extractSubjectAlternativeNames(cert);
-                    
-                    // Determine status based on expiry
-                    if (daysUntilExpiry < 0) {
-                        status = SslCertificate.CertificateStatus.EXPIRED;
-                    } else if (daysUntilExpiry <= criticalThreshold) {
-                        status = SslCertificate.CertificateStatus.EXPIRING_SOON;
-                    } else {
-                        status = SslCertificate.CertificateStatus.VALID;
-                    }
-                    
-                    log.info("SSL certificate check completed for {}: status={}, daysUntilExpiry={}", 
-                            domain.getName(), status, daysUntilExpiry);
+                // Determine status based on expiry, revocation, then on whether the chain is trusted
+                ChainValidator.Verdict verdict = chainValidator.validate(result.getPeerCertificates());
+                if (daysUntilExpiry < 0) {
+                    status = SslCertificate.CertificateStatus.EXPIRED;
+                } else if (revocation != null && revocation.isRevoked()) {
+                    status = SslCertificate.CertificateStatus.REVOKED;
+                    revokedAt = revocation.revokedAt().atZone(java.time.ZoneId.systemDefault()).toLocalDateTime();
+                    errorMessage = "Certificate revoked at " + revokedAt
+                            + (revocation.detail() != null ? " (" + revocation.detail() + ")" : "");
+                } else if (!verdict.trusted()) {
+                    status = SslCertificate.CertificateStatus.UNTRUSTED;
+                    errorMessage = "Untrusted certificate chain: " + verdict.reason();
+                } else if (daysUntilExpiry <= criticalThreshold) {
+                    status = SslCertificate.CertificateStatus.EXPIRING_SOON;
                 } else {
-                    errorMessage = "No valid X509 certificate found";
-                    log.warn("No valid X509 certificate found for domain: {}", domain.getName());
+                    status = SslCertificate.CertificateStatus.VALID;
                 }
                 
-            } catch (SSLHandshakeException e) {
-                errorMessage = "SSL handshake failed: " + e.getMessage();
-                log.warn("SSL handshake failed for domain {}: {}", domain.getName(), e.getMessage());
-            } catch (IOException e) {
-                errorMessage = "Connection failed: " + e.getMessage();
-                log.warn("Connection failed for domain {}: {}", domain.getName(), e.getMessage());
+                log.debug("SSL certificate check completed for {}: status={}, daysUntilExpiry={}", 
+                        domain.getName(), status, daysUntilExpiry);
             }
-            
         } catch (Exception e) {
             errorMessage = "Unexpected error: " + e.getMessage();
             log.error("Unexpected error checking SSL certificate for domain {}: {}", domain.getName(), e.getMessage(), e);
         }
+        checkMetrics.recordOutcome(status, result);
         
-        long responseTime = System.currentTimeMillis() - startTime;
-        
-        // Create and save the certificate record
+        // Create the certificate record, the result writer stores it
         SslCertificate certificate = SslCertificate.builder()
                 .domain(domain)
                 .subject(subject)
@@ -149,78 +265,177 @@ public class SslCertificateChecker {
                 .daysUntilExpiry(daysUntilExpiry)
                 .status(status)
                 .errorMessage(errorMessage)
-                .responseTimeMs(responseTime)
+                .lastSeenAt(LocalDateTime.now())
+                .checkCount(1)
+                .responseTimeMs(result.getElapsedMs())
+                .responseTimeTotalMs(result.getElapsedMs())
+                .responseTimeMaxMs(result.getElapsedMs())
+                .dnsTimeMs(result.getDnsMs())
+                .connectTimeMs(result.getConnectMs())
+                .handshakeTimeMs(result.getHandshakeMs())
+                .attempts(result.getAttempts())
                 .fingerprintSha256(fingerprintSha256)
                 .signatureAlgorithm(signatureAlgorithm)
+                .keyAlgorithm(keyAlgorithm)
                 .keySize(keySize)
                 .subjectAlternativeNames(subjectAlternativeNames)
+                .certificateChain(certificateChain)
+                .revocationStatus(revocation != null ? revocation.status().name() : null)
+                .revokedAt(revokedAt)
                 .build();
-        
-        SslCertificate savedCertificate = sslCertificateRepository.save(certificate);
-        
-        // Send notifications if needed
-//        if (status == SslCertificate.CertificateStatus.EXPIRING_SOON ||
-//            status == SslCertificate.CertificateStatus.EXPIRED) {
-//            notificationService.sendExpiryNotification(domain, savedCertificate);
-//        }
-        
-        return savedCertificate;
+        checkEventLog.record(domain, result, certificate);
+        return certificate;
     }
     
-    private String calculateFingerprint(X509Certificate cert) {
-        try {
-            java.security.MessageDigest md = java.security.MessageDigest.getInstance("SHA-256");
-            byte[] digest = md.digest(cert.getEncoded());
-            StringBuilder sb = new StringBuilder();
-            for (byte b : digest) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-        } catch (Exception e) {
-            log.warn("Failed to calculate certificate fingerprint: {}", e.getMessage());
-            return null;
+    /**
+     * The chain as presented, leaf first, in PEM.
+     */
+    private static String toPem(X509Certificate[] chain) throws CertificateEncodingException {
+        Base64.Encoder encoder = Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII));
+        StringBuilder pem = new StringBuilder();
+        for (X509Certificate certificate : chain) {
+            pem.append("-----BEGIN CERTIFICATE-----\n")
+                    .append(encoder.encodeToString(certificate.getEncoded()))
+                    .append("\n-----END CERTIFICATE-----\n");
         }
+        return pem.toString();
     }
     
-    private String extractSubjectAlternativeNames(X509Certificate cert) {
-        try {
-            java.util.Collection<List<?>> sans = cert.getSubjectAlternativeNames();
-            if (sans != null) {
-                List<String> sanList = new ArrayList<>();
-                for (List<?> san : sans) {
-                    if (san.size() >= 2) {
-                        sanList.add(san.get(1).toString());
-                    }
-                }
-                return String.join(",", sanList);
-            }
-        } catch (Exception e) {
-            log.warn("Failed to extract subject alternative names: {}", e.getMessage());
+    public List<SslCertificate> checkMultipleCertificates(List<Domain> domains) {
+        log.info("Starting bulk SSL certificate check for {} domains", domains.size());
+        
+        // Results come back in completion order; failed checks are left out
+        List<SslCertificate> results = Collections.synchronizedList(new ArrayList<>(domains.size()));
+        SweepReport report = sweep(Collections.singletonList(domains).iterator(), domains.size(), Duration.ZERO,
+                results::add);
+        if (report.getFailed() > 0 || report.getAbandoned() > 0) {
+            log.warn("Bulk SSL certificate check incomplete: {}", report);
         }
-        return null;
+        // Stragglers past the drain timeout may still be adding to the list
+        return List.copyOf(results);
     }
     
-    public List<SslCertificate> checkMultipleCertificates(List<Domain> domains) {
-        log.info("Starting bulk SSL certificate check for {} domains", domains.size());
+    /**
+     * Checks every domain the pages yield, fetching the next page only as the
+     * previous one has been handed out, so a sweep holds at most a page of
+     * domains plus its in-flight window rather than the whole table. Results
+     * are stored as each check completes. A check that fails or outlives
+     * {@code sweepCheckTimeoutMs} is counted and the sweep moves on.
+     */
+    public SweepReport sweep(Iterator<List<Domain>> pages) {
+        return sweep(pages, 0, Duration.ZERO, certificate -> {
+        });
+    }
+    
+    /**
+     * Paced variant of {@link #sweep(Iterator)}: the n-th of {@code expected}
+     * checks starts {@code n / expected} of the way through {@code window},
+     * so the probe rate stays flat instead of bursting at the start. Checks
+     * beyond {@code expected} start as soon as they are reached.
+     */
+    public SweepReport sweep(Iterator<List<Domain>> pages, long expected, Duration window) {
+        return sweep(pages, expected, window, certificate -> {
+        });
+    }
+    
+    public SweepReport getCurrentSweep() {
+        return currentSweep;
+    }
+    
+    private SweepReport sweep(Iterator<List<Domain>> pages, long expected, Duration window,
+                              Consumer<SslCertificate> onResult) {
+        SweepReport report = new SweepReport();
+        report.expect(expected);
+        currentSweep = report;
+        checkMetrics.sweepStarted(report);
+        SweepStartEvent.record(expected, window);
+        SweepEvent event = new SweepEvent();
+        event.begin();
+        long startNanos = System.nanoTime();
+        boolean paced = expected > 0 && window.toNanos() > 0;
         
-        List<CompletableFuture<SslCertificate>> futures = domains.stream()
-                .map(this::checkCertificateAsync)
-                .toList();
+        // Bound how many checks of this sweep are outstanding; how many actually run
+        // at once is up to the destination limiter
+        int maxPending = Math.max(1, sweepMaxConcurrency > 0
+                ? Math.min(sweepMaxPending, sweepMaxConcurrency) : sweepMaxPending);
+        Semaphore sweepPermits = new Semaphore(maxPending);
         
-        CompletableFuture<Void> allFutures = CompletableFuture.allOf(
-                futures.toArray(new CompletableFuture[0])
-        );
+        while (pages.hasNext()) {
+            // Rows for the same name and port go out back to back so their probes overlap and coalesce
+            List<Domain> domains = pages.next().stream().sorted(SWEEP_ORDER).toList();
+            
+            // Keep DNS resolution a window ahead of the probes that need it
+            prefetch(domains, 0, dnsPrefetchWindow);
+            for (int i = 0; i < domains.size(); i++) {
+                Domain domain = domains.get(i);
+                prefetch(domains, i + dnsPrefetchWindow, 1);
+                if (paced) {
+                    paced = awaitTurn(startNanos, window, report.getSubmitted(), expected);
+                }
+                sweepPermits.acquireUninterruptibly();
+                report.recordSubmitted();
+                CompletableFuture<SslCertificate> check = checkWithinDestinationLimits(domain);
+                if (sweepCheckTimeoutMs > 0) {
+                    check = check.orTimeout(sweepCheckTimeoutMs, TimeUnit.MILLISECONDS);
+                }
+                check.whenComplete((certificate, error) -> {
+                    try {
+                        if (error != null) {
+                            report.recordFailed();
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                    ? error.getCause() : error;
+                            checkMetrics.sweepCheckFailed(cause instanceof TimeoutException);
+                            log.warn("SSL certificate check failed for {}: {}", domain.getName(),
+                                    cause instanceof TimeoutException ? "timed out" : cause.getMessage());
+                        } else {
+                            report.recordStored(certificate);
+                            onResult.accept(certificate);
+                        }
+                    } finally {
+                        sweepPermits.release();
+                    }
+                });
+            }
+            log.info("SSL sweep progress: {}", report);
+        }
         
+        long abandoned = 0;
         try {
-            allFutures.get(30, TimeUnit.MINUTES); // 30 minute timeout for bulk operations
-            
-            return futures.stream()
-                    .map(CompletableFuture::join)
-                    .toList();
-                    
-        } catch (Exception e) {
-            log.error("Bulk SSL certificate check failed: {}", e.getMessage(), e);
-            throw new RuntimeException("Bulk SSL certificate check failed", e);
+            if (!sweepPermits.tryAcquire(maxPending, SWEEP_DRAIN_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                abandoned = maxPending - sweepPermits.availablePermits();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandoned = maxPending - sweepPermits.availablePermits();
+        }
+        report.finish(abandoned);
+        checkMetrics.sweepFinished(report);
+        event.finish(report.getExpected(), report.getSubmitted(), report.getStored(), report.getErrors(),
+                report.getFailed(), report.getAbandoned());
+        log.info("SSL sweep finished: {}", report);
+        return report;
+    }
+    
+    // Returns false once interrupted, after which the sweep runs unpaced
+    private static boolean awaitTurn(long startNanos, Duration window, long submitted, long expected) {
+        long turnNanos = startNanos + (long) ((double) window.toNanos() * submitted / expected);
+        long waitNanos = turnNanos - System.nanoTime();
+        if (waitNanos <= 0) {
+            return true;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+    
+    private void prefetch(List<Domain> domains, int from, int count) {
+        int to = Math.min(domains.size(), from + count);
+        if (from < to) {
+            dnsResolver.prefetch(domains.subList(from, to).stream().map(Domain::getName).toList());
         }
     }
 } 
\ No newline at end of file
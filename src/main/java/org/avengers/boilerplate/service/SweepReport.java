@@ -0,0 +1,123 @@
+package org.avengers.boilerplate.service;
+
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running tally of a sweep. Counters are updated as checks complete, so a
+ * report read mid-sweep shows progress so far; a sweep that stops waiting
+ * for stragglers finishes with them counted as abandoned rather than failing.
+ */
+public class SweepReport {
+    
+    private final long startedAtNanos = System.nanoTime();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile long expected;
+    private volatile long abandoned;
+    private volatile long finishedAtNanos;
+    private volatile boolean finished;
+    
+    void expect(long expected) {
+        this.expected = expected;
+    }
+    
+    void recordSubmitted() {
+        submitted.incrementAndGet();
+    }
+    
+    void recordStored(SslCertificate certificate) {
+        stored.incrementAndGet();
+        if (certificate.getStatus() == SslCertificate.CertificateStatus.ERROR) {
+            errors.incrementAndGet();
+        }
+    }
+    
+    void recordFailed() {
+        failed.incrementAndGet();
+    }
+    
+    void finish(long abandoned) {
+        this.abandoned = abandoned;
+        this.finishedAtNanos = System.nanoTime();
+        this.finished = true;
+    }
+    
+    /** Checks started so far. */
+    public long getSubmitted() {
+        return submitted.get();
+    }
+    
+    /** Checks whose result was stored, whatever the certificate status. */
+    public long getStored() {
+        return stored.get();
+    }
+    
+    /** Stored results with status ERROR, i.e. the probe itself failed. */
+    public long getErrors() {
+        return errors.get();
+    }
+    
+    /** Checks that timed out or whose result could not be stored. */
+    public long getFailed() {
+        return failed.get();
+    }
+    
+    /** Checks still outstanding when the sweep stopped waiting for them. */
+    public long getAbandoned() {
+        return abandoned;
+    }
+    
+    public long getPending() {
+        return getSubmitted() - getStored() - getFailed();
+    }
+    
+    /** Domains the sweep expects to check, 0 when unknown. */
+    public long getExpected() {
+        return expected;
+    }
+    
+    /** Checks completed per second, stored or failed, since the sweep started. */
+    public double getRate() {
+        double seconds = getElapsed().toNanos() / 1e9;
+        return seconds > 0 ? (getStored() + getFailed()) / seconds : 0;
+    }
+    
+    /**
+     * When the expected checks should be done at the current rate; null
+     * while the total or the rate is still unknown.
+     */
+    public LocalDateTime getProjectedCompletion() {
+        long remaining = getExpected() - getStored() - getFailed();
+        double rate = getRate();
+        if (isFinished() || getExpected() == 0 || rate == 0) {
+            return null;
+        }
+        return LocalDateTime.now().plus(Duration.ofMillis((long) (Math.max(0, remaining) * 1000 / rate)));
+    }
+    
+    public boolean isFinished() {
+        return finished;
+    }
+    
+    public Duration getElapsed() {
+        long end = isFinished() ? finishedAtNanos : System.nanoTime();
+        return Duration.ofNanos(end - startedAtNanos);
+    }
+    
+    @Override
+    public String toString() {
+        LocalDateTime projected = getProjectedCompletion();
+        return String.format("submitted=%d%s, stored=%d (errors=%d), failed=%d, pending=%d, abandoned=%d, "
+                        + "elapsed=%ds, rate=%.1f/s%s",
+                getSubmitted(), getExpected() > 0 ? "/" + getExpected() : "", getStored(), getErrors(),
+                getFailed(), getPending(), getAbandoned(), getElapsed().toSeconds(), getRate(),
+                projected != null ? ", eta=" + projected.truncatedTo(ChronoUnit.SECONDS) : "");
+    }
+}
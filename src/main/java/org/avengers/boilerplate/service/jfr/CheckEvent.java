@@ -0,0 +1,66 @@
+package org.avengers.boilerplate.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+
+import java.util.Locale;
+
+/**
+ * One check of a domain, from the DNS lookup through retries and revocation
+ * until its result was stored. The probe attempts and the batch that stored
+ * the result are events of their own.
+ */
+@Name("org.avengers.boilerplate.Check")
+@Label("Certificate Check")
+@Category({"SSL Monitor", "Check"})
+@StackTrace(false)
+public class CheckEvent extends jdk.jfr.Event {
+    
+    @Label("Domain Id")
+    public long domainId;
+    
+    @Label("Host")
+    public String host;
+    
+    @Label("Port")
+    public int port;
+    
+    @Label("Outcome")
+    @Description("Certificate status stored, or failed when no result was stored")
+    public String outcome;
+    
+    @Label("Attempts")
+    public int attempts;
+    
+    @Label("Chain Size")
+    @Description("PEM encoded size of the stored certificate chain")
+    @DataAmount
+    public long chainBytes;
+    
+    /**
+     * Ends the event and commits it when it is being recorded.
+     */
+    public void finish(Domain domain, SslCertificate certificate, Throwable error) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+        domainId = domain.getId() != null ? domain.getId() : -1;
+        host = domain.getName();
+        port = domain.getPort() != null ? domain.getPort() : -1;
+        if (error != null || certificate == null) {
+            outcome = "failed";
+        } else {
+            outcome = certificate.getStatus().name().toLowerCase(Locale.ROOT);
+            attempts = certificate.getAttempts() != null ? certificate.getAttempts() : 0;
+            chainBytes = certificate.getCertificateChain() != null ? certificate.getCertificateChain().length() : 0;
+        }
+        commit();
+    }
+}
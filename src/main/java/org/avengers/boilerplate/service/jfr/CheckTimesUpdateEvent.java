@@ -0,0 +1,27 @@
+package org.avengers.boilerplate.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One UPDATE of domain check times issued while storing a result batch.
+ */
+@Name("org.avengers.boilerplate.CheckTimesUpdate")
+@Label("Check Times Update")
+@Category({"SSL Monitor", "Persistence"})
+@StackTrace(false)
+public class CheckTimesUpdateEvent extends jdk.jfr.Event {
+    
+    @Label("Domains")
+    public int domains;
+    
+    @Label("Updated")
+    public int updated;
+    
+    @Label("Interval Minutes")
+    @Description("Check interval applied to these domains, -1 when they were left due")
+    public int intervalMinutes;
+}
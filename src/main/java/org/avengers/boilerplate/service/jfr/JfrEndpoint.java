@@ -0,0 +1,189 @@
+package org.avengers.boilerplate.service.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Flight recordings on demand under {@code /actuator/jfr}: POST starts a
+ * recording, GET downloads what it holds so far, DELETE stops it. A
+ * recording is always bounded, by {@code ssl.monitor.jfr.max-duration-minutes}
+ * and by how much it keeps ({@code max-age-minutes}, {@code max-size-mb}),
+ * so one left running cannot fill the disk. Besides the JVM's own events it
+ * carries the probe, check, persistence and sweep events of this package.
+ * Events that would copy the process environment, system properties or JVM
+ * arguments into the file are always disabled, as those carry credentials
+ * such as the datasource password. Not exposed over HTTP unless
+ * {@code management.endpoints.web.exposure.include} lists it.
+ */
+@Component
+@Endpoint(id = "jfr")
+@Slf4j
+public class JfrEndpoint implements AutoCloseable {
+    
+    private static final String RECORDING_NAME = "ssl-monitor";
+    
+    /** JDK events whose payload may hold secrets, off whatever the settings say. */
+    static final List<String> SENSITIVE_EVENTS = List.of(
+            "jdk.InitialEnvironmentVariable",
+            "jdk.InitialSystemProperty",
+            "jdk.InitialSecurityProperty",
+            "jdk.JVMInformation",
+            "jdk.SystemProcess");
+    
+    @Value("${ssl.monitor.jfr.settings:default}")
+    private String defaultSettings;
+    
+    @Value("${ssl.monitor.jfr.max-duration-minutes:60}")
+    private long maxDurationMinutes;
+    
+    @Value("${ssl.monitor.jfr.max-age-minutes:30}")
+    private long maxAgeMinutes;
+    
+    @Value("${ssl.monitor.jfr.max-size-mb:100}")
+    private long maxSizeMb;
+    
+    private Recording recording;
+    
+    /**
+     * Start a recording, or report the one already running. {@code settings}
+     * names a JDK configuration such as {@code default} (low overhead, fit
+     * for production) or {@code profile}.
+     */
+    @WriteOperation
+    public synchronized WebEndpointResponse<Map<String, Object>> start(@Nullable Integer durationMinutes,
+                                                                       @Nullable String settings) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return new WebEndpointResponse<>(describe(recording), WebEndpointResponse.STATUS_OK);
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings != null ? settings : defaultSettings);
+        } catch (IOException | ParseException e) {
+            return new WebEndpointResponse<>(Map.of("error", "Unknown settings: " + e.getMessage()),
+                    WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        long minutes = Math.min(maxDurationMinutes,
+                durationMinutes != null && durationMinutes > 0 ? durationMinutes : maxDurationMinutes);
+        
+        if (recording != null) {
+            recording.close();
+        }
+        recording = new Recording(configuration);
+        SENSITIVE_EVENTS.forEach(recording::disable);
+        recording.setName(RECORDING_NAME);
+        recording.setToDisk(true);
+        recording.setDuration(Duration.ofMinutes(minutes));
+        recording.setMaxAge(Duration.ofMinutes(maxAgeMinutes));
+        recording.setMaxSize(maxSizeMb * 1024 * 1024);
+        recording.start();
+        log.info("Started flight recording with {} settings for {} minutes", configuration.getName(), minutes);
+        return new WebEndpointResponse<>(describe(recording), WebEndpointResponse.STATUS_OK);
+    }
+    
+    /**
+     * The current or last recording as a {@code .jfr} file. A running
+     * recording keeps running; open the file with JDK Mission Control or
+     * {@code jfr print}.
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized WebEndpointResponse<Resource> dump() throws IOException {
+        if (recording == null || recording.getState() == RecordingState.NEW
+                || recording.getState() == RecordingState.CLOSED) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        Path file = Files.createTempFile(RECORDING_NAME + "-", ".jfr");
+        Files.delete(file);
+        recording.dump(file);
+        return new WebEndpointResponse<>(new TemporaryFileResource(file), WebEndpointResponse.STATUS_OK);
+    }
+    
+    @DeleteOperation
+    public synchronized WebEndpointResponse<Map<String, Object>> stop() {
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            log.info("Stopped flight recording");
+        }
+        // Kept until the next start, so it can still be downloaded
+        return new WebEndpointResponse<>(describe(recording), WebEndpointResponse.STATUS_OK);
+    }
+    
+    @Override
+    public synchronized void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+    
+    private static Map<String, Object> describe(Recording recording) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("name", recording.getName());
+        description.put("state", recording.getState().name());
+        description.put("startTime", recording.getStartTime());
+        description.put("duration", recording.getDuration());
+        description.put("maxAge", recording.getMaxAge());
+        description.put("maxSize", recording.getMaxSize());
+        description.put("size", recording.getSize());
+        return description;
+    }
+    
+    /**
+     * Deletes the dump once it has been sent. Not reported as a file, so it
+     * is streamed through {@link #getInputStream()} rather than copied
+     * straight from disk.
+     */
+    private static final class TemporaryFileResource extends FileSystemResource {
+        
+        private final Path file;
+        
+        TemporaryFileResource(Path file) {
+            super(file);
+            this.file = file;
+        }
+        
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            };
+        }
+        
+        @Override
+        public boolean isFile() {
+            return false;
+        }
+    }
+}
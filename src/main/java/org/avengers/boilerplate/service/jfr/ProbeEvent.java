@@ -0,0 +1,41 @@
+package org.avengers.boilerplate.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One probe attempt from its start until the chain was captured or the
+ * attempt failed. Retries are separate events.
+ */
+@Name("org.avengers.boilerplate.Probe")
+@Label("Probe Attempt")
+@Category({"SSL Monitor", "Probe"})
+@StackTrace(false)
+public class ProbeEvent extends jdk.jfr.Event {
+    
+    @Label("Host")
+    public String host;
+    
+    @Label("Port")
+    public int port;
+    
+    @Label("Outcome")
+    @Description("success, or the kind of failure")
+    public String outcome;
+    
+    @Label("Chain Length")
+    public int chainLength;
+    
+    @Label("Chain Size")
+    @Description("DER encoded size of the certificates the server presented")
+    @DataAmount
+    public long chainBytes;
+    
+    @Label("Stapled OCSP Size")
+    @DataAmount
+    public long stapledOcspBytes;
+}
@@ -0,0 +1,32 @@
+package org.avengers.boilerplate.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One phase of a probe attempt. A phase that fails ends the attempt and is
+ * recorded with the failure kind as its outcome.
+ */
+@Name("org.avengers.boilerplate.ProbePhase")
+@Label("Probe Phase")
+@Category({"SSL Monitor", "Probe"})
+@Description("DNS resolution, TCP connect or TLS handshake of one probe attempt")
+@StackTrace(false)
+public class ProbePhaseEvent extends jdk.jfr.Event {
+    
+    @Label("Host")
+    public String host;
+    
+    @Label("Port")
+    public int port;
+    
+    @Label("Phase")
+    public String phase;
+    
+    @Label("Outcome")
+    @Description("ok, or the kind of failure that ended the attempt in this phase")
+    public String outcome;
+}
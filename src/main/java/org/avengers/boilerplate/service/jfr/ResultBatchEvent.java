@@ -0,0 +1,38 @@
+package org.avengers.boilerplate.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One transaction of the result writer: looking up current records,
+ * inserting or folding the batch and moving its domains' check times.
+ */
+@Name("org.avengers.boilerplate.ResultBatch")
+@Label("Result Batch")
+@Category({"SSL Monitor", "Persistence"})
+@StackTrace(false)
+public class ResultBatchEvent extends jdk.jfr.Event {
+    
+    @Label("Results")
+    public int results;
+    
+    @Label("Inserted")
+    public int inserted;
+    
+    @Label("Repeated")
+    @Description("Results folded into their domain's current record instead of inserted")
+    public int repeated;
+    
+    @Label("Inserted Chain Size")
+    @Description("PEM encoded size of the certificate chains in the inserted rows")
+    @DataAmount
+    public long insertedChainBytes;
+    
+    @Label("Outcome")
+    @Description("stored, or failed when the transaction was rolled back")
+    public String outcome;
+}
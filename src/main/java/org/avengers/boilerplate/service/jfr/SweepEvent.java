@@ -0,0 +1,50 @@
+package org.avengers.boilerplate.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A sweep from start to the end of its drain, with its final tally.
+ */
+@Name("org.avengers.boilerplate.Sweep")
+@Label("Sweep")
+@Category({"SSL Monitor", "Sweep"})
+@StackTrace(false)
+public class SweepEvent extends jdk.jfr.Event {
+    
+    @Label("Expected")
+    public long expected;
+    
+    @Label("Submitted")
+    public long submitted;
+    
+    @Label("Stored")
+    public long stored;
+    
+    @Label("Errors")
+    public long errors;
+    
+    @Label("Failed")
+    public long failed;
+    
+    @Label("Abandoned")
+    public long abandoned;
+    
+    /**
+     * Ends the event and commits it with the sweep's tally when it is being recorded.
+     */
+    public void finish(long expected, long submitted, long stored, long errors, long failed, long abandoned) {
+        end();
+        if (shouldCommit()) {
+            this.expected = expected;
+            this.submitted = submitted;
+            this.stored = stored;
+            this.errors = errors;
+            this.failed = failed;
+            this.abandoned = abandoned;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.avengers.boilerplate.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.time.Duration;
+
+/**
+ * A sweep starting. Recorded on its own so a dump taken mid-sweep shows it;
+ * the {@link SweepEvent} is only written once the sweep ends.
+ */
+@Name("org.avengers.boilerplate.SweepStart")
+@Label("Sweep Start")
+@Category({"SSL Monitor", "Sweep"})
+@StackTrace(false)
+public class SweepStartEvent extends jdk.jfr.Event {
+    
+    @Label("Expected")
+    public long expected;
+    
+    @Label("Window")
+    @Timespan(Timespan.MILLISECONDS)
+    public long windowMs;
+    
+    public static void record(long expected, Duration window) {
+        SweepStartEvent event = new SweepStartEvent();
+        if (event.shouldCommit()) {
+            event.expected = expected;
+            event.windowMs = window.toMillis();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.avengers.boilerplate.service.probe;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.net.Socket;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+
+/**
+ * Ends every handshake as soon as the server's chain has been received. The
+ * chain, and any OCSP response stapled with it, is handed back to the probe
+ * inside the exception that aborts the handshake; see
+ * {@link #capturedResult(Throwable)}.
+ * <p>
+ * The client never sends its key exchange (TLS 1.2) or Finished (TLS 1.3),
+ * so the server is spared the key agreement and session setup, and the
+ * probe saves the final round trip. Like {@link PermissiveTrustManager},
+ * nothing about the chain is judged here.
+ */
+public class CapturingTrustManager extends X509ExtendedTrustManager {
+    
+    private static final X509Certificate[] NO_ISSUERS = new X509Certificate[0];
+    
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+        throw new ChainCaptured(chain, null);
+    }
+    
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket)
+            throws CertificateException {
+        // The JDK checks the chain once the stapled response, if any, has arrived
+        byte[] stapled = socket instanceof SSLSocket ssl
+                ? ProbeResult.stapledOcspResponse(ssl.getHandshakeSession()) : null;
+        throw new ChainCaptured(chain, stapled);
+    }
+    
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+            throws CertificateException {
+        throw new ChainCaptured(chain, ProbeResult.stapledOcspResponse(engine.getHandshakeSession()));
+    }
+    
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType) {
+    }
+    
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) {
+    }
+    
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+    }
+    
+    @Override
+    public X509Certificate[] getAcceptedIssuers() {
+        return NO_ISSUERS;
+    }
+    
+    /**
+     * The successful probe result carried by a handshake failure this trust
+     * manager caused, or null when the handshake failed for another reason.
+     */
+    public static ProbeResult capturedResult(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ChainCaptured captured) {
+                return ProbeResult.success(captured.chain, captured.stapledOcspResponse, 0);
+            }
+        }
+        return null;
+    }
+    
+    private static final class ChainCaptured extends CertificateException {
+        
+        private final transient X509Certificate[] chain;
+        private final transient byte[] stapledOcspResponse;
+        
+        ChainCaptured(X509Certificate[] chain, byte[] stapledOcspResponse) {
+            super("Certificate chain captured, handshake aborted");
+            this.chain = chain.clone();
+            this.stapledOcspResponse = stapledOcspResponse;
+        }
+        
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            // Thrown on every probe as control flow; the stack is never looked at
+            return this;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package org.avengers.boilerplate.service.probe;
+
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.ASN1String;
+import org.bouncycastle.asn1.DERUniversalString;
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.pkcs.RSAPublicKey;
+import org.bouncycastle.asn1.x500.AttributeTypeAndValue;
+import org.bouncycastle.asn1.x500.RDN;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.Certificate;
+import org.bouncycastle.asn1.x509.DSAParameter;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.asn1.x509.TBSCertificate;
+import org.bouncycastle.asn1.x509.Time;
+import org.bouncycastle.asn1.x9.ECNamedCurveTable;
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.asn1.x9.X9ObjectIdentifiers;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fields of a certificate read from a single pass over its DER encoding.
+ * <p>
+ * Names are in RFC 2253 form, as {@code X500Principal.getName()} prints
+ * them; subject alternative names are joined with commas in certificate
+ * order, as the JDK lists them. Key size is the modulus length for RSA and
+ * DSA and the curve's field size for EC and EdDSA keys, not the size of the
+ * encoded key. The fingerprint is the lowercase hex SHA-256 of the encoding.
+ */
+public record CertificateFields(String subject, String issuer, String serialNumber, Instant notBefore,
+                                Instant notAfter, String signatureAlgorithm, String keyAlgorithm, Integer keySize,
+                                String subjectAlternativeNames, String fingerprintSha256) {
+    
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final String ESCAPED = ",=+<>#;\"\\";
+    // RFC 8410; BouncyCastle keeps its constants for these in an internal package
+    private static final ASN1ObjectIdentifier ED25519 = new ASN1ObjectIdentifier("1.3.101.112");
+    private static final ASN1ObjectIdentifier ED448 = new ASN1ObjectIdentifier("1.3.101.113");
+    
+    // RFC 2253 keywords; other attribute types print as dotted OIDs
+    private static final Map<ASN1ObjectIdentifier, String> KEYWORDS = Map.of(
+            new ASN1ObjectIdentifier("2.5.4.3"), "CN",
+            new ASN1ObjectIdentifier("2.5.4.6"), "C",
+            new ASN1ObjectIdentifier("2.5.4.7"), "L",
+            new ASN1ObjectIdentifier("2.5.4.8"), "ST",
+            new ASN1ObjectIdentifier("2.5.4.9"), "STREET",
+            new ASN1ObjectIdentifier("2.5.4.10"), "O",
+            new ASN1ObjectIdentifier("2.5.4.11"), "OU",
+            new ASN1ObjectIdentifier("0.9.2342.19200300.100.1.25"), "DC",
+            new ASN1ObjectIdentifier("0.9.2342.19200300.100.1.1"), "UID");
+    
+    // JDK names of the common signature algorithms
+    private static final Map<ASN1ObjectIdentifier, String> SIGNATURE_ALGORITHMS = Map.ofEntries(
+            Map.entry(PKCSObjectIdentifiers.sha256WithRSAEncryption, "SHA256withRSA"),
+            Map.entry(PKCSObjectIdentifiers.sha384WithRSAEncryption, "SHA384withRSA"),
+            Map.entry(PKCSObjectIdentifiers.sha512WithRSAEncryption, "SHA512withRSA"),
+            Map.entry(PKCSObjectIdentifiers.sha1WithRSAEncryption, "SHA1withRSA"),
+            Map.entry(PKCSObjectIdentifiers.id_RSASSA_PSS, "RSASSA-PSS"),
+            Map.entry(X9ObjectIdentifiers.ecdsa_with_SHA256, "SHA256withECDSA"),
+            Map.entry(X9ObjectIdentifiers.ecdsa_with_SHA384, "SHA384withECDSA"),
+            Map.entry(X9ObjectIdentifiers.ecdsa_with_SHA512, "SHA512withECDSA"),
+            Map.entry(X9ObjectIdentifiers.ecdsa_with_SHA1, "SHA1withECDSA"),
+            Map.entry(NISTObjectIdentifiers.dsa_with_sha256, "SHA256withDSA"),
+            Map.entry(ED25519, "Ed25519"),
+            Map.entry(ED448, "Ed448"));
+    
+    // Field size by named curve, filled on first sight of each curve
+    private static final Map<ASN1ObjectIdentifier, Integer> CURVE_SIZES = new ConcurrentHashMap<>();
+    
+    /**
+     * Parses {@code der}, a DER-encoded X.509 certificate.
+     *
+     * @throws IllegalArgumentException if it is not one
+     */
+    public static CertificateFields parse(byte[] der) {
+        Certificate certificate;
+        try {
+            certificate = Certificate.getInstance(der);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Not a DER-encoded certificate: " + e.getMessage(), e);
+        }
+        TBSCertificate tbs = certificate.getTBSCertificate();
+        SubjectPublicKeyInfo key = tbs.getSubjectPublicKeyInfo();
+        ASN1ObjectIdentifier keyOid = key.getAlgorithm().getAlgorithm();
+        
+        return new CertificateFields(
+                rfc2253(tbs.getSubject()),
+                rfc2253(tbs.getIssuer()),
+                tbs.getSerialNumber().getValue().toString(),
+                instant(tbs.getStartDate()),
+                instant(tbs.getEndDate()),
+                SIGNATURE_ALGORITHMS.getOrDefault(certificate.getSignatureAlgorithm().getAlgorithm(),
+                        certificate.getSignatureAlgorithm().getAlgorithm().getId()),
+                keyAlgorithm(keyOid),
+                keySize(key),
+                subjectAlternativeNames(tbs),
+                fingerprint(der));
+    }
+    
+    /**
+     * Lowercase hex SHA-256 of {@code der}.
+     */
+    public static String fingerprint(byte[] der) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        return hex(digest.digest(der));
+    }
+    
+    static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0x0f];
+            chars[2 * i + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+    
+    /**
+     * Reads the fixed RFC 5280 forms, {@code YYMMDDHHMMSSZ} and
+     * {@code YYYYMMDDHHMMSSZ}, directly; BouncyCastle's own conversion builds
+     * a date formatter per call. Anything else goes through that conversion.
+     */
+    private static Instant instant(Time time) {
+        try {
+            byte[] encoded = time.toASN1Primitive().getEncoded();
+            int length = encoded.length - 2;
+            if ((length == 13 || length == 15) && encoded[1] == length && encoded[encoded.length - 1] == 'Z') {
+                int at = 2;
+                int year;
+                if (length == 13) {
+                    year = digits(encoded, at, 2);
+                    year += year >= 50 ? 1900 : 2000;
+                    at += 2;
+                } else {
+                    year = digits(encoded, at, 4);
+                    at += 4;
+                }
+                return LocalDateTime.of(year, digits(encoded, at, 2), digits(encoded, at + 2, 2),
+                        digits(encoded, at + 4, 2), digits(encoded, at + 6, 2), digits(encoded, at + 8, 2))
+                        .toInstant(ZoneOffset.UTC);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Fall through to the general conversion
+        }
+        return time.getDate().toInstant();
+    }
+    
+    private static int digits(byte[] ascii, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = ascii[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Not a digit at " + i);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+    
+    private static String keyAlgorithm(ASN1ObjectIdentifier oid) {
+        if (PKCSObjectIdentifiers.rsaEncryption.equals(oid) || PKCSObjectIdentifiers.id_RSASSA_PSS.equals(oid)) {
+            return "RSA";
+        }
+        if (X9ObjectIdentifiers.id_ecPublicKey.equals(oid)) {
+            return "EC";
+        }
+        if (X9ObjectIdentifiers.id_dsa.equals(oid)) {
+            return "DSA";
+        }
+        if (ED25519.equals(oid)) {
+            return "Ed25519";
+        }
+        if (ED448.equals(oid)) {
+            return "Ed448";
+        }
+        return oid.getId();
+    }
+    
+    private static Integer keySize(SubjectPublicKeyInfo key) {
+        AlgorithmIdentifier algorithm = key.getAlgorithm();
+        ASN1ObjectIdentifier oid = algorithm.getAlgorithm();
+        try {
+            if (PKCSObjectIdentifiers.rsaEncryption.equals(oid) || PKCSObjectIdentifiers.id_RSASSA_PSS.equals(oid)) {
+                return RSAPublicKey.getInstance(key.parsePublicKey()).getModulus().bitLength();
+            }
+            if (X9ObjectIdentifiers.id_ecPublicKey.equals(oid)
+                    && algorithm.getParameters() instanceof ASN1ObjectIdentifier curve) {
+                return CURVE_SIZES.computeIfAbsent(curve, CertificateFields::curveSize);
+            }
+            if (X9ObjectIdentifiers.id_dsa.equals(oid) && algorithm.getParameters() != null) {
+                return DSAParameter.getInstance(algorithm.getParameters()).getP().bitLength();
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        if (ED25519.equals(oid)) {
+            return 255;
+        }
+        if (ED448.equals(oid)) {
+            return 448;
+        }
+        return null;
+    }
+    
+    private static Integer curveSize(ASN1ObjectIdentifier curve) {
+        X9ECParameters parameters = ECNamedCurveTable.getByOID(curve);
+        return parameters != null ? parameters.getCurve().getFieldSize() : null;
+    }
+    
+    private static String subjectAlternativeNames(TBSCertificate tbs) {
+        if (tbs.getExtensions() == null) {
+            return null;
+        }
+        Extension extension = tbs.getExtensions().getExtension(Extension.subjectAlternativeName);
+        if (extension == null) {
+            return null;
+        }
+        GeneralName[] names = GeneralNames.getInstance(extension.getParsedValue()).getNames();
+        StringBuilder joined = new StringBuilder();
+        for (GeneralName name : names) {
+            String value = generalName(name);
+            if (value != null) {
+                if (!joined.isEmpty()) {
+                    joined.append(',');
+                }
+                joined.append(value);
+            }
+        }
+        return joined.toString();
+    }
+    
+    private static String generalName(GeneralName name) {
+        ASN1Encodable value = name.getName();
+        switch (name.getTagNo()) {
+            case GeneralName.dNSName, GeneralName.rfc822Name, GeneralName.uniformResourceIdentifier -> {
+                return ((ASN1String) value).getString();
+            }
+            case GeneralName.iPAddress -> {
+                try {
+                    // Literal bytes: no lookup is made
+                    return InetAddress.getByAddress(ASN1OctetString.getInstance(value).getOctets()).getHostAddress();
+                } catch (UnknownHostException e) {
+                    return null;
+                }
+            }
+            case GeneralName.directoryName -> {
+                return rfc2253(X500Name.getInstance(value));
+            }
+            case GeneralName.registeredID -> {
+                return ASN1ObjectIdentifier.getInstance(value).getId();
+            }
+            default -> {
+                // otherName, x400Address and ediPartyName have no string form
+                return null;
+            }
+        }
+    }
+    
+    /**
+     * RFC 2253 string of {@code name}: RDNs last to first, known attribute
+     * types by keyword, others as OIDs with hex-encoded values.
+     */
+    static String rfc2253(X500Name name) {
+        RDN[] rdns = name.getRDNs();
+        StringBuilder out = new StringBuilder(64);
+        for (int i = rdns.length - 1; i >= 0; i--) {
+            if (i < rdns.length - 1) {
+                out.append(',');
+            }
+            AttributeTypeAndValue[] values = rdns[i].getTypesAndValues();
+            for (int j = 0; j < values.length; j++) {
+                if (j > 0) {
+                    out.append('+');
+                }
+                appendAttribute(out, values[j]);
+            }
+        }
+        return out.toString();
+    }
+    
+    private static void appendAttribute(StringBuilder out, AttributeTypeAndValue attribute) {
+        String keyword = KEYWORDS.get(attribute.getType());
+        ASN1Encodable value = attribute.getValue();
+        if (keyword != null && value instanceof ASN1String string && !(value instanceof DERUniversalString)) {
+            out.append(keyword).append('=');
+            appendEscaped(out, string.getString());
+            return;
+        }
+        out.append(keyword != null ? keyword : attribute.getType().getId()).append("=#");
+        try {
+            out.append(hex(value.toASN1Primitive().getEncoded()));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unencodable attribute value", e);
+        }
+    }
+    
+    private static void appendEscaped(StringBuilder out, String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == 0) {
+                out.append("\\00");
+                continue;
+            }
+            // The same characters the JDK escapes, '=' and '#' included
+            if (ESCAPED.indexOf(c) >= 0 || (c == ' ' && (i == 0 || i == length - 1))) {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.avengers.boilerplate.service.probe;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Connects to a TLS endpoint and captures the certificate chain it presents.
+ * Implementations are selected with {@code ssl.monitor.probe.engine}.
+ */
+public interface CertificateProbe {
+    
+    /**
+     * Start a probe without blocking the caller. The returned future never
+     * completes exceptionally; failures are reported through {@link ProbeResult}.
+     */
+    CompletableFuture<ProbeResult> probe(String host, int port);
+    
+    /**
+     * Probe and wait for the result on the calling thread.
+     */
+    default ProbeResult probeNow(String host, int port) {
+        return probe(host, port).join();
+    }
+}
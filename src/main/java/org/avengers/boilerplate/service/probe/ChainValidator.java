@@ -0,0 +1,329 @@
+package org.avengers.boilerplate.service.probe;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.cert.CertPathBuilder;
+import java.security.cert.CertPathValidator;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.CertStore;
+import java.security.cert.CertificateFactory;
+import java.security.cert.CollectionCertStoreParameters;
+import java.security.cert.PKIXBuilderParameters;
+import java.security.cert.PKIXParameters;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509CertSelector;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Decides whether a captured chain leads to one of the trusted roots. The
+ * part above the leaf is validated with PKIX once and the verdict cached by
+ * the fingerprints of those certificates; leaves under an already validated
+ * intermediate only need their link to it checked: issuer name, CA flag,
+ * key usage and signature. Thousands of sites behind the same few
+ * intermediates therefore cost one path build per intermediate.
+ * <p>
+ * Chains presented out of order, or reaching a trusted root only through a
+ * root the server sent cross-signed by another, fail validation as
+ * presented; for those a path is built from the presented certificates
+ * instead, as a browser would. Which path exists depends on the leaf, so
+ * that verdict is cached by the fingerprints of the leaf and its issuers.
+ * <p>
+ * Verdicts are cached for {@code ttl}, never past the earliest expiry of the
+ * certificates they cover, and at most {@code maxEntries} of them are kept,
+ * least recently used first out. Under intermediates carrying name constraints
+ * the whole chain is validated every time, so the constraints reach the
+ * leaf. Revocation is not checked here, and the leaf's own validity dates
+ * are left to the expiry status.
+ */
+@Slf4j
+public class ChainValidator {
+    
+    public record Verdict(boolean trusted, String reason) {
+        
+        static final Verdict TRUSTED = new Verdict(true, null);
+        
+        static Verdict untrusted(String reason) {
+            return new Verdict(false, reason);
+        }
+    }
+    
+    private static final String NAME_CONSTRAINTS_OID = "2.5.29.30";
+    private static final int KEY_CERT_SIGN = 5;
+    
+    private final Set<TrustAnchor> anchors;
+    private final Set<X509Certificate> anchorCertificates;
+    private final long ttlNanos;
+    private final Ticker ticker;
+    private final Cache<String, Entry> cache;
+    
+    private final Counter hits;
+    private final Counter misses;
+    
+    public ChainValidator(Collection<X509Certificate> trustedCertificates, Duration ttl, int maxEntries,
+                          MeterRegistry meterRegistry) {
+        this(trustedCertificates, ttl, maxEntries, meterRegistry, Ticker.systemTicker());
+    }
+    
+    ChainValidator(Collection<X509Certificate> trustedCertificates, Duration ttl, int maxEntries,
+                   MeterRegistry meterRegistry, Ticker ticker) {
+        this.anchorCertificates = Set.copyOf(trustedCertificates);
+        Set<TrustAnchor> trustAnchors = new HashSet<>();
+        for (X509Certificate certificate : anchorCertificates) {
+            trustAnchors.add(new TrustAnchor(certificate, null));
+        }
+        this.anchors = Set.copyOf(trustAnchors);
+        this.ttlNanos = ttl.toNanos();
+        this.ticker = ticker;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(0, maxEntries))
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .build();
+        
+        this.hits = cacheCounter(meterRegistry, "hit");
+        this.misses = cacheCounter(meterRegistry, "miss");
+        Gauge.builder("ssl.monitor.trust.cache.size", cache, Cache::size)
+                .description("Validated intermediate chains held in the trust cache")
+                .register(meterRegistry);
+        log.info("Chain validation uses {} trust anchors", anchors.size());
+    }
+    
+    /**
+     * Roots trusted by {@code trustStore}, or by the JDK's default store when
+     * it is null.
+     */
+    public static List<X509Certificate> trustedCertificates(KeyStore trustStore) throws GeneralSecurityException {
+        TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        factory.init(trustStore);
+        List<X509Certificate> certificates = new ArrayList<>();
+        for (TrustManager trustManager : factory.getTrustManagers()) {
+            if (trustManager instanceof X509TrustManager x509) {
+                certificates.addAll(Arrays.asList(x509.getAcceptedIssuers()));
+            }
+        }
+        return certificates;
+    }
+    
+    /**
+     * Validates {@code chain} as presented by a server, leaf first. Roots the
+     * server sent along are ignored; trust comes only from the trust store.
+     */
+    public Verdict validate(X509Certificate[] chain) {
+        if (chain == null || chain.length == 0) {
+            return Verdict.untrusted("No certificates presented");
+        }
+        if (anchorCertificates.contains(chain[0])) {
+            return Verdict.TRUSTED;
+        }
+        
+        List<X509Certificate> path = new ArrayList<>(Arrays.asList(chain));
+        while (path.size() > 1 && anchorCertificates.contains(path.get(path.size() - 1))) {
+            path.remove(path.size() - 1);
+        }
+        if (path.size() == 1) {
+            // Issued straight from a root, nothing worth caching
+            return pkix(path);
+        }
+        
+        X509Certificate leaf = path.get(0);
+        List<X509Certificate> issuers = path.subList(1, path.size());
+        Entry issuerEntry = issuerVerdict(path);
+        if (!issuerEntry.verdict.trusted()) {
+            return issuerEntry.verdict;
+        }
+        if (issuerEntry.constrained) {
+            Verdict verdict = pkix(path);
+            return verdict.trusted() || build(leaf, issuers) == null ? verdict : Verdict.TRUSTED;
+        }
+        return link(leaf, issuerEntry.issuer);
+    }
+    
+    public int getCacheSize() {
+        return (int) cache.size();
+    }
+    
+    private Entry issuerVerdict(List<X509Certificate> path) {
+        X509Certificate leaf = path.get(0);
+        List<X509Certificate> issuers = path.subList(1, path.size());
+        String issuersKey = fingerprint(issuers);
+        Entry presented = cached(issuersKey, () -> entry(pkix(issuers), issuers, issuers.get(0)));
+        if (presented.verdict.trusted()) {
+            return presented;
+        }
+        
+        // Not a path as presented; one built from the same certificates may exist for this leaf only
+        return cached(issuersKey != null ? fingerprint(path) : null, () -> {
+            X509Certificate root = anchorIssuing(leaf);
+            List<X509Certificate> built = root != null ? List.of() : buildIssuers(leaf, issuers);
+            if (built == null) {
+                return presented;
+            }
+            return entry(Verdict.TRUSTED, built, built.isEmpty() ? root : built.get(0));
+        });
+    }
+    
+    private Entry cached(String key, Supplier<Entry> verdict) {
+        Entry entry = key != null ? cache.getIfPresent(key) : null;
+        if (entry != null && !entry.isExpired(ticker.read())) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+        entry = verdict.get();
+        if (key != null) {
+            cache.put(key, entry);
+        }
+        return entry;
+    }
+    
+    private Entry entry(Verdict verdict, List<X509Certificate> covered, X509Certificate linkTo) {
+        long now = ticker.read();
+        long expiresAt = now + ttlNanos;
+        boolean constrained = false;
+        long wallNow = System.currentTimeMillis();
+        for (X509Certificate issuer : covered) {
+            expiresAt = Math.min(expiresAt, now + TimeUnit.MILLISECONDS.toNanos(
+                    Math.max(0, issuer.getNotAfter().getTime() - wallNow)));
+            constrained |= issuer.getExtensionValue(NAME_CONSTRAINTS_OID) != null;
+        }
+        return new Entry(verdict, linkTo, constrained, expiresAt);
+    }
+    
+    /**
+     * The trusted root named as the leaf's issuer, for a leaf issued straight
+     * from a root that the server followed with unrelated certificates.
+     */
+    private X509Certificate anchorIssuing(X509Certificate leaf) {
+        for (X509Certificate anchor : anchorCertificates) {
+            if (anchor.getSubjectX500Principal().equals(leaf.getIssuerX500Principal())
+                    && link(leaf, anchor).trusted()) {
+                return anchor;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Builds a path from the leaf's issuer to a trusted root out of the
+     * presented {@code issuers}, in whatever order they came.
+     *
+     * @return the path without its root, or null when none leads to one
+     */
+    private List<X509Certificate> buildIssuers(X509Certificate leaf, List<X509Certificate> issuers) {
+        X509CertSelector target = new X509CertSelector();
+        target.setSubject(leaf.getIssuerX500Principal());
+        return build(target, issuers);
+    }
+    
+    private List<X509Certificate> build(X509Certificate leaf, List<X509Certificate> issuers) {
+        X509CertSelector target = new X509CertSelector();
+        target.setCertificate(leaf);
+        List<X509Certificate> presented = new ArrayList<>(issuers);
+        presented.add(leaf);
+        return build(target, presented);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private List<X509Certificate> build(X509CertSelector target, List<X509Certificate> presented) {
+        try {
+            PKIXBuilderParameters parameters = new PKIXBuilderParameters(anchors, target);
+            parameters.setRevocationEnabled(false);
+            parameters.setDate(new Date());
+            parameters.addCertStore(CertStore.getInstance("Collection", new CollectionCertStoreParameters(presented)));
+            return (List<X509Certificate>) CertPathBuilder.getInstance("PKIX").build(parameters)
+                    .getCertPath().getCertificates();
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            log.debug("No path to a trusted root from the presented certificates: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    private Verdict pkix(List<X509Certificate> path) {
+        try {
+            PKIXParameters parameters = new PKIXParameters(anchors);
+            parameters.setRevocationEnabled(false);
+            parameters.setDate(new Date());
+            CertPathValidator.getInstance("PKIX")
+                    .validate(CertificateFactory.getInstance("X.509").generateCertPath(path), parameters);
+            return Verdict.TRUSTED;
+        } catch (CertPathValidatorException e) {
+            return Verdict.untrusted(e.getMessage());
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            // No anchors at all, or a certificate the provider cannot parse
+            return Verdict.untrusted("Path validation failed: " + e.getMessage());
+        }
+    }
+    
+    private static Verdict link(X509Certificate leaf, X509Certificate issuer) {
+        if (!leaf.getIssuerX500Principal().equals(issuer.getSubjectX500Principal())) {
+            return Verdict.untrusted("Leaf issuer does not match the presented intermediate");
+        }
+        if (issuer.getBasicConstraints() < 0) {
+            return Verdict.untrusted("Issuer is not a CA certificate");
+        }
+        boolean[] keyUsage = issuer.getKeyUsage();
+        if (keyUsage != null && (keyUsage.length <= KEY_CERT_SIGN || !keyUsage[KEY_CERT_SIGN])) {
+            return Verdict.untrusted("Issuer key usage does not allow certificate signing");
+        }
+        try {
+            leaf.verify(issuer.getPublicKey());
+        } catch (GeneralSecurityException e) {
+            return Verdict.untrusted("Leaf signature does not verify: " + e.getMessage());
+        }
+        return Verdict.TRUSTED;
+    }
+    
+    private static String fingerprint(List<X509Certificate> certificates) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (X509Certificate certificate : certificates) {
+                digest.update(certificate.getEncoded());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (GeneralSecurityException e) {
+            log.debug("Cannot fingerprint issuer chain, validating uncached: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    private static Counter cacheCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ssl.monitor.trust.cache")
+                .description("Intermediate chain verdict lookups by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+    
+    /**
+     * A verdict on the issuers above a leaf; {@code issuer} is the one a
+     * leaf must be signed by.
+     */
+    private record Entry(Verdict verdict, X509Certificate issuer, boolean constrained, long expiresAtNanos) {
+        
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package org.avengers.boilerplate.service.probe;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for probes, keyed by destination. A probe needs a permit
+ * for its address, for the address's subnet (/24 for IPv4, /64 for IPv6) when
+ * subnet limiting is on, and one of the global in-flight permits. Successive
+ * probes to one address are also spaced at least {@code minSpacing} apart.
+ * <p>
+ * Permits are granted asynchronously: a probe for a saturated destination is
+ * parked in that destination's queue and never holds a thread, so other
+ * destinations keep flowing.
+ */
+public class DestinationLimiter implements AutoCloseable {
+    
+    /**
+     * Held for the duration of a probe. Releasing twice is harmless.
+     */
+    @FunctionalInterface
+    public interface Permit {
+        
+        Permit NONE = () -> {
+        };
+        
+        void release();
+    }
+    
+    private final int maxPerAddress;
+    private final int maxPerSubnet;
+    private final long minSpacingNanos;
+    private final Gate global;
+    private final Map<String, Gate> gates = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Counter delayed;
+    
+    public DestinationLimiter(int maxPerAddress, int maxPerSubnet, Duration minSpacing, int maxConcurrency,
+                              MeterRegistry meterRegistry) {
+        this.maxPerAddress = Math.max(1, maxPerAddress);
+        this.maxPerSubnet = maxPerSubnet;
+        this.minSpacingNanos = minSpacing.toNanos();
+        this.global = new Gate(null, Math.max(1, maxConcurrency), 0);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SSL-Destination-Limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        this.delayed = Counter.builder("ssl.monitor.destination.delayed")
+                .description("Probes that had to wait for a destination or global permit")
+                .register(meterRegistry);
+        Gauge.builder("ssl.monitor.destination.queued", queued, AtomicInteger::get)
+                .description("Probes currently waiting for a permit")
+                .register(meterRegistry);
+        Gauge.builder("ssl.monitor.destination.in-flight", global, gate -> gate.activeCount())
+                .description("Probes currently holding a global permit")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Completes once every permit for {@code address} has been granted.
+     */
+    public CompletableFuture<Permit> acquire(InetAddress address) {
+        CompletableFuture<Permit> permit = acquire(address.getHostAddress(), maxPerAddress, minSpacingNanos);
+        if (maxPerSubnet > 0) {
+            String subnet = subnetKey(address);
+            permit = permit.thenCompose(held -> acquire(subnet, maxPerSubnet, 0)
+                    .thenApply(subnetPermit -> both(held, subnetPermit)));
+        }
+        return permit.thenCompose(held -> enqueue(global).thenApply(globalPermit -> both(held, globalPermit)));
+    }
+    
+    public int getQueuedCount() {
+        return queued.get();
+    }
+    
+    public int getTrackedDestinations() {
+        return gates.size();
+    }
+    
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+    
+    static String subnetKey(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        StringBuilder key = new StringBuilder();
+        if (address instanceof Inet4Address) {
+            for (int i = 0; i < 3; i++) {
+                key.append(bytes[i] & 0xff).append('.');
+            }
+            return key.append("0/24").toString();
+        }
+        for (int i = 0; i < 8; i += 2) {
+            key.append(Integer.toHexString(((bytes[i] & 0xff) << 8) | (bytes[i + 1] & 0xff))).append(':');
+        }
+        return key.append(":/64").toString();
+    }
+    
+    private CompletableFuture<Permit> acquire(String key, int limit, long spacingNanos) {
+        CompletableFuture<Permit> waiter = new CompletableFuture<>();
+        Gate gate = gates.compute(key, (name, current) -> {
+            Gate target = current != null ? current : new Gate(name, limit, spacingNanos);
+            target.add(waiter);
+            return target;
+        });
+        return admit(gate, waiter);
+    }
+    
+    private CompletableFuture<Permit> enqueue(Gate gate) {
+        CompletableFuture<Permit> waiter = new CompletableFuture<>();
+        gate.add(waiter);
+        return admit(gate, waiter);
+    }
+    
+    private CompletableFuture<Permit> admit(Gate gate, CompletableFuture<Permit> waiter) {
+        gate.drain();
+        if (!waiter.isDone()) {
+            delayed.increment();
+        }
+        return waiter;
+    }
+    
+    private void release(Gate gate) {
+        gate.releaseOne();
+        gate.drain();
+        if (gate.key == null) {
+            return;
+        }
+        evictIfIdle(gate);
+        long cooling = gate.coolingNanos();
+        if (cooling > 0) {
+            scheduler.schedule(() -> evictIfIdle(gate), cooling, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    // Drop idle gates so the map only tracks destinations with work
+    private void evictIfIdle(Gate gate) {
+        gates.computeIfPresent(gate.key, (name, current) -> current == gate && gate.isIdle() ? null : current);
+    }
+    
+    private static Permit both(Permit first, Permit second) {
+        return () -> {
+            second.release();
+            first.release();
+        };
+    }
+    
+    private final class Gate {
+        
+        private final String key;
+        private final int limit;
+        private final long spacingNanos;
+        private final Queue<CompletableFuture<Permit>> waiters = new ArrayDeque<>();
+        private int active;
+        private long lastGrantNanos;
+        private boolean wakeupPending;
+        
+        Gate(String key, int limit, long spacingNanos) {
+            this.key = key;
+            this.limit = limit;
+            this.spacingNanos = spacingNanos;
+            this.lastGrantNanos = System.nanoTime() - spacingNanos;
+        }
+        
+        synchronized void add(CompletableFuture<Permit> waiter) {
+            queued.incrementAndGet();
+            waiters.add(waiter);
+        }
+        
+        synchronized void releaseOne() {
+            active--;
+        }
+        
+        synchronized int activeCount() {
+            return active;
+        }
+        
+        synchronized boolean isIdle() {
+            return active == 0 && waiters.isEmpty() && !wakeupPending && coolingNanos() <= 0;
+        }
+        
+        // Time until an otherwise idle gate no longer needs to remember its last grant
+        synchronized long coolingNanos() {
+            return lastGrantNanos + spacingNanos - System.nanoTime();
+        }
+        
+        void drain() {
+            List<CompletableFuture<Permit>> granted = new ArrayList<>();
+            synchronized (this) {
+                while (active < limit && !waiters.isEmpty()) {
+                    long now = System.nanoTime();
+                    long wait = lastGrantNanos + spacingNanos - now;
+                    if (wait > 0) {
+                        scheduleWakeup(wait);
+                        break;
+                    }
+                    active++;
+                    lastGrantNanos = now;
+                    granted.add(waiters.poll());
+                }
+            }
+            
+            // Complete outside the lock, dependent stages may run inline
+            for (CompletableFuture<Permit> waiter : granted) {
+                queued.decrementAndGet();
+                AtomicBoolean released = new AtomicBoolean();
+                waiter.complete(() -> {
+                    if (released.compareAndSet(false, true)) {
+                        release(this);
+                    }
+                });
+            }
+        }
+        
+        private void scheduleWakeup(long delayNanos) {
+            if (wakeupPending) {
+                return;
+            }
+            wakeupPending = true;
+            scheduler.schedule(() -> {
+                synchronized (this) {
+                    wakeupPending = false;
+                }
+                drain();
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
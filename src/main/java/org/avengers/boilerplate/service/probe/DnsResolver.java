@@ -0,0 +1,206 @@
+package org.avengers.boilerplate.service.probe;
+
+import com.google.common.base.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DNS stage of the probe pipeline. Lookups run on a dedicated pool, so a slow
+ * resolver never holds a handshake worker, and answers are cached: positive
+ * answers for {@code positiveTtl}, failures for {@code negativeTtl} so dead
+ * names fail fast. Concurrent requests for the same name share one lookup.
+ * The cache holds at most {@code maxEntries} names; past that, expired
+ * answers are dropped first and then arbitrary live ones.
+ * <p>
+ * The JDK resolver does not expose record TTLs, so both lifetimes are
+ * configured rather than taken from the answer.
+ */
+@Slf4j
+public class DnsResolver implements AutoCloseable {
+    
+    @FunctionalInterface
+    interface Lookup {
+        InetAddress resolve(String host) throws UnknownHostException;
+    }
+    
+    private final Lookup lookup;
+    private final ExecutorService executor;
+    private final long positiveTtlNanos;
+    private final long negativeTtlNanos;
+    private final int maxEntries;
+    private final Ticker ticker;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    
+    private final Counter hits;
+    private final Counter negativeHits;
+    private final Counter misses;
+    private final Counter failures;
+    
+    public DnsResolver(int threads, Duration positiveTtl, Duration negativeTtl, int maxEntries,
+                       MeterRegistry meterRegistry) {
+        this(InetAddress::getByName, Executors.newFixedThreadPool(Math.max(1, threads), daemonThreads()),
+                positiveTtl, negativeTtl, maxEntries, meterRegistry, Ticker.systemTicker());
+    }
+    
+    DnsResolver(Lookup lookup, ExecutorService executor, Duration positiveTtl, Duration negativeTtl,
+                int maxEntries, MeterRegistry meterRegistry, Ticker ticker) {
+        this.lookup = lookup;
+        this.executor = executor;
+        this.positiveTtlNanos = positiveTtl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.maxEntries = maxEntries;
+        this.ticker = ticker;
+        
+        this.hits = cacheCounter(meterRegistry, "hit");
+        this.negativeHits = cacheCounter(meterRegistry, "negative_hit");
+        this.misses = cacheCounter(meterRegistry, "miss");
+        this.failures = Counter.builder("ssl.monitor.dns.failures")
+                .description("DNS lookups that returned no address")
+                .register(meterRegistry);
+        Gauge.builder("ssl.monitor.dns.cache.size", cache, Map::size)
+                .description("Names held in the DNS cache, including in-flight lookups")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Address for {@code host}, from the cache when fresh. The returned future
+     * may be shared with other callers, so apply timeouts to a {@code copy()}.
+     */
+    public CompletableFuture<InetAddress> resolve(String host) {
+        long now = ticker.read();
+        Entry[] created = new Entry[1];
+        Entry entry = cache.compute(host, (name, current) -> {
+            if (current != null && !current.isExpired(now)) {
+                return current;
+            }
+            created[0] = new Entry();
+            return created[0];
+        });
+        
+        if (created[0] == null) {
+            (entry.future.isCompletedExceptionally() ? negativeHits : hits).increment();
+            return entry.future;
+        }
+        
+        misses.increment();
+        evictIfFull(now);
+        try {
+            executor.execute(() -> runLookup(host, entry));
+        } catch (RejectedExecutionException e) {
+            cache.remove(host, entry);
+            entry.future.completeExceptionally(e);
+        }
+        return entry.future;
+    }
+    
+    /**
+     * Warm the cache for names that are about to be probed. Names that are
+     * already cached or being resolved are left alone.
+     */
+    public void prefetch(Collection<String> hosts) {
+        for (String host : hosts) {
+            resolve(host);
+        }
+    }
+    
+    public int getCacheSize() {
+        return cache.size();
+    }
+    
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Probe error message for a failed or timed out lookup.
+     */
+    static String failureMessage(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof TimeoutException) {
+            return "Connection failed: DNS resolution timed out";
+        }
+        if (cause instanceof IOException) {
+            return "Connection failed: " + cause.getMessage();
+        }
+        return "Unexpected error: " + cause.getMessage();
+    }
+    
+    private void runLookup(String host, Entry entry) {
+        try {
+            InetAddress address = lookup.resolve(host);
+            entry.expiresAtNanos = ticker.read() + positiveTtlNanos;
+            entry.future.complete(address);
+        } catch (Exception e) {
+            log.debug("DNS lookup failed for {}: {}", host, e.getMessage());
+            failures.increment();
+            entry.expiresAtNanos = ticker.read() + negativeTtlNanos;
+            entry.future.completeExceptionally(e);
+        }
+    }
+    
+    private void evictIfFull(long now) {
+        if (cache.size() <= maxEntries) {
+            return;
+        }
+        cache.values().removeIf(entry -> entry.isExpired(now));
+        // Still full of live answers: drop arbitrary ones, they are looked up again on demand
+        Iterator<Entry> entries = cache.values().iterator();
+        while (cache.size() > maxEntries && entries.hasNext()) {
+            entries.next();
+            entries.remove();
+        }
+    }
+    
+    private static Counter cacheCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ssl.monitor.dns.cache")
+                .description("DNS cache lookups by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+    
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "SSL-DNS-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    private static final class Entry {
+        
+        final CompletableFuture<InetAddress> future = new CompletableFuture<>();
+        
+        // Stays at MAX_VALUE while the lookup is in flight
+        volatile long expiresAtNanos = Long.MAX_VALUE;
+        
+        boolean isExpired(long now) {
+            return expiresAtNanos != Long.MAX_VALUE && now - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package org.avengers.boilerplate.service.probe;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLSession;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking probe engine. Each handshake is a {@link SocketChannel} driven
+ * through an {@link SSLEngine} by one of a small number of selector threads,
+ * so thousands of handshakes can be in flight without a thread apiece.
+ * Connect and handshake deadlines come from the probe's {@link ProbeClock}.
+ * The engine's delegated tasks (certificate and key exchange work) run on
+ * {@code taskExecutor}, so a slow one holds up only its own handshake rather
+ * than every connection on the selector. That executor must never run them
+ * on the submitting thread; a handshake whose tasks it rejects fails.
+ */
+@Slf4j
+public class NioCertificateProbe implements CertificateProbe, AutoCloseable {
+    
+    private static final long TICK_MILLIS = 50;
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+    
+    private final SSLContext sslContext;
+    private final ProbeTimeouts timeouts;
+    private final DnsResolver dnsResolver;
+    private final Executor taskExecutor;
+    private final SelectorLoop[] loops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    
+    public NioCertificateProbe(SSLContext sslContext, ProbeTimeouts timeouts,
+                               int selectorThreads, int maxInFlight, DnsResolver dnsResolver,
+                               Executor taskExecutor) throws IOException {
+        this.sslContext = sslContext;
+        this.timeouts = timeouts;
+        this.dnsResolver = dnsResolver;
+        this.taskExecutor = taskExecutor;
+        
+        int threads = Math.max(1, selectorThreads);
+        int perLoop = Math.max(1, maxInFlight / threads);
+        this.loops = new SelectorLoop[threads];
+        for (int i = 0; i < threads; i++) {
+            loops[i] = new SelectorLoop("SSL-Probe-Selector-" + i, perLoop);
+            loops[i].start();
+        }
+        log.info("NIO probe engine started with {} selector threads, {} handshakes in flight per thread", threads, perLoop);
+    }
+    
+    @Override
+    public CompletableFuture<ProbeResult> probe(String host, int port) {
+        ProbeClock clock = timeouts.startClock(host, port);
+        CompletableFuture<ProbeResult> future = new CompletableFuture<>();
+        
+        int dnsTimeout;
+        try {
+            dnsTimeout = clock.dnsTimeout();
+        } catch (SocketTimeoutException e) {
+            future.complete(clock.complete(
+                    ProbeResult.failure(ProbeFailure.TIMEOUT, "Connection failed: " + e.getMessage(), 0)));
+            return future;
+        }
+        
+        dnsResolver.resolve(host).copy()
+                .orTimeout(dnsTimeout, TimeUnit.MILLISECONDS)
+                .whenComplete((address, error) -> {
+                    if (error == null) {
+                        clock.dnsDone();
+                        int index = Math.floorMod(nextLoop.getAndIncrement(), loops.length);
+                        loops[index].submit(new Handshake(host, port, new InetSocketAddress(address, port), clock, future));
+                        return;
+                    }
+                    
+                    String message = DnsResolver.failureMessage(error);
+                    log.warn("DNS resolution failed for domain {}: {}", host, message);
+                    future.complete(clock.complete(ProbeResult.failure(ProbeFailure.DNS, message, 0)));
+                });
+        
+        return future;
+    }
+    
+    @Override
+    public void close() {
+        for (SelectorLoop loop : loops) {
+            loop.shutdown();
+        }
+        for (SelectorLoop loop : loops) {
+            try {
+                loop.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    private static long deadlineAfter(int timeoutMs) {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+    
+    /**
+     * The peer hung up mid-handshake. Reported as the JDK's socket does, with
+     * an EOF cause, so it is classified a retryable reset.
+     */
+    private static SSLHandshakeException peerClosed() {
+        SSLHandshakeException e = new SSLHandshakeException("Remote host terminated the handshake");
+        e.initCause(new EOFException("SSL peer shut down incorrectly"));
+        return e;
+    }
+    
+    private final class SelectorLoop extends Thread {
+        
+        private final Selector selector;
+        private final Queue<Handshake> pending = new ConcurrentLinkedQueue<>();
+        // Handshakes whose delegated tasks have finished, to be driven on from here
+        private final Queue<Handshake> resumed = new ConcurrentLinkedQueue<>();
+        private final Set<Handshake> active = new HashSet<>();
+        private final int capacity;
+        // Application data is discarded, so one scratch buffer per loop is enough
+        private ByteBuffer scratch = ByteBuffer.allocate(0);
+        private volatile boolean running = true;
+        
+        SelectorLoop(String name, int capacity) throws IOException {
+            super(name);
+            setDaemon(true);
+            this.selector = Selector.open();
+            this.capacity = capacity;
+        }
+        
+        void submit(Handshake handshake) {
+            // Under the same lock as shutdown, so nothing is queued after the loop drained the queue
+            synchronized (pending) {
+                if (running) {
+                    pending.add(handshake);
+                    selector.wakeup();
+                    return;
+                }
+            }
+            handshake.finish(ProbeResult.failure("Unexpected error: probe engine is shut down", 0));
+        }
+        
+        void resume(Handshake handshake) {
+            resumed.add(handshake);
+            selector.wakeup();
+        }
+        
+        void shutdown() {
+            synchronized (pending) {
+                running = false;
+            }
+            selector.wakeup();
+        }
+        
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    admitPending();
+                    resumeAfterTasks();
+                    selector.select(TICK_MILLIS);
+                    
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (key.isValid()) {
+                            ((Handshake) key.attachment()).onReady(key);
+                        }
+                    }
+                    
+                    expireOverdue();
+                } catch (Exception e) {
+                    log.error("Unexpected error in probe selector loop: {}", e.getMessage(), e);
+                }
+            }
+            
+            List<Handshake> remaining = new ArrayList<>(active);
+            remaining.addAll(pending);
+            for (Handshake handshake : remaining) {
+                handshake.finish(ProbeResult.failure("Unexpected error: probe engine is shut down", 0));
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.warn("Failed to close probe selector: {}", e.getMessage());
+            }
+        }
+        
+        private void admitPending() {
+            Handshake handshake;
+            while (active.size() < capacity && (handshake = pending.poll()) != null) {
+                active.add(handshake);
+                handshake.start(this);
+            }
+        }
+        
+        private void resumeAfterTasks() {
+            Handshake handshake;
+            while ((handshake = resumed.poll()) != null) {
+                // Skipped when it timed out while its tasks ran
+                if (active.contains(handshake)) {
+                    handshake.resume();
+                }
+            }
+        }
+        
+        private void expireOverdue() {
+            long now = System.nanoTime();
+            List<Handshake> expired = new ArrayList<>();
+            for (Handshake handshake : active) {
+                if (now - handshake.deadlineNanos > 0) {
+                    expired.add(handshake);
+                }
+            }
+            for (Handshake handshake : expired) {
+                handshake.fail(new SocketTimeoutException(handshake.engine == null ? "Connect timed out" : "Read timed out"));
+            }
+        }
+        
+        ByteBuffer scratch(int size) {
+            if (scratch.capacity() < size) {
+                scratch = ByteBuffer.allocate(size);
+            }
+            scratch.clear();
+            return scratch;
+        }
+    }
+    
+    private final class Handshake {
+        
+        private final String host;
+        private final int port;
+        private final InetSocketAddress address;
+        private final ProbeClock clock;
+        private final CompletableFuture<ProbeResult> future;
+        
+        private SelectorLoop loop;
+        private SocketChannel channel;
+        private SelectionKey key;
+        private SSLEngine engine;
+        private ByteBuffer netIn;
+        private ByteBuffer netOut;
+        private long deadlineNanos = Long.MAX_VALUE;
+        
+        Handshake(String host, int port, InetSocketAddress address, ProbeClock clock,
+                  CompletableFuture<ProbeResult> future) {
+            this.host = host;
+            this.port = port;
+            this.address = address;
+            this.clock = clock;
+            this.future = future;
+        }
+        
+        void start(SelectorLoop owner) {
+            this.loop = owner;
+            clock.workerStarted();
+            try {
+                deadlineNanos = deadlineAfter(clock.connectTimeout());
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                
+                boolean connected = channel.connect(address);
+                key = channel.register(loop.selector, connected ? 0 : SelectionKey.OP_CONNECT, this);
+                if (connected) {
+                    onConnected();
+                }
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+        
+        void onReady(SelectionKey readyKey) {
+            try {
+                if (readyKey.isConnectable()) {
+                    if (channel.finishConnect()) {
+                        onConnected();
+                    }
+                    return;
+                }
+                if (readyKey.isReadable() && channel.read(netIn) < 0) {
+                    throw peerClosed();
+                }
+                drive();
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+        
+        private void onConnected() throws IOException {
+            clock.connectDone();
+            engine = sslContext.createSSLEngine(host, port);
+            engine.setUseClientMode(true);
+            
+            SSLSession session = engine.getSession();
+            netIn = ByteBuffer.allocate(session.getPacketBufferSize());
+            netOut = ByteBuffer.allocate(session.getPacketBufferSize());
+            
+            deadlineNanos = deadlineAfter(clock.handshakeTimeout());
+            engine.beginHandshake();
+            drive();
+        }
+        
+        /**
+         * Advance the handshake as far as the buffered data allows, then
+         * register interest in whatever the engine is waiting for.
+         */
+        private void drive() throws IOException {
+            while (true) {
+                if (netOut.position() > 0) {
+                    netOut.flip();
+                    channel.write(netOut);
+                    netOut.compact();
+                    if (netOut.position() > 0) {
+                        key.interestOps(SelectionKey.OP_WRITE);
+                        return;
+                    }
+                }
+                
+                switch (engine.getHandshakeStatus()) {
+                    case NEED_WRAP -> {
+                        SSLEngineResult result = engine.wrap(EMPTY, netOut);
+                        if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                            netOut = enlarge(netOut, engine.getSession().getPacketBufferSize());
+                        } else if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                            throw peerClosed();
+                        } else if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.FINISHED) {
+                            complete();
+                            return;
+                        }
+                    }
+                    case NEED_UNWRAP, NEED_UNWRAP_AGAIN -> {
+                        netIn.flip();
+                        SSLEngineResult result = engine.unwrap(netIn, loop.scratch(engine.getSession().getApplicationBufferSize()));
+                        netIn.compact();
+                        
+                        switch (result.getStatus()) {
+                            case BUFFER_UNDERFLOW -> {
+                                if (netIn.position() == netIn.capacity()) {
+                                    netIn = enlarge(netIn, engine.getSession().getPacketBufferSize());
+                                } else {
+                                    key.interestOps(SelectionKey.OP_READ);
+                                    return;
+                                }
+                            }
+                            case CLOSED -> throw peerClosed();
+                            case OK -> {
+                                if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.FINISHED) {
+                                    complete();
+                                    return;
+                                }
+                                if (result.bytesConsumed() == 0 && result.bytesProduced() == 0
+                                        && result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_UNWRAP) {
+                                    key.interestOps(SelectionKey.OP_READ);
+                                    return;
+                                }
+                            }
+                            case BUFFER_OVERFLOW -> {
+                                // The scratch buffer is resized from the session on the next pass
+                            }
+                        }
+                    }
+                    case NEED_TASK -> {
+                        runDelegatedTasks();
+                        return;
+                    }
+                    case FINISHED, NOT_HANDSHAKING -> {
+                        complete();
+                        return;
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Hand the engine's tasks to the task executor; the selector ignores
+         * the channel until they are done and the loop drives it on.
+         */
+        private void runDelegatedTasks() {
+            List<Runnable> tasks = new ArrayList<>();
+            Runnable task;
+            while ((task = engine.getDelegatedTask()) != null) {
+                tasks.add(task);
+            }
+            key.interestOps(0);
+            Runnable runAll = () -> {
+                try {
+                    tasks.forEach(Runnable::run);
+                } finally {
+                    loop.resume(this);
+                }
+            };
+            try {
+                taskExecutor.execute(runAll);
+            } catch (RejectedExecutionException e) {
+                // Running them here would stall every handshake on this selector
+                fail(e);
+            }
+        }
+        
+        void resume() {
+            try {
+                drive();
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+        
+        private void complete() throws IOException {
+            clock.handshakeDone();
+            SSLSession session = engine.getSession();
+            Certificate[] certificates = session.getPeerCertificates();
+            if (certificates.length > 0 && certificates[0] instanceof X509Certificate) {
+                X509Certificate[] chain = Arrays.stream(certificates)
+                        .filter(X509Certificate.class::isInstance)
+                        .map(X509Certificate.class::cast)
+                        .toArray(X509Certificate[]::new);
+                finish(ProbeResult.success(chain, ProbeResult.stapledOcspResponse(session), 0));
+            } else {
+                log.warn("No valid X509 certificate found for domain: {}", host);
+                finish(ProbeResult.failure("No valid X509 certificate found", 0));
+            }
+        }
+        
+        void fail(Throwable e) {
+            ProbeResult captured = CapturingTrustManager.capturedResult(e);
+            if (captured != null) {
+                // Capture mode: the chain is in hand, so the aborted handshake is a success
+                clock.handshakeDone();
+                finish(captured);
+                return;
+            }
+            String message;
+            if (e instanceof SSLHandshakeException) {
+                message = "SSL handshake failed: " + e.getMessage();
+                log.warn("SSL handshake failed for domain {}: {}", host, e.getMessage());
+            } else if (e instanceof IOException) {
+                message = "Connection failed: " + e.getMessage();
+                log.warn("Connection failed for domain {}: {}", host, e.getMessage());
+            } else {
+                message = "Unexpected error: " + e.getMessage();
+                log.error("Unexpected error checking SSL certificate for domain {}: {}", host, e.getMessage(), e);
+            }
+            finish(ProbeResult.failure(ProbeFailure.classify(e), message, 0));
+        }
+        
+        void finish(ProbeResult result) {
+            if (loop != null) {
+                loop.active.remove(this);
+            }
+            if (key != null) {
+                key.cancel();
+            }
+            if (engine != null) {
+                engine.closeOutbound();
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.debug("Failed to close probe channel for {}: {}", host, e.getMessage());
+                }
+            }
+            future.complete(clock.complete(result));
+        }
+        
+        private ByteBuffer enlarge(ByteBuffer buffer, int minimum) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(minimum, buffer.capacity() * 2));
+            buffer.flip();
+            larger.put(buffer);
+            return larger;
+        }
+    }
+}
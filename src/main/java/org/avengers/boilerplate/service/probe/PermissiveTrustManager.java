@@ -0,0 +1,49 @@
+package org.avengers.boilerplate.service.probe;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.net.Socket;
+import java.security.cert.X509Certificate;
+
+/**
+ * Lets every handshake complete whatever chain the server presents, so
+ * probes capture untrusted, expired and misissued certificates instead of
+ * failing with a bare handshake error. Trust is decided afterwards from the
+ * captured chain by {@link ChainValidator}.
+ * <p>
+ * Probes never send application data, so nothing is exposed by accepting
+ * a chain that would otherwise be rejected.
+ */
+public class PermissiveTrustManager extends X509ExtendedTrustManager {
+    
+    private static final X509Certificate[] NO_ISSUERS = new X509Certificate[0];
+    
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType) {
+    }
+    
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) {
+    }
+    
+    @Override
+    public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+    }
+    
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType) {
+    }
+    
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) {
+    }
+    
+    @Override
+    public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+    }
+    
+    @Override
+    public X509Certificate[] getAcceptedIssuers() {
+        return NO_ISSUERS;
+    }
+}
@@ -0,0 +1,170 @@
+package org.avengers.boilerplate.service.probe;
+
+import org.avengers.boilerplate.service.jfr.ProbeEvent;
+import org.avengers.boilerplate.service.jfr.ProbePhaseEvent;
+
+import java.net.SocketTimeoutException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks one probe against its {@link ProbeTimeouts}: hands out the time left
+ * for each phase and records how long each phase actually took, also as
+ * flight recorder events for the attempt and each of its phases. Time spent
+ * queued for a worker between phases counts towards neither.
+ * Not thread-safe; a probe only ever advances on one thread at a time.
+ */
+public class ProbeClock {
+    
+    private final ProbeTimeouts timeouts;
+    private final String host;
+    private final int port;
+    private final long startNanos;
+    private long lapNanos;
+    private long queuedNanos;
+    private final ProbeEvent attemptEvent = new ProbeEvent();
+    private ProbePhaseEvent phaseEvent;
+    
+    private Long dnsMs;
+    private Long connectMs;
+    private Long handshakeMs;
+    
+    ProbeClock(ProbeTimeouts timeouts, String host, int port) {
+        this.timeouts = timeouts;
+        this.host = host;
+        this.port = port;
+        this.startNanos = System.nanoTime();
+        this.lapNanos = startNanos;
+        attemptEvent.begin();
+        beginPhase();
+    }
+    
+    public int dnsTimeout() throws SocketTimeoutException {
+        return phaseTimeout(timeouts.getDnsMs(), "DNS resolution");
+    }
+    
+    public int connectTimeout() throws SocketTimeoutException {
+        return phaseTimeout(timeouts.getConnectMs(), "Connect");
+    }
+    
+    public int handshakeTimeout() throws SocketTimeoutException {
+        return phaseTimeout(timeouts.getHandshakeMs(), "Handshake");
+    }
+    
+    public void dnsDone() {
+        endPhase("dns", "ok");
+        dnsMs = lap();
+        beginPhase();
+    }
+    
+    /**
+     * A worker picked the probe up after {@link #dnsDone()}; the wait for it
+     * is left out of the elapsed time, the deadline and the connect phase.
+     */
+    public void workerStarted() {
+        long now = System.nanoTime();
+        queuedNanos += now - lapNanos;
+        lapNanos = now;
+        if (phaseEvent != null) {
+            beginPhase();
+        }
+    }
+    
+    public void connectDone() {
+        endPhase("connect", "ok");
+        connectMs = lap();
+        beginPhase();
+    }
+    
+    public void handshakeDone() {
+        endPhase("handshake", "ok");
+        handshakeMs = lap();
+        phaseEvent = null;
+    }
+    
+    public long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos - queuedNanos);
+    }
+    
+    /**
+     * Stamp the phase timings collected so far onto a result.
+     */
+    public ProbeResult complete(ProbeResult result) {
+        ProbeFailure failure = result.getFailure() != null ? result.getFailure() : ProbeFailure.OTHER;
+        String outcome = result.isSuccess() ? "success" : failure.name().toLowerCase(Locale.ROOT);
+        if (phaseEvent != null) {
+            // The phase in progress is the one that failed
+            endPhase(dnsMs == null ? "dns" : connectMs == null ? "connect" : "handshake", outcome);
+            phaseEvent = null;
+        }
+        commitAttempt(result, outcome);
+        return result.toBuilder()
+                .elapsedMs(elapsedMillis())
+                .dnsMs(dnsMs)
+                .connectMs(connectMs)
+                .handshakeMs(handshakeMs)
+                .build();
+    }
+    
+    private int phaseTimeout(int phaseLimitMs, String phase) throws SocketTimeoutException {
+        long remaining = timeouts.getTotalMs() - elapsedMillis();
+        long timeout = Math.min(phaseLimitMs, remaining);
+        if (timeout <= 0) {
+            throw new SocketTimeoutException(phase + " timed out: probe deadline exceeded");
+        }
+        return (int) timeout;
+    }
+    
+    private void beginPhase() {
+        phaseEvent = new ProbePhaseEvent();
+        phaseEvent.begin();
+    }
+    
+    private void endPhase(String phase, String outcome) {
+        ProbePhaseEvent event = phaseEvent;
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.host = host;
+            event.port = port;
+            event.phase = phase;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+    
+    private void commitAttempt(ProbeResult result, String outcome) {
+        attemptEvent.end();
+        if (!attemptEvent.shouldCommit()) {
+            return;
+        }
+        attemptEvent.host = host;
+        attemptEvent.port = port;
+        attemptEvent.outcome = outcome;
+        X509Certificate[] chain = result.getPeerCertificates();
+        if (chain != null) {
+            attemptEvent.chainLength = chain.length;
+            for (X509Certificate certificate : chain) {
+                try {
+                    attemptEvent.chainBytes += certificate.getEncoded().length;
+                } catch (CertificateEncodingException e) {
+                    // Left out of the size; the check reports the unreadable certificate
+                }
+            }
+        }
+        byte[] stapled = result.getStapledOcspResponse();
+        attemptEvent.stapledOcspBytes = stapled != null ? stapled.length : 0;
+        attemptEvent.commit();
+    }
+    
+    private long lap() {
+        long now = System.nanoTime();
+        long lapMs = TimeUnit.NANOSECONDS.toMillis(now - lapNanos);
+        lapNanos = now;
+        return lapMs;
+    }
+}
@@ -0,0 +1,62 @@
+package org.avengers.boilerplate.service.probe;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.net.InetAddress;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight probing: while a handshake to an (address, SNI, port) target
+ * is in flight, further requests for the same target share its result
+ * instead of opening another connection. Once the probe completes the target
+ * is forgotten, so later requests probe afresh.
+ */
+public class ProbeCoalescer {
+    
+    private record Target(InetAddress address, String serverName, int port) {
+    }
+    
+    private final Map<Target, CompletableFuture<ProbeResult>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+    
+    public ProbeCoalescer(MeterRegistry meterRegistry) {
+        this.coalesced = Counter.builder("ssl.monitor.probe.coalesced")
+                .description("Probe requests served by a handshake already in flight")
+                .register(meterRegistry);
+    }
+    
+    public CompletableFuture<ProbeResult> probe(InetAddress address, String serverName, int port,
+                                                Supplier<CompletableFuture<ProbeResult>> probe) {
+        Target target = new Target(address, serverName.toLowerCase(Locale.ROOT), port);
+        CompletableFuture<ProbeResult> shared = new CompletableFuture<>();
+        CompletableFuture<ProbeResult> existing = inFlight.putIfAbsent(target, shared);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+        
+        try {
+            probe.get().whenComplete((result, error) -> {
+                inFlight.remove(target, shared);
+                if (error != null) {
+                    shared.completeExceptionally(error);
+                } else {
+                    shared.complete(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(target, shared);
+            shared.completeExceptionally(e);
+        }
+        return shared;
+    }
+    
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
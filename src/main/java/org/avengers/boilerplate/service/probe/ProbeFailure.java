@@ -0,0 +1,45 @@
+package org.avengers.boilerplate.service.probe;
+
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLHandshakeException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+/**
+ * Why a probe failed, coarse enough to decide whether another attempt could
+ * succeed. Resets and timeouts are usually transient; handshake failures
+ * (untrusted chain, protocol mismatch) are not.
+ */
+public enum ProbeFailure {
+    
+    DNS,
+    TIMEOUT,
+    REFUSED,
+    RESET,
+    HANDSHAKE,
+    OTHER;
+    
+    public static ProbeFailure classify(Throwable error) {
+        if (error instanceof SSLHandshakeException) {
+            // The JDK reports a peer hanging up mid-handshake as a handshake failure
+            Throwable cause = error.getCause();
+            return cause instanceof IOException && !(cause instanceof SSLException) ? RESET : HANDSHAKE;
+        }
+        if (error instanceof SocketTimeoutException) {
+            return TIMEOUT;
+        }
+        if (error instanceof UnknownHostException) {
+            return DNS;
+        }
+        if (error instanceof ConnectException || error instanceof NoRouteToHostException) {
+            return REFUSED;
+        }
+        if (error instanceof IOException) {
+            return RESET;
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,85 @@
+package org.avengers.boilerplate.service.probe;
+
+import lombok.Builder;
+import lombok.Value;
+
+import javax.net.ssl.ExtendedSSLSession;
+import javax.net.ssl.SSLSession;
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+/**
+ * Outcome of a single TLS probe: the peer certificate chain presented by the
+ * server, or the reason the handshake could not be completed.
+ */
+@Value
+@Builder(toBuilder = true)
+public class ProbeResult {
+    
+    X509Certificate[] peerCertificates;
+    
+    // OCSP response the server stapled for the leaf, null when it sent none
+    byte[] stapledOcspResponse;
+    
+    String errorMessage;
+    
+    ProbeFailure failure;
+    
+    long elapsedMs;
+    
+    // Time spent in each phase; null when the probe failed before reaching it
+    Long dnsMs;
+    
+    Long connectMs;
+    
+    Long handshakeMs;
+    
+    // Attempts made before this result, including retries
+    @Builder.Default
+    int attempts = 1;
+    
+    public boolean isSuccess() {
+        return errorMessage == null && peerCertificates != null && peerCertificates.length > 0;
+    }
+    
+    public X509Certificate getLeafCertificate() {
+        return isSuccess() ? peerCertificates[0] : null;
+    }
+    
+    public static ProbeResult success(X509Certificate[] peerCertificates, long elapsedMs) {
+        return success(peerCertificates, null, elapsedMs);
+    }
+    
+    public static ProbeResult success(X509Certificate[] peerCertificates, byte[] stapledOcspResponse, long elapsedMs) {
+        return ProbeResult.builder()
+                .peerCertificates(peerCertificates)
+                .stapledOcspResponse(stapledOcspResponse)
+                .elapsedMs(elapsedMs)
+                .build();
+    }
+    
+    /**
+     * The leaf's stapled OCSP response from a completed handshake, or null.
+     */
+    static byte[] stapledOcspResponse(SSLSession session) {
+        if (session instanceof ExtendedSSLSession extended) {
+            List<byte[]> responses = extended.getStatusResponses();
+            if (!responses.isEmpty() && responses.get(0).length > 0) {
+                return responses.get(0);
+            }
+        }
+        return null;
+    }
+    
+    public static ProbeResult failure(String errorMessage, long elapsedMs) {
+        return failure(ProbeFailure.OTHER, errorMessage, elapsedMs);
+    }
+    
+    public static ProbeResult failure(ProbeFailure failure, String errorMessage, long elapsedMs) {
+        return ProbeResult.builder()
+                .failure(failure)
+                .errorMessage(errorMessage)
+                .elapsedMs(elapsedMs)
+                .build();
+    }
+}
@@ -0,0 +1,116 @@
+package org.avengers.boilerplate.service.probe;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Retries probes that failed for a transient reason. A failed attempt is put
+ * on a delay queue with jittered exponential backoff and dispatched again when
+ * its delay expires, so nothing holds a worker thread while waiting. Only
+ * failure kinds in {@code retryOn} are retried; the final result carries the
+ * number of attempts made.
+ */
+@Slf4j
+public class ProbeRetryScheduler implements AutoCloseable {
+    
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final Set<ProbeFailure> retryOn;
+    private final ScheduledExecutorService scheduler;
+    private final MeterRegistry meterRegistry;
+    private final Map<ProbeFailure, Counter> retries = new ConcurrentHashMap<>();
+    
+    public ProbeRetryScheduler(Duration baseDelay, Duration maxDelay, Set<ProbeFailure> retryOn,
+                               MeterRegistry meterRegistry) {
+        this.baseDelayMs = Math.max(1, baseDelay.toMillis());
+        this.maxDelayMs = Math.max(baseDelayMs, maxDelay.toMillis());
+        this.retryOn = retryOn.isEmpty() ? EnumSet.noneOf(ProbeFailure.class) : EnumSet.copyOf(retryOn);
+        this.meterRegistry = meterRegistry;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SSL-Probe-Retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Runs {@code attempt}, and again up to {@code maxRetries} more times
+     * while it fails with a retryable kind. Each attempt is started afresh,
+     * so it re-acquires whatever permits it needs.
+     */
+    public CompletableFuture<ProbeResult> withRetries(Supplier<CompletableFuture<ProbeResult>> attempt,
+                                                      int maxRetries) {
+        CompletableFuture<ProbeResult> outcome = new CompletableFuture<>();
+        dispatch(attempt, 1, Math.max(0, maxRetries), outcome);
+        return outcome;
+    }
+    
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+    
+    /**
+     * Equal jitter: half the exponential delay is fixed, the other half random,
+     * so retries after a shared outage spread out instead of arriving together.
+     */
+    long backoffMillis(int retry) {
+        long ceiling = Math.min(maxDelayMs, baseDelayMs << Math.min(retry - 1, 20));
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+    
+    private void dispatch(Supplier<CompletableFuture<ProbeResult>> attempt, int number, int maxRetries,
+                          CompletableFuture<ProbeResult> outcome) {
+        CompletableFuture<ProbeResult> running;
+        try {
+            running = attempt.get();
+        } catch (RuntimeException e) {
+            outcome.completeExceptionally(e);
+            return;
+        }
+        
+        running.whenComplete((result, error) -> {
+            if (error != null) {
+                outcome.completeExceptionally(error);
+                return;
+            }
+            if (!result.isSuccess() && number <= maxRetries && retryOn.contains(result.getFailure())) {
+                long delay = backoffMillis(number);
+                try {
+                    scheduler.schedule(() -> dispatch(attempt, number + 1, maxRetries, outcome),
+                            delay, TimeUnit.MILLISECONDS);
+                    retryCounter(result.getFailure()).increment();
+                    log.debug("Retrying probe in {}ms after {} failure: {}", delay, result.getFailure(),
+                            result.getErrorMessage());
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // Shutting down, report the failure we have
+                }
+            }
+            outcome.complete(result.toBuilder().attempts(number).build());
+        });
+    }
+    
+    private Counter retryCounter(ProbeFailure failure) {
+        return retries.computeIfAbsent(failure, kind -> Counter.builder("ssl.monitor.probe.retries")
+                .description("Probe attempts re-dispatched after a transient failure")
+                .tag("kind", kind.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,24 @@
+package org.avengers.boilerplate.service.probe;
+
+import lombok.Value;
+
+/**
+ * Deadline budget for one probe. Each phase has its own limit, and all phases
+ * together are bounded by {@code totalMs}, so a probe never occupies a worker
+ * or a selector slot for longer than the total.
+ */
+@Value
+public class ProbeTimeouts {
+    
+    int dnsMs;
+    
+    int connectMs;
+    
+    int handshakeMs;
+    
+    int totalMs;
+    
+    public ProbeClock startClock(String host, int port) {
+        return new ProbeClock(this, host, port);
+    }
+}
@@ -0,0 +1,181 @@
+package org.avengers.boilerplate.service.probe;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Blocking probe engine: one {@link SSLSocket} per check, occupying a pool
+ * thread for the connect and handshake. Names are resolved by the
+ * {@link DnsResolver} stage before a worker is taken. Every phase is bounded
+ * by {@link ProbeTimeouts}, with a watchdog closing the socket if the
+ * handshake overruns its budget.
+ */
+@Slf4j
+public class SocketCertificateProbe implements CertificateProbe {
+    
+    private final SSLSocketFactory socketFactory;
+    private final ProbeTimeouts timeouts;
+    private final Executor executor;
+    private final DnsResolver dnsResolver;
+    private final ScheduledExecutorService watchdog;
+    
+    public SocketCertificateProbe(SSLContext sslContext, ProbeTimeouts timeouts, Executor executor,
+                                  DnsResolver dnsResolver, ScheduledExecutorService watchdog) {
+        this.socketFactory = sslContext.getSocketFactory();
+        this.timeouts = timeouts;
+        this.executor = executor;
+        this.dnsResolver = dnsResolver;
+        this.watchdog = watchdog;
+    }
+    
+    @Override
+    public CompletableFuture<ProbeResult> probe(String host, int port) {
+        ProbeClock clock = timeouts.startClock(host, port);
+        CompletableFuture<InetAddress> lookup;
+        try {
+            lookup = dnsResolver.resolve(host).copy().orTimeout(clock.dnsTimeout(), TimeUnit.MILLISECONDS);
+        } catch (SocketTimeoutException e) {
+            return CompletableFuture.completedFuture(dnsFailure(host, e, clock));
+        }
+        
+        // Dead or slow names are settled here and never reach a worker
+        return lookup.handle((address, error) -> {
+            if (error != null) {
+                return CompletableFuture.completedFuture(dnsFailure(host, error, clock));
+            }
+            clock.dnsDone();
+            return dispatch(host, address, port, clock);
+        }).thenCompose(Function.identity());
+    }
+    
+    @Override
+    public ProbeResult probeNow(String host, int port) {
+        ProbeClock clock = timeouts.startClock(host, port);
+        InetAddress address;
+        try {
+            address = dnsResolver.resolve(host).get(clock.dnsTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return clock.complete(ProbeResult.failure("Unexpected error: probe interrupted", 0));
+        } catch (Exception e) {
+            return dnsFailure(host, e, clock);
+        }
+        clock.dnsDone();
+        return connect(host, address, port, clock);
+    }
+    
+    /**
+     * Hands the blocking part to a worker. The executor must not run it on
+     * the calling thread, which completed the lookup and is shared with
+     * other probes; a probe it rejects fails instead.
+     */
+    private CompletableFuture<ProbeResult> dispatch(String host, InetAddress address, int port, ProbeClock clock) {
+        try {
+            return CompletableFuture.supplyAsync(() -> connect(host, address, port, clock), executor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Probe pool full, not probing {}", host);
+            return CompletableFuture.completedFuture(
+                    clock.complete(ProbeResult.failure("Unexpected error: probe pool is full", 0)));
+        }
+    }
+    
+    private ProbeResult connect(String host, InetAddress address, int port, ProbeClock clock) {
+        clock.workerStarted();
+        AtomicBoolean handshakeExpired = new AtomicBoolean();
+        
+        try (Socket raw = new Socket()) {
+            raw.connect(new InetSocketAddress(address, port), clock.connectTimeout());
+            clock.connectDone();
+            
+            try (SSLSocket socket = (SSLSocket) socketFactory.createSocket(raw, host, port, true)) {
+                int handshakeTimeout = clock.handshakeTimeout();
+                socket.setSoTimeout(handshakeTimeout);
+                
+                // SO_TIMEOUT only bounds each read, so cap the handshake as a whole
+                ScheduledFuture<?> expiry = watchdog.schedule(() -> {
+                    handshakeExpired.set(true);
+                    closeQuietly(socket);
+                }, handshakeTimeout, TimeUnit.MILLISECONDS);
+                ProbeResult captured = null;
+                try {
+                    socket.startHandshake();
+                } catch (SSLException e) {
+                    // In capture mode the trust manager ends the handshake once it has the chain
+                    captured = CapturingTrustManager.capturedResult(e);
+                    if (captured == null) {
+                        throw e;
+                    }
+                } finally {
+                    expiry.cancel(false);
+                }
+                clock.handshakeDone();
+                if (captured != null) {
+                    return clock.complete(captured);
+                }
+                
+                SSLSession session = socket.getSession();
+                Certificate[] certificates = session.getPeerCertificates();
+                if (certificates.length > 0 && certificates[0] instanceof X509Certificate) {
+                    X509Certificate[] chain = Arrays.stream(certificates)
+                            .filter(X509Certificate.class::isInstance)
+                            .map(X509Certificate.class::cast)
+                            .toArray(X509Certificate[]::new);
+                    return clock.complete(ProbeResult.success(chain, ProbeResult.stapledOcspResponse(session), 0));
+                }
+                
+                log.warn("No valid X509 certificate found for domain: {}", host);
+                return clock.complete(ProbeResult.failure("No valid X509 certificate found", 0));
+            }
+        
+        } catch (SSLHandshakeException e) {
+            log.warn("SSL handshake failed for domain {}: {}", host, e.getMessage());
+            return clock.complete(ProbeResult.failure(ProbeFailure.classify(e),
+                    "SSL handshake failed: " + e.getMessage(), 0));
+        } catch (IOException e) {
+            boolean expired = handshakeExpired.get();
+            String message = expired ? "Handshake timed out" : e.getMessage();
+            log.warn("Connection failed for domain {}: {}", host, message);
+            return clock.complete(ProbeResult.failure(expired ? ProbeFailure.TIMEOUT : ProbeFailure.classify(e),
+                    "Connection failed: " + message, 0));
+        } catch (Exception e) {
+            log.error("Unexpected error checking SSL certificate for domain {}: {}", host, e.getMessage(), e);
+            return clock.complete(ProbeResult.failure("Unexpected error: " + e.getMessage(), 0));
+        }
+    }
+    
+    private static ProbeResult dnsFailure(String host, Throwable error, ProbeClock clock) {
+        String message = DnsResolver.failureMessage(error);
+        log.warn("DNS resolution failed for domain {}: {}", host, message);
+        return clock.complete(ProbeResult.failure(ProbeFailure.DNS, message, 0));
+    }
+    
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.debug("Failed to close timed out probe socket: {}", e.getMessage());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,298 @@
+package org.avengers.boilerplate.service.revocation;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.asn1.ASN1IA5String;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.DistributionPointName;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509CRL;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CRL revocation checks for probed leaf certificates, for issuers that do
+ * not run an OCSP responder.
+ * <p>
+ * Each CRL named in a leaf's distribution points is downloaded to
+ * {@code directory}, verified against the issuer and indexed into a sorted
+ * serial file that is memory-mapped for lookups (see {@link SerialIndex}).
+ * A CRL is fetched again once its {@code nextUpdate} passes, or
+ * {@code defaultTtl} after its {@code thisUpdate} when it has none, and at
+ * least every {@code maxTtl}. Indexes on disk survive restarts. A failed
+ * download is retried after {@code failureTtl}; until then the previous CRL
+ * is used as long as it is still current. Concurrent checks against one CRL
+ * share a download.
+ */
+@Slf4j
+public class CrlStore {
+    
+    private final boolean enabled;
+    private final Path directory;
+    private final HttpClient httpClient;
+    private final Duration timeout;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+    private final Duration failureTtl;
+    private final Clock clock;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    
+    private final MeterRegistry meterRegistry;
+    
+    public CrlStore(boolean enabled, Path directory, HttpClient httpClient, Duration timeout, Duration defaultTtl,
+                    Duration maxTtl, Duration failureTtl, MeterRegistry meterRegistry) {
+        this(enabled, directory, httpClient, timeout, defaultTtl, maxTtl, failureTtl, meterRegistry,
+                Clock.systemUTC());
+    }
+    
+    CrlStore(boolean enabled, Path directory, HttpClient httpClient, Duration timeout, Duration defaultTtl,
+             Duration maxTtl, Duration failureTtl, MeterRegistry meterRegistry, Clock clock) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.httpClient = httpClient;
+        this.timeout = timeout;
+        this.defaultTtl = defaultTtl;
+        this.maxTtl = maxTtl;
+        this.failureTtl = failureTtl;
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+        if (enabled) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot create CRL directory " + directory, e);
+            }
+        }
+        
+        Gauge.builder("ssl.monitor.crl.cache.size", cache, Map::size)
+                .description("CRLs indexed or being downloaded")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Revocation status of {@code leaf} from its issuer's CRL. Completes with
+     * null when CRL checking is disabled or the leaf names no distribution
+     * point; never completes exceptionally.
+     */
+    public CompletableFuture<Revocation> check(X509Certificate leaf, X509Certificate issuer) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String url = distributionPoint(leaf);
+        if (url == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        String key;
+        try {
+            // Bound to the issuer key so a shared URL never answers for another issuer
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(issuer.getPublicKey().getEncoded());
+            key = HexFormat.of().formatHex(digest.digest(url.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(
+                    Revocation.unknown(Revocation.CRL, "Cannot identify CRL: " + e.getMessage()));
+        }
+        
+        Instant now = clock.instant();
+        Entry[] created = new Entry[1];
+        Entry[] previous = new Entry[1];
+        Entry entry = cache.compute(key, (name, current) -> {
+            if (current != null && !current.isExpired(now)) {
+                return current;
+            }
+            previous[0] = current;
+            created[0] = new Entry();
+            return created[0];
+        });
+        if (created[0] != null) {
+            load(key, url, issuer, now).whenComplete((loaded, error) -> {
+                Loaded settled = error == null ? loaded
+                        : failure("CRL download failed: " + error.getMessage(), now);
+                if (settled.index() == null) {
+                    settled = fallBack(previous[0], settled, now);
+                }
+                entry.expiresAt = settled.expiresAt();
+                entry.future.complete(settled);
+            });
+        }
+        return entry.future.thenApply(loaded -> loaded.lookup(leaf));
+    }
+    
+    public int getCacheSize() {
+        return cache.size();
+    }
+    
+    /**
+     * The index on disk when it is still current, otherwise a fresh download.
+     */
+    private CompletableFuture<Loaded> load(String key, String url, X509Certificate issuer, Instant now) {
+        Path indexPath = directory.resolve(key + ".idx");
+        if (Files.exists(indexPath)) {
+            try {
+                SerialIndex index = SerialIndex.open(indexPath);
+                if (refreshAt(index).isAfter(now)) {
+                    fetched("disk");
+                    return CompletableFuture.completedFuture(new Loaded(index, null, refreshAt(index)));
+                }
+            } catch (IOException e) {
+                log.debug("Discarding unreadable CRL index {}: {}", indexPath, e.getMessage());
+            }
+        }
+        
+        Path download;
+        try {
+            download = Files.createTempFile(directory, key, ".download");
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture(failure("Cannot store CRL: " + e.getMessage(), now));
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(timeout).GET().build();
+        // Streamed to disk; the CRL is only read back once, to verify and index it
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofFile(download))
+                .thenApply(response -> response.statusCode() == 200
+                        ? index(key, response.body(), issuer, indexPath)
+                        : failure("CRL distribution point returned HTTP " + response.statusCode(), now))
+                .whenComplete((loaded, error) -> {
+                    try {
+                        Files.deleteIfExists(download);
+                    } catch (IOException e) {
+                        log.debug("Cannot delete {}: {}", download, e.getMessage());
+                    }
+                });
+    }
+    
+    private Loaded index(String key, Path download, X509Certificate issuer, Path indexPath) {
+        Instant now = clock.instant();
+        try {
+            X509CRL crl;
+            try (InputStream in = Files.newInputStream(download)) {
+                crl = (X509CRL) CertificateFactory.getInstance("X.509").generateCRL(in);
+            }
+            if (!crl.getIssuerX500Principal().equals(issuer.getSubjectX500Principal())) {
+                return failure("CRL issued by " + crl.getIssuerX500Principal(), now);
+            }
+            crl.verify(issuer.getPublicKey());
+            if (crl.getNextUpdate() != null && crl.getNextUpdate().toInstant().isBefore(now)) {
+                return failure("CRL expired at " + crl.getNextUpdate().toInstant(), now);
+            }
+            
+            Files.move(download, directory.resolve(key + ".crl"), StandardCopyOption.REPLACE_EXISTING);
+            SerialIndex index = SerialIndex.write(indexPath, crl, now);
+            fetched("downloaded");
+            log.debug("Indexed CRL {} with {} revoked serials", key, index.size());
+            return new Loaded(index, null, refreshAt(index));
+        } catch (Exception e) {
+            return failure("Invalid CRL: " + e.getMessage(), now);
+        }
+    }
+    
+    private Instant refreshAt(SerialIndex index) {
+        Instant next = index.getNextUpdate() != null ? index.getNextUpdate() : index.getThisUpdate().plus(defaultTtl);
+        Instant latest = index.getFetchedAt().plus(maxTtl);
+        return next.isBefore(latest) ? next : latest;
+    }
+    
+    /**
+     * Keeps answering from the previous index while its CRL is still current.
+     */
+    private Loaded fallBack(Entry previous, Loaded failed, Instant now) {
+        Loaded last = previous != null ? previous.future.getNow(null) : null;
+        if (last != null && last.index() != null
+                && (last.index().getNextUpdate() == null || last.index().getNextUpdate().isAfter(now))) {
+            log.warn("Keeping previous CRL after refresh failure: {}", failed.failure());
+            return new Loaded(last.index(), null, now.plus(failureTtl));
+        }
+        return failed;
+    }
+    
+    private Loaded failure(String message, Instant now) {
+        fetched("failed");
+        return new Loaded(null, message, now.plus(failureTtl));
+    }
+    
+    private void fetched(String result) {
+        meterRegistry.counter("ssl.monitor.crl.fetches", "result", result).increment();
+    }
+    
+    /**
+     * First HTTP URL among the leaf's distribution points. Points delegated
+     * to another CRL issuer are skipped.
+     */
+    private static String distributionPoint(X509Certificate leaf) {
+        try {
+            CRLDistPoint points = CRLDistPoint.fromExtensions(new JcaX509CertificateHolder(leaf).getExtensions());
+            if (points == null) {
+                return null;
+            }
+            for (DistributionPoint point : points.getDistributionPoints()) {
+                DistributionPointName name = point.getDistributionPoint();
+                if (point.getCRLIssuer() != null || name == null || name.getType() != DistributionPointName.FULL_NAME) {
+                    continue;
+                }
+                for (GeneralName location : GeneralNames.getInstance(name.getName()).getNames()) {
+                    if (location.getTagNo() == GeneralName.uniformResourceIdentifier) {
+                        String url = ASN1IA5String.getInstance(location.getName()).getString();
+                        if (url.startsWith("http://") || url.startsWith("https://")) {
+                            return url;
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Cannot read CRL distribution points from certificate: {}", e.getMessage());
+        }
+        return null;
+    }
+    
+    private record Loaded(SerialIndex index, String failure, Instant expiresAt) {
+        
+        Revocation lookup(X509Certificate leaf) {
+            if (index == null) {
+                return Revocation.unknown(Revocation.CRL, failure);
+            }
+            SerialIndex.Entry revoked = index.find(leaf.getSerialNumber());
+            if (revoked == null) {
+                return Revocation.good(Revocation.CRL);
+            }
+            return Revocation.revoked(Revocation.CRL, revoked.revokedAt(),
+                    revoked.reason() != null ? revoked.reason().name() : null);
+        }
+    }
+    
+    private static final class Entry {
+        
+        final CompletableFuture<Loaded> future = new CompletableFuture<>();
+        
+        // Stays null while the CRL is being loaded
+        volatile Instant expiresAt;
+        
+        boolean isExpired(Instant now) {
+            Instant expiry = expiresAt;
+            return expiry != null && !now.isBefore(expiry);
+        }
+    }
+}
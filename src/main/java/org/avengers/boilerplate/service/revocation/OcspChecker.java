@@ -0,0 +1,349 @@
+package org.avengers.boilerplate.service.revocation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.asn1.ASN1IA5String;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
+import org.bouncycastle.cert.ocsp.SingleResp;
+import org.bouncycastle.cert.ocsp.UnknownStatus;
+import org.bouncycastle.operator.ContentVerifierProvider;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.cert.CRLReason;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OCSP revocation checks for probed leaf certificates. A response stapled to
+ * the handshake is used when it is valid; otherwise the responder named in
+ * the leaf's Authority Information Access extension is queried over HTTP.
+ * <p>
+ * Answers are cached by issuer key hash and serial number until the
+ * response's {@code nextUpdate}, or {@code defaultTtl} when it has none,
+ * and never longer than {@code maxTtl}. Unknown answers and unreachable
+ * responders are cached for {@code failureTtl} so a responder outage does
+ * not slow every check. Concurrent checks of one certificate share a query.
+ * The cache holds at most {@code maxEntries} answers.
+ */
+@Slf4j
+public class OcspChecker {
+    
+    private static final String OCSP_REQUEST = "application/ocsp-request";
+    // Tolerated clock difference between us and the responder
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(5);
+    
+    private final boolean enabled;
+    private final HttpClient httpClient;
+    private final Duration timeout;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+    private final Duration failureTtl;
+    private final int maxEntries;
+    private final Clock clock;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    
+    private final Counter hits;
+    private final Counter misses;
+    private final MeterRegistry meterRegistry;
+    
+    public OcspChecker(boolean enabled, HttpClient httpClient, Duration timeout, Duration defaultTtl, Duration maxTtl,
+                       Duration failureTtl, int maxEntries, MeterRegistry meterRegistry) {
+        this(enabled, httpClient, timeout, defaultTtl, maxTtl, failureTtl, maxEntries, meterRegistry,
+                Clock.systemUTC());
+    }
+    
+    OcspChecker(boolean enabled, HttpClient httpClient, Duration timeout, Duration defaultTtl, Duration maxTtl,
+                Duration failureTtl, int maxEntries, MeterRegistry meterRegistry, Clock clock) {
+        this.enabled = enabled;
+        this.httpClient = httpClient;
+        this.timeout = timeout;
+        this.defaultTtl = defaultTtl;
+        this.maxTtl = maxTtl;
+        this.failureTtl = failureTtl;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+        
+        this.hits = cacheCounter(meterRegistry, "hit");
+        this.misses = cacheCounter(meterRegistry, "miss");
+        Gauge.builder("ssl.monitor.ocsp.cache.size", cache, Map::size)
+                .description("Certificates with a cached OCSP answer, including queries in flight")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Revocation status of {@code leaf}, issued by {@code issuer}.
+     * {@code stapled} is the response the server stapled, or null. Completes
+     * with null when OCSP checking is disabled; never completes exceptionally.
+     */
+    public CompletableFuture<Revocation> check(X509Certificate leaf, X509Certificate issuer, byte[] stapled) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CertificateID id;
+        try {
+            if (!leaf.getIssuerX500Principal().equals(issuer.getSubjectX500Principal())) {
+                return CompletableFuture.completedFuture(
+                        Revocation.unknown(null, "Issuer certificate not presented"));
+            }
+            id = new CertificateID(new JcaDigestCalculatorProviderBuilder().build().get(CertificateID.HASH_SHA1),
+                    new JcaX509CertificateHolder(issuer), leaf.getSerialNumber());
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(
+                    Revocation.unknown(null, "Cannot identify certificate: " + e.getMessage()));
+        }
+        
+        String key = HexFormat.of().formatHex(id.getIssuerKeyHash()) + ":" + leaf.getSerialNumber().toString(16);
+        Instant now = clock.instant();
+        Entry cached = cache.get(key);
+        if (cached != null && !cached.isExpired(now)) {
+            hits.increment();
+            return cached.future;
+        }
+        
+        if (stapled != null) {
+            Answer answer = parse(stapled, id, issuer, Revocation.STAPLED, now);
+            if (answer.revocation().status() != Revocation.Status.UNKNOWN) {
+                Entry entry = new Entry();
+                entry.expiresAt = answer.expiresAt();
+                entry.future.complete(answer.revocation());
+                store(key, entry, now);
+                return entry.future;
+            }
+            log.debug("Ignoring stapled OCSP response for serial {}: {}", leaf.getSerialNumber(),
+                    answer.revocation().detail());
+        }
+        
+        Entry[] created = new Entry[1];
+        Entry entry = cache.compute(key, (name, current) -> {
+            if (current != null && !current.isExpired(now)) {
+                return current;
+            }
+            created[0] = new Entry();
+            return created[0];
+        });
+        if (created[0] == null) {
+            hits.increment();
+            return entry.future;
+        }
+        misses.increment();
+        evictIfFull(now);
+        
+        query(leaf, id, issuer).whenComplete((answer, error) -> {
+            Answer settled = error == null ? answer
+                    : failure(Revocation.unknown(Revocation.RESPONDER, "OCSP query failed: " + error.getMessage()));
+            entry.expiresAt = settled.expiresAt();
+            entry.future.complete(settled.revocation());
+        });
+        return entry.future;
+    }
+    
+    public int getCacheSize() {
+        return cache.size();
+    }
+    
+    private CompletableFuture<Answer> query(X509Certificate leaf, CertificateID id, X509Certificate issuer) {
+        String url = responderUrl(leaf);
+        if (url == null) {
+            return CompletableFuture.completedFuture(
+                    failure(Revocation.unknown(null, "No OCSP responder in certificate")));
+        }
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(timeout)
+                    .header("Content-Type", OCSP_REQUEST)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(new OCSPReqBuilder().addRequest(id).build().getEncoded()))
+                    .build();
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(
+                    failure(Revocation.unknown(Revocation.RESPONDER, "Cannot build OCSP request: " + e.getMessage())));
+        }
+        
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> response.statusCode() == 200
+                        ? parse(response.body(), id, issuer, Revocation.RESPONDER, clock.instant())
+                        : failure(Revocation.unknown(Revocation.RESPONDER,
+                                "OCSP responder returned HTTP " + response.statusCode())));
+    }
+    
+    /**
+     * Checks that {@code encoded} is a current response about {@code id},
+     * signed by the issuer or a responder it delegated to.
+     */
+    private Answer parse(byte[] encoded, CertificateID id, X509Certificate issuer, String source, Instant now) {
+        Answer answer;
+        try {
+            OCSPResp response = new OCSPResp(encoded);
+            if (response.getStatus() != OCSPResp.SUCCESSFUL) {
+                answer = failure(Revocation.unknown(source, "OCSP response status " + response.getStatus()));
+            } else {
+                answer = evaluate((BasicOCSPResp) response.getResponseObject(), id, issuer, source, now);
+            }
+        } catch (Exception e) {
+            answer = failure(Revocation.unknown(source, "Unreadable OCSP response: " + e.getMessage()));
+        }
+        meterRegistry.counter("ssl.monitor.ocsp.responses", "source", source,
+                "status", answer.revocation().status().name().toLowerCase(Locale.ROOT)).increment();
+        return answer;
+    }
+    
+    private Answer evaluate(BasicOCSPResp basic, CertificateID id, X509Certificate issuer, String source,
+                            Instant now) throws Exception {
+        if (!basic.isSignatureValid(signerOf(basic, issuer, now))) {
+            return failure(Revocation.unknown(source, "OCSP response signature does not verify"));
+        }
+        for (SingleResp single : basic.getResponses()) {
+            if (!single.getCertID().equals(id)) {
+                continue;
+            }
+            Instant thisUpdate = single.getThisUpdate().toInstant();
+            Instant nextUpdate = single.getNextUpdate() != null ? single.getNextUpdate().toInstant() : null;
+            if (thisUpdate.isAfter(now.plus(CLOCK_SKEW))
+                    || nextUpdate != null && nextUpdate.isBefore(now.minus(CLOCK_SKEW))) {
+                return failure(Revocation.unknown(source, "OCSP response is not current"));
+            }
+            
+            Instant expiresAt = min(nextUpdate != null ? nextUpdate : now.plus(defaultTtl), now.plus(maxTtl));
+            CertificateStatus status = single.getCertStatus();
+            if (status == CertificateStatus.GOOD) {
+                return new Answer(Revocation.good(source), expiresAt);
+            }
+            if (status instanceof RevokedStatus revoked) {
+                String reason = revoked.hasRevocationReason() ? reasonName(revoked.getRevocationReason()) : null;
+                return new Answer(Revocation.revoked(source, revoked.getRevocationTime().toInstant(), reason),
+                        now.plus(maxTtl));
+            }
+            if (status instanceof UnknownStatus) {
+                return failure(Revocation.unknown(source, "Responder does not know the certificate"));
+            }
+        }
+        return failure(Revocation.unknown(source, "OCSP response does not cover the certificate"));
+    }
+    
+    /**
+     * The issuer itself, or a delegated responder certificate it issued for
+     * OCSP signing and that is valid now.
+     */
+    private static ContentVerifierProvider signerOf(BasicOCSPResp basic, X509Certificate issuer, Instant now)
+            throws Exception {
+        JcaContentVerifierProviderBuilder verifiers = new JcaContentVerifierProviderBuilder();
+        ContentVerifierProvider issuerVerifier = verifiers.build(issuer.getPublicKey());
+        for (X509CertificateHolder responder : basic.getCerts()) {
+            if (responder.getSubject().equals(new JcaX509CertificateHolder(issuer).getSubject())) {
+                continue;
+            }
+            ExtendedKeyUsage usage = ExtendedKeyUsage.fromExtensions(responder.getExtensions());
+            if (responder.isSignatureValid(issuerVerifier) && responder.isValidOn(Date.from(now))
+                    && usage != null && usage.hasKeyPurposeId(KeyPurposeId.id_kp_OCSPSigning)) {
+                return verifiers.build(responder);
+            }
+        }
+        return issuerVerifier;
+    }
+    
+    private static String responderUrl(X509Certificate leaf) {
+        try {
+            AuthorityInformationAccess access = AuthorityInformationAccess.fromExtensions(
+                    new JcaX509CertificateHolder(leaf).getExtensions());
+            if (access == null) {
+                return null;
+            }
+            for (AccessDescription description : access.getAccessDescriptions()) {
+                GeneralName location = description.getAccessLocation();
+                if (AccessDescription.id_ad_ocsp.equals(description.getAccessMethod())
+                        && location.getTagNo() == GeneralName.uniformResourceIdentifier) {
+                    String url = ASN1IA5String.getInstance(location.getName()).getString();
+                    if (url.startsWith("http://") || url.startsWith("https://")) {
+                        return url;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Cannot read OCSP responder from certificate: {}", e.getMessage());
+        }
+        return null;
+    }
+    
+    private Answer failure(Revocation revocation) {
+        return new Answer(revocation, clock.instant().plus(failureTtl));
+    }
+    
+    private void store(String key, Entry entry, Instant now) {
+        cache.put(key, entry);
+        evictIfFull(now);
+    }
+    
+    private void evictIfFull(Instant now) {
+        if (cache.size() <= maxEntries) {
+            return;
+        }
+        cache.values().removeIf(entry -> entry.isExpired(now));
+        // Still full of live answers: drop arbitrary ones, they are re-fetched on demand
+        Iterator<Entry> entries = cache.values().iterator();
+        while (cache.size() > maxEntries && entries.hasNext()) {
+            entries.next();
+            entries.remove();
+        }
+    }
+    
+    private static String reasonName(int code) {
+        CRLReason[] reasons = CRLReason.values();
+        return code >= 0 && code < reasons.length ? reasons[code].name() : "UNRECOGNIZED_" + code;
+    }
+    
+    private static Instant min(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }
+    
+    private static Counter cacheCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ssl.monitor.ocsp.cache")
+                .description("OCSP answer cache lookups by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+    
+    private record Answer(Revocation revocation, Instant expiresAt) {
+    }
+    
+    private static final class Entry {
+        
+        final CompletableFuture<Revocation> future = new CompletableFuture<>();
+        
+        // Stays null while the query is in flight
+        volatile Instant expiresAt;
+        
+        boolean isExpired(Instant now) {
+            Instant expiry = expiresAt;
+            return expiry != null && !now.isBefore(expiry);
+        }
+    }
+}
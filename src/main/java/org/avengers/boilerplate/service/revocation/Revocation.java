@@ -0,0 +1,39 @@
+package org.avengers.boilerplate.service.revocation;
+
+import java.time.Instant;
+
+/**
+ * Revocation status of a leaf certificate and where it came from:
+ * {@code stapled} for a response the server sent in the handshake,
+ * {@code responder} for one fetched from the CA, {@code crl} for the issuer's
+ * revocation list. {@code detail} carries the revocation reason, or why the
+ * status is unknown.
+ */
+public record Revocation(Status status, String source, Instant revokedAt, String detail) {
+    
+    public enum Status {
+        GOOD,
+        REVOKED,
+        UNKNOWN
+    }
+    
+    static final String STAPLED = "stapled";
+    static final String RESPONDER = "responder";
+    static final String CRL = "crl";
+    
+    static Revocation good(String source) {
+        return new Revocation(Status.GOOD, source, null, null);
+    }
+    
+    static Revocation revoked(String source, Instant revokedAt, String reason) {
+        return new Revocation(Status.REVOKED, source, revokedAt, reason);
+    }
+    
+    static Revocation unknown(String source, String detail) {
+        return new Revocation(Status.UNKNOWN, source, null, detail);
+    }
+    
+    public boolean isRevoked() {
+        return status == Status.REVOKED;
+    }
+}
@@ -0,0 +1,190 @@
+package org.avengers.boilerplate.service.revocation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.cert.CRLReason;
+import java.security.cert.X509CRL;
+import java.security.cert.X509CRLEntry;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Sorted, memory-mapped index of the serial numbers revoked by one CRL.
+ * <p>
+ * The file holds a fixed header followed by one fixed-width record per
+ * revoked certificate: the serial as two's complement, sign-extended to the
+ * widest serial in the CRL, then the revocation time and reason. Records are
+ * sorted by their serial bytes, so a lookup is a binary search over the
+ * mapping and neither the CRL nor its entries stay on the heap.
+ */
+final class SerialIndex {
+    
+    private static final int MAGIC = 0x43524C49; // "CRLI"
+    private static final int VERSION = 1;
+    // magic, version, thisUpdate, nextUpdate, fetchedAt, serial width, count
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 4 + 4;
+    // revocation time, reason
+    private static final int ENTRY_TRAILER_BYTES = 8 + 1;
+    private static final long NONE = Long.MIN_VALUE;
+    
+    private final ByteBuffer buffer;
+    private final Instant thisUpdate;
+    private final Instant nextUpdate;
+    private final Instant fetchedAt;
+    private final int serialWidth;
+    private final int recordBytes;
+    private final int count;
+    
+    private SerialIndex(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a serial index");
+        }
+        this.buffer = buffer;
+        this.thisUpdate = Instant.ofEpochMilli(buffer.getLong(8));
+        long next = buffer.getLong(16);
+        this.nextUpdate = next == NONE ? null : Instant.ofEpochMilli(next);
+        this.fetchedAt = Instant.ofEpochMilli(buffer.getLong(24));
+        this.serialWidth = buffer.getInt(32);
+        this.count = buffer.getInt(36);
+        this.recordBytes = serialWidth + ENTRY_TRAILER_BYTES;
+        if (serialWidth < 0 || count < 0 || (long) count * recordBytes != buffer.capacity() - HEADER_BYTES) {
+            throw new IOException("Truncated serial index");
+        }
+    }
+    
+    /**
+     * A revoked entry found in the index.
+     */
+    record Entry(Instant revokedAt, CRLReason reason) {
+    }
+    
+    /**
+     * Indexes the entries of {@code crl} into {@code path}, replacing it
+     * atomically, and maps the result.
+     */
+    static SerialIndex write(Path path, X509CRL crl, Instant fetchedAt) throws IOException {
+        Set<? extends X509CRLEntry> revoked = crl.getRevokedCertificates();
+        X509CRLEntry[] entries = revoked != null ? revoked.toArray(new X509CRLEntry[0]) : new X509CRLEntry[0];
+        byte[][] serials = new byte[entries.length][];
+        int width = 0;
+        for (int i = 0; i < entries.length; i++) {
+            serials[i] = entries[i].getSerialNumber().toByteArray();
+            width = Math.max(width, serials[i].length);
+        }
+        Integer[] order = new Integer[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            serials[i] = pad(serials[i], width);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(serials[a], serials[b]));
+        
+        Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(crl.getThisUpdate().getTime());
+                out.writeLong(crl.getNextUpdate() != null ? crl.getNextUpdate().getTime() : NONE);
+                out.writeLong(fetchedAt.toEpochMilli());
+                out.writeInt(width);
+                out.writeInt(entries.length);
+                for (int i : order) {
+                    out.write(serials[i]);
+                    out.writeLong(entries[i].getRevocationDate().getTime());
+                    CRLReason reason = entries[i].getRevocationReason();
+                    out.writeByte(reason != null ? reason.ordinal() : -1);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return open(path);
+    }
+    
+    static SerialIndex open(Path path) throws IOException {
+        // The mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new SerialIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+    
+    /**
+     * The entry for {@code serial}, or null when it is not revoked.
+     */
+    Entry find(BigInteger serial) {
+        byte[] key = serial.toByteArray();
+        if (key.length > serialWidth) {
+            return null;
+        }
+        key = pad(key, serialWidth);
+        
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = HEADER_BYTES + mid * recordBytes;
+            int cmp = compare(offset, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                long revokedAt = buffer.getLong(offset + serialWidth);
+                int reason = buffer.get(offset + serialWidth + 8);
+                return new Entry(Instant.ofEpochMilli(revokedAt),
+                        reason >= 0 && reason < CRLReason.values().length ? CRLReason.values()[reason] : null);
+            }
+        }
+        return null;
+    }
+    
+    Instant getThisUpdate() {
+        return thisUpdate;
+    }
+    
+    /**
+     * When the issuer publishes the next CRL, or null when it does not say.
+     */
+    Instant getNextUpdate() {
+        return nextUpdate;
+    }
+    
+    Instant getFetchedAt() {
+        return fetchedAt;
+    }
+    
+    int size() {
+        return count;
+    }
+    
+    private int compare(int offset, byte[] key) {
+        for (int i = 0; i < serialWidth; i++) {
+            int cmp = Integer.compare(buffer.get(offset + i) & 0xff, key[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+    
+    private static byte[] pad(byte[] serial, int width) {
+        if (serial.length == width) {
+            return serial;
+        }
+        byte[] padded = new byte[width];
+        // Sign-extend so every serial keeps a single fixed-width encoding
+        Arrays.fill(padded, 0, width - serial.length, serial.length > 0 && serial[0] < 0 ? (byte) 0xff : 0);
+        System.arraycopy(serial, 0, padded, width - serial.length, serial.length);
+        return padded;
+    }
+}
@@ -0,0 +1,153 @@
+package org.avengers.boilerplate.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.avengers.boilerplate.service.probe.DnsResolver;
+import org.avengers.boilerplate.service.probe.ProbeResult;
+import org.avengers.boilerplate.service.probe.ProbeTimeouts;
+import org.avengers.boilerplate.service.probe.SocketCertificateProbe;
+import org.avengers.boilerplate.support.LocalTlsServer;
+import org.avengers.boilerplate.support.TestCertificates;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.net.ssl.SSLContext;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Throughput and memory comparison of the platform pool and the virtual
+ * thread executor, both driving blocking socket probes against a farm of
+ * loopback TLS servers with injected handshake latency.
+ * <p>
+ * Run with {@code mvn test -Dtest=AsyncExecutorComparisonTest -Dssl.monitor.perf=true}
+ * on a Java 21 runtime.
+ */
+@EnabledIfSystemProperty(named = "ssl.monitor.perf", matches = "true")
+@EnabledIf("virtualThreadsSupported")
+class AsyncExecutorComparisonTest {
+    
+    private static final int SERVERS = 8;
+    private static final int PROBES = 2000;
+    private static final int SWEEP_CONCURRENCY = 1000;
+    private static final Duration LATENCY = Duration.ofMillis(250);
+    
+    private final List<LocalTlsServer> farm = new ArrayList<>();
+    private SSLContext clientContext;
+    private DnsResolver dnsResolver;
+    private ScheduledExecutorService watchdog;
+    
+    static boolean virtualThreadsSupported() {
+        return BoundedVirtualThreadExecutor.isSupported();
+    }
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        TestCertificates.Issued ca = TestCertificates.selfSignedCa("Farm Root CA");
+        TestCertificates.Issued leaf = TestCertificates.leaf(ca, "localhost", Duration.ofDays(90));
+        SSLContext serverContext = leaf.serverContext();
+        for (int i = 0; i < SERVERS; i++) {
+            farm.add(new LocalTlsServer(serverContext, LATENCY));
+        }
+        clientContext = TestCertificates.trusting(ca.certificate());
+        dnsResolver = new DnsResolver(2, Duration.ofMinutes(5), Duration.ofMinutes(1), 1000, new SimpleMeterRegistry());
+        watchdog = Executors.newSingleThreadScheduledExecutor();
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        for (LocalTlsServer server : farm) {
+            server.close();
+        }
+        dnsResolver.close();
+        watchdog.shutdownNow();
+    }
+    
+    @Test
+    void testVirtualThreadsOutperformPlatformPool() throws Exception {
+        // Warm up TLS and JIT before measuring either mode
+        sweep(newExecutor("platform"), 200);
+        
+        Measurement platform = sweep(newExecutor("platform"), PROBES);
+        Measurement virtual = sweep(newExecutor("virtual"), PROBES);
+        
+        System.out.printf("%-9s %8s %10s %12s %12s%n", "mode", "ms", "probes/s", "heap delta", "peak threads");
+        System.out.println(platform.format("platform"));
+        System.out.println(virtual.format("virtual"));
+        
+        assertEquals(PROBES, platform.succeeded());
+        assertEquals(PROBES, virtual.succeeded());
+        assertTrue(virtual.elapsedMs() < platform.elapsedMs(),
+                "virtual threads should finish a latency-bound sweep faster than a 20 thread pool");
+    }
+    
+    private Executor newExecutor(String mode) {
+        AsyncConfig config = new AsyncConfig();
+        ReflectionTestUtils.setField(config, "mode", mode);
+        ReflectionTestUtils.setField(config, "corePoolSize", 5);
+        ReflectionTestUtils.setField(config, "maxPoolSize", 20);
+        ReflectionTestUtils.setField(config, "queueCapacity", 100);
+        ReflectionTestUtils.setField(config, "virtualMaxConcurrency", SWEEP_CONCURRENCY);
+        return config.asyncExecutor();
+    }
+    
+    private Measurement sweep(Executor executor, int probes) {
+        ProbeTimeouts timeouts = new ProbeTimeouts(5000, 10000, 10000, 20000);
+        SocketCertificateProbe probe = new SocketCertificateProbe(clientContext, timeouts, executor,
+                dnsResolver, watchdog);
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        
+        System.gc();
+        threads.resetPeakThreadCount();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        long start = System.nanoTime();
+        
+        Semaphore sweepPermits = new Semaphore(SWEEP_CONCURRENCY);
+        List<CompletableFuture<ProbeResult>> futures = new ArrayList<>(probes);
+        for (int i = 0; i < probes; i++) {
+            sweepPermits.acquireUninterruptibly();
+            int port = farm.get(i % farm.size()).getPort();
+            futures.add(probe.probe("localhost", port).whenComplete((result, error) -> sweepPermits.release()));
+        }
+        
+        int succeeded = 0;
+        for (CompletableFuture<ProbeResult> future : futures) {
+            if (future.join().isSuccess()) {
+                succeeded++;
+            }
+        }
+        
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        long heapDelta = memory.getHeapMemoryUsage().getUsed() - heapBefore;
+        
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        }
+        return new Measurement(succeeded, elapsedMs, heapDelta, threads.getPeakThreadCount());
+    }
+    
+    private record Measurement(int succeeded, long elapsedMs, long heapDeltaBytes, int peakThreads) {
+        
+        String format(String mode) {
+            double throughput = succeeded * 1000.0 / Math.max(1, elapsedMs);
+            return String.format("%-9s %8d %10.1f %10dKB %12d", mode, elapsedMs, throughput,
+                    heapDeltaBytes / 1024, peakThreads);
+        }
+    }
+}
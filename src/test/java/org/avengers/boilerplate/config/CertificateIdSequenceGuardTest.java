@@ -0,0 +1,92 @@
+package org.avengers.boilerplate.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+import org.avengers.boilerplate.repository.DomainRepository;
+import org.avengers.boilerplate.repository.SslCertificateRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A database from before sequence ids, simulated by a row inserted with an
+ * explicit id above anything the sequence has handed out.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CertificateIdSequenceGuardTest {
+    
+    @Autowired
+    private DomainRepository domainRepository;
+    
+    @Autowired
+    private SslCertificateRepository sslCertificateRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @AfterEach
+    void tearDown() {
+        sslCertificateRepository.deleteAll();
+        domainRepository.deleteAll();
+    }
+    
+    @Test
+    void testAlign_MovesSequencePastIdentityRows() {
+        Domain domain = domainRepository.save(Domain.builder().name("legacy.example.com").port(443).build());
+        jdbcTemplate.update("INSERT INTO ssl_certificates (id, domain_id, valid_from, expiry_date, status, check_date) "
+                + "VALUES (1234, ?, ?, ?, 'VALID', ?)", domain.getId(), LocalDateTime.now().minusDays(30),
+                LocalDateTime.now().plusDays(60), LocalDateTime.now());
+        CertificateIdSequenceGuard guard = new PersistenceConfig()
+                .certificateIdSequenceGuard(jdbcTemplate, entityManagerFactory);
+        
+        assertTrue(guard.align());
+        assertFalse(guard.align());
+        
+        SslCertificate saved = sslCertificateRepository.save(SslCertificate.builder()
+                .domain(domain)
+                .validFrom(LocalDateTime.now().minusDays(1))
+                .expiryDate(LocalDateTime.now().plusDays(90))
+                .status(SslCertificate.CertificateStatus.VALID)
+                .build());
+        assertTrue(saved.getId() > 1234, "id " + saved.getId());
+    }
+    
+    @Test
+    void testAlign_NeverMovesSequenceBack() {
+        Domain domain = domainRepository.save(Domain.builder().name("legacy.example.com").port(443).build());
+        jdbcTemplate.update("INSERT INTO ssl_certificates (id, domain_id, status, check_date) "
+                + "VALUES (1234, ?, 'ERROR', ?)", domain.getId(), LocalDateTime.now());
+        CertificateIdSequenceGuard guard = new PersistenceConfig()
+                .certificateIdSequenceGuard(jdbcTemplate, entityManagerFactory);
+        // Another replica aligned first and has been drawing ids since
+        jdbcTemplate.execute("ALTER SEQUENCE " + SslCertificate.ID_SEQUENCE + " RESTART WITH 100000");
+        
+        assertFalse(guard.align());
+        
+        Long next = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + SslCertificate.ID_SEQUENCE, Long.class);
+        assertTrue(next > 100000, "next " + next);
+    }
+    
+    @Test
+    void testAlign_EmptyTableLeavesSequence() {
+        CertificateIdSequenceGuard guard = new PersistenceConfig()
+                .certificateIdSequenceGuard(jdbcTemplate, entityManagerFactory);
+        
+        assertFalse(guard.align());
+    }
+}
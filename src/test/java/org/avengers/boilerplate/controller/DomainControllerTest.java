@@ -5,6 +5,7 @@ import org.avengers.boilerplate.domain.dto.DomainDto;
 import org.avengers.boilerplate.domain.entity.Domain;
 import org.avengers.boilerplate.repository.DomainRepository;
 import org.avengers.boilerplate.repository.SslCertificateRepository;
+import org.avengers.boilerplate.service.DomainChangedEvent;
 import org.avengers.boilerplate.service.ScheduledSslCheckService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,18 +16,22 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(DomainController.class)
+@RecordApplicationEvents
 class DomainControllerTest {
     
     @Autowired
@@ -44,6 +49,9 @@ class DomainControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
     
+    @Autowired
+    private ApplicationEvents applicationEvents;
+    
     private Domain testDomain;
     private DomainDto testDomainDto;
     
@@ -187,6 +195,9 @@ class DomainControllerTest {
                 .andExpect(status().isNoContent());
         
         verify(domainRepository).save(argThat(domain -> !domain.getActive()));
+        assertEquals(1, applicationEvents.stream(DomainChangedEvent.class)
+                .filter(event -> !event.domain().getActive())
+                .count());
     }
     
     @Test
@@ -0,0 +1,112 @@
+package org.avengers.boilerplate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+import org.avengers.boilerplate.service.probe.ProbeFailure;
+import org.avengers.boilerplate.service.probe.ProbeResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class CheckEventLogTest {
+    
+    @TempDir
+    Path directory;
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    
+    private final Domain domain = Domain.builder().id(7L).name("example.com").port(443).build();
+    
+    private final ProbeResult success = ProbeResult.success(new X509Certificate[]{mock(X509Certificate.class)}, 40);
+    
+    @Test
+    void testRecord_KeepsAnomaliesAndDropsUnsampledSuccesses() throws Exception {
+        Path file = directory.resolve("checks.jsonl");
+        try (CheckEventLog checkLog = newLog(file, 0, 100)) {
+            checkLog.record(domain, success, certificate(SslCertificate.CertificateStatus.VALID, null));
+            checkLog.record(domain, ProbeResult.failure(ProbeFailure.TIMEOUT, "Read \"timed\" out", 5000),
+                    certificate(SslCertificate.CertificateStatus.ERROR, "Read \"timed\" out"));
+            checkLog.record(domain, success.toBuilder().attempts(3).build(),
+                    certificate(SslCertificate.CertificateStatus.VALID, null));
+        }
+        
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"domainId\":7,\"host\":\"example.com\",\"port\":443,\"status\":\"ERROR\""));
+        assertTrue(lines.get(0).contains("\"failure\":\"timeout\""));
+        assertTrue(lines.get(0).contains("\"error\":\"Read \\\"timed\\\" out\""));
+        assertTrue(lines.get(1).contains("\"attempts\":3"));
+        assertTrue(lines.get(1).endsWith("\"sample\":1.0}"));
+        assertEquals(2, meterRegistry.get("ssl.monitor.check-log.written").counter().count());
+    }
+    
+    @Test
+    void testRecord_SlowSuccessIsKept() throws Exception {
+        Path file = directory.resolve("checks.jsonl");
+        try (CheckEventLog checkLog = newLog(file, 0, 30)) {
+            checkLog.record(domain, success, certificate(SslCertificate.CertificateStatus.VALID, null));
+        }
+        
+        assertEquals(1, Files.readAllLines(file).size());
+    }
+    
+    @Test
+    void testRecord_FullSampleRateKeepsEverySuccess() throws Exception {
+        Path file = directory.resolve("checks.jsonl");
+        try (CheckEventLog checkLog = newLog(file, 1, 100)) {
+            for (int i = 0; i < 10; i++) {
+                checkLog.record(domain, success, certificate(SslCertificate.CertificateStatus.VALID, null));
+            }
+        }
+        
+        assertEquals(10, Files.readAllLines(file).size());
+    }
+    
+    @Test
+    void testRecord_FullBufferDropsInsteadOfBlocking() {
+        // A directory cannot be opened for writing, so every record is lost either way
+        CheckEventLog checkLog = new CheckEventLog(true, directory, 1, Duration.ofSeconds(5), 2, 1,
+                Duration.ofHours(1), 0, meterRegistry);
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int i = 0; i < 1000; i++) {
+                checkLog.record(domain, success, certificate(SslCertificate.CertificateStatus.VALID, null));
+            }
+        });
+        checkLog.close();
+        
+        assertEquals(1000, meterRegistry.get("ssl.monitor.check-log.dropped").counter().count());
+        assertEquals(0, meterRegistry.get("ssl.monitor.check-log.written").counter().count());
+    }
+    
+    @Test
+    void testDisabled_RecordsNothing() {
+        CheckEventLog checkLog = CheckEventLog.disabled();
+        checkLog.record(domain, success, certificate(SslCertificate.CertificateStatus.VALID, null));
+        
+        assertEquals(0, checkLog.getBufferedCount());
+        checkLog.close();
+    }
+    
+    private CheckEventLog newLog(Path file, double successSampleRate, long slowThresholdMs) {
+        return new CheckEventLog(true, file, successSampleRate, Duration.ofMillis(slowThresholdMs), 100, 10,
+                Duration.ofMillis(50), 1024 * 1024, meterRegistry);
+    }
+    
+    private SslCertificate certificate(SslCertificate.CertificateStatus status, String errorMessage) {
+        return SslCertificate.builder()
+                .domain(domain)
+                .status(status)
+                .errorMessage(errorMessage)
+                .daysUntilExpiry(status == SslCertificate.CertificateStatus.VALID ? 60 : null)
+                .build();
+    }
+}
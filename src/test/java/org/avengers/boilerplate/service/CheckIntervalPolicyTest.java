@@ -0,0 +1,64 @@
+package org.avengers.boilerplate.service;
+
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckIntervalPolicyTest {
+    
+    private final CheckIntervalPolicy policy = new CheckIntervalPolicy(true, 15, 10080, 30, 60);
+    
+    private final Domain domain = Domain.builder().id(1L).name("example.com").port(443)
+            .checkIntervalMinutes(1440).build();
+    
+    @Test
+    void testIntervalMinutes_FollowsRemainingLifetime() {
+        assertEquals(720, policy.intervalMinutes(domain, valid(15), false));
+        assertEquals(144, policy.intervalMinutes(domain, valid(3), false));
+        assertEquals(15, policy.intervalMinutes(domain, valid(0), false));
+    }
+    
+    @Test
+    void testIntervalMinutes_StretchesUpToMaximum() {
+        // 300 days left would be every 10 days, past the daily domain interval
+        assertEquals(10080, policy.intervalMinutes(domain, valid(300), false));
+        assertEquals(2880, policy.intervalMinutes(domain, valid(60), false));
+    }
+    
+    @Test
+    void testIntervalMinutes_BacksOffRepeatedFailures() {
+        assertEquals(15, policy.intervalMinutes(domain, error(1), false));
+        assertEquals(30, policy.intervalMinutes(domain, error(2), false));
+        assertEquals(120, policy.intervalMinutes(domain, error(4), false));
+        // Never beyond the domain's own interval
+        assertEquals(1440, policy.intervalMinutes(domain, error(20), false));
+    }
+    
+    @Test
+    void testIntervalMinutes_RechecksSoonAfterChange() {
+        assertEquals(60, policy.intervalMinutes(domain, valid(90), true));
+        assertEquals(15, policy.intervalMinutes(domain, error(1), true));
+    }
+    
+    @Test
+    void testFixed_UsesDomainInterval() {
+        assertEquals(1440, CheckIntervalPolicy.fixed().intervalMinutes(domain, valid(3), true));
+    }
+    
+    private static SslCertificate valid(int daysUntilExpiry) {
+        return SslCertificate.builder()
+                .status(SslCertificate.CertificateStatus.VALID)
+                .daysUntilExpiry(daysUntilExpiry)
+                .checkCount(1)
+                .build();
+    }
+    
+    private static SslCertificate error(int checkCount) {
+        return SslCertificate.builder()
+                .status(SslCertificate.CertificateStatus.ERROR)
+                .checkCount(checkCount)
+                .build();
+    }
+}
@@ -0,0 +1,95 @@
+package org.avengers.boilerplate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+import org.avengers.boilerplate.service.probe.ProbeFailure;
+import org.avengers.boilerplate.service.probe.ProbeResult;
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.X509Certificate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class CheckMetricsTest {
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    
+    private final CheckMetrics metrics = new CheckMetrics(meterRegistry);
+    
+    @Test
+    void testProbe_CountsInFlightAndTimesPhases() {
+        CompletableFuture<ProbeResult> pending = new CompletableFuture<>();
+        CompletableFuture<ProbeResult> probe = metrics.probe(() -> pending);
+        assertEquals(1, meterRegistry.get("ssl.monitor.probe.in-flight").gauge().value());
+        
+        pending.complete(ProbeResult.builder()
+                .peerCertificates(new X509Certificate[]{mock(X509Certificate.class)})
+                .elapsedMs(40)
+                .dnsMs(5L)
+                .connectMs(10L)
+                .handshakeMs(25L)
+                .build());
+        
+        assertTrue(probe.isDone());
+        assertEquals(0, meterRegistry.get("ssl.monitor.probe.in-flight").gauge().value());
+        assertEquals(25, meterRegistry.get("ssl.monitor.probe.phase").tag("phase", "handshake").timer()
+                .totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(1, meterRegistry.get("ssl.monitor.probe.attempts").tag("result", "success").timer().count());
+    }
+    
+    @Test
+    void testProbe_FailureSkipsPhasesNotReached() {
+        metrics.probe(() -> CompletableFuture.completedFuture(ProbeResult.builder()
+                .failure(ProbeFailure.REFUSED)
+                .errorMessage("Connection refused")
+                .elapsedMs(3)
+                .dnsMs(1L)
+                .build()));
+        
+        assertEquals(1, meterRegistry.get("ssl.monitor.probe.phase").tag("phase", "dns").timer().count());
+        assertEquals(0, meterRegistry.get("ssl.monitor.probe.phase").tag("phase", "handshake").timer().count());
+        assertEquals(1, meterRegistry.get("ssl.monitor.probe.attempts").tag("result", "refused").timer().count());
+    }
+    
+    @Test
+    void testProbe_StartThrowing_LeavesNothingInFlight() {
+        assertThrows(IllegalStateException.class, () -> metrics.probe(() -> {
+            throw new IllegalStateException("closed");
+        }));
+        
+        assertEquals(0, meterRegistry.get("ssl.monitor.probe.in-flight").gauge().value());
+    }
+    
+    @Test
+    void testRecordOutcome_TagsErrorsByFailureKind() {
+        ProbeResult timedOut = ProbeResult.failure(ProbeFailure.TIMEOUT, "Read timed out", 5000);
+        metrics.recordOutcome(SslCertificate.CertificateStatus.ERROR, timedOut);
+        metrics.recordOutcome(SslCertificate.CertificateStatus.ERROR, timedOut);
+        metrics.recordOutcome(SslCertificate.CertificateStatus.VALID, ProbeResult.success(
+                new X509Certificate[]{mock(X509Certificate.class)}, 10));
+        
+        assertEquals(2, meterRegistry.get("ssl.monitor.checks")
+                .tags("status", "error", "error", "timeout").counter().count());
+        assertEquals(1, meterRegistry.get("ssl.monitor.checks")
+                .tags("status", "valid", "error", "none").counter().count());
+    }
+    
+    @Test
+    void testSweep_ReportsPendingUntilFinished() {
+        SweepReport report = new SweepReport();
+        metrics.sweepStarted(report);
+        report.recordSubmitted();
+        report.recordSubmitted();
+        assertEquals(2, meterRegistry.get("ssl.monitor.sweep.pending").gauge().value());
+        
+        report.finish(1);
+        metrics.sweepFinished(report);
+        
+        assertEquals(0, meterRegistry.get("ssl.monitor.sweep.pending").gauge().value());
+        assertEquals(1, meterRegistry.get("ssl.monitor.sweep.duration").tag("outcome", "abandoned").timer().count());
+        assertEquals(1, meterRegistry.get("ssl.monitor.sweep.abandoned").counter().count());
+    }
+}
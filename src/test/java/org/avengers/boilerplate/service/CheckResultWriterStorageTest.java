@@ -0,0 +1,117 @@
+package org.avengers.boilerplate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.avengers.boilerplate.config.CertificateSchemaGuard;
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+import org.avengers.boilerplate.repository.DomainRepository;
+import org.avengers.boilerplate.repository.SslCertificateRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Results written through to the embedded database, so constraints apply.
+ * Test transactions are off so each batch commits like it does in production.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CheckResultWriterStorageTest {
+    
+    @Autowired
+    private DomainRepository domainRepository;
+    
+    @Autowired
+    private SslCertificateRepository sslCertificateRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private CheckResultWriter writer;
+    
+    @BeforeEach
+    void setUp() {
+        writer = new CheckResultWriter(sslCertificateRepository, domainRepository,
+                new TransactionTemplate(transactionManager), new CheckIntervalPolicy(true, 15, 10080, 30, 60),
+                true, 10, Duration.ofHours(1), 100, new SimpleMeterRegistry());
+    }
+    
+    @AfterEach
+    void tearDown() {
+        writer.close();
+        sslCertificateRepository.deleteAll();
+        domainRepository.deleteAll();
+    }
+    
+    @Test
+    void testWrite_ErrorResultIsStoredAndBacksOff() {
+        Domain domain = domainRepository.save(Domain.builder().name("down.example.com").port(443)
+                .checkIntervalMinutes(1440).build());
+        
+        LocalDateTime before = LocalDateTime.now();
+        SslCertificate first = writer.write(error(domain));
+        
+        assertNotNull(first.getId());
+        assertNull(first.getExpiryDate());
+        assertEquals(3, sslCertificateRepository.findById(first.getId()).orElseThrow().getAttempts());
+        assertMinutesAfter(before, 15, domainRepository.findById(domain.getId()).orElseThrow().getNextCheckAt());
+        
+        // The same failure again is folded into the row and waits twice as long
+        before = LocalDateTime.now();
+        SslCertificate second = writer.write(error(domain));
+        
+        assertEquals(first.getId(), second.getId());
+        assertEquals(2, second.getCheckCount());
+        assertEquals(1, sslCertificateRepository.count());
+        assertMinutesAfter(before, 30, domainRepository.findById(domain.getId()).orElseThrow().getNextCheckAt());
+    }
+    
+    @Test
+    void testAllowErrorRows_RelaxesColumnsOfOlderTables() {
+        jdbcTemplate.execute("ALTER TABLE ssl_certificates ALTER COLUMN expiry_date SET NOT NULL");
+        CertificateSchemaGuard guard = new CertificateSchemaGuard(jdbcTemplate);
+        
+        assertTrue(guard.allowErrorRows());
+        assertFalse(guard.allowErrorRows());
+        
+        Domain domain = domainRepository.save(Domain.builder().name("down.example.com").port(443).build());
+        assertNotNull(writer.write(error(domain)).getId());
+    }
+    
+    private static void assertMinutesAfter(LocalDateTime before, long minutes, LocalDateTime nextCheckAt) {
+        long actual = ChronoUnit.MINUTES.between(before, nextCheckAt);
+        assertTrue(actual == minutes || actual == minutes - 1, "next check " + actual + " minutes after");
+    }
+    
+    private static SslCertificate error(Domain domain) {
+        return SslCertificate.builder()
+                .domain(domain)
+                .status(SslCertificate.CertificateStatus.ERROR)
+                .errorMessage("Connection failed: Connection reset")
+                .lastSeenAt(LocalDateTime.now())
+                .checkCount(1)
+                .responseTimeMs(10L)
+                .responseTimeTotalMs(10L)
+                .responseTimeMaxMs(10L)
+                .attempts(3)
+                .build();
+    }
+}
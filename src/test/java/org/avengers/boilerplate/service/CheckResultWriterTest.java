@@ -0,0 +1,242 @@
+package org.avengers.boilerplate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+import org.avengers.boilerplate.repository.DomainRepository;
+import org.avengers.boilerplate.repository.SslCertificateRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CheckResultWriterTest {
+    
+    @Mock
+    private SslCertificateRepository sslCertificateRepository;
+    
+    @Mock
+    private DomainRepository domainRepository;
+    
+    private SimpleMeterRegistry meterRegistry;
+    
+    private CheckResultWriter writer;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        writer.close();
+    }
+    
+    @Test
+    void testSubmit_WritesFullBatchInOneCall() throws Exception {
+        writer = newWriter(false, 3, Duration.ofHours(1));
+        when(sslCertificateRepository.saveAll(anyIterable()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        
+        CompletableFuture<SslCertificate> first = writer.submit(result(1L, "Connection failed: reset"));
+        CompletableFuture<SslCertificate> second = writer.submit(result(2L, "Connection failed: reset"));
+        
+        assertFalse(first.isDone());
+        verifyNoInteractions(sslCertificateRepository);
+        
+        CompletableFuture<SslCertificate> third = writer.submit(result(3L, "Connection failed: reset"));
+        
+        assertEquals(3L, third.get(1, TimeUnit.SECONDS).getDomain().getId());
+        assertTrue(first.isDone() && second.isDone());
+        verify(sslCertificateRepository, times(1)).saveAll(anyIterable());
+        assertEquals(1, meterRegistry.get("ssl.monitor.results.batches").counter().count());
+    }
+    
+    @Test
+    void testSubmit_FlushesPartialBatchAfterInterval() throws Exception {
+        writer = newWriter(false, 50, Duration.ofMillis(50));
+        when(sslCertificateRepository.saveAll(anyIterable()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        
+        SslCertificate stored = writer.submit(result(1L, "Connection failed: reset")).get(5, TimeUnit.SECONDS);
+        
+        assertEquals(1L, stored.getDomain().getId());
+        assertEquals(0, writer.getBufferedCount());
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_OnChangeFoldsRepeatsWithinBatch() {
+        writer = newWriter(true, 10, Duration.ofHours(1));
+        SslCertificate current = result(1L, "Connection failed: reset");
+        current.setId(7L);
+        when(sslCertificateRepository.findLatestByDomainIds(Set.of(1L, 2L))).thenReturn(List.of(current));
+        when(sslCertificateRepository.saveAll(anyIterable()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        
+        CompletableFuture<SslCertificate> repeat = writer.submit(result(1L, "Connection failed: reset"));
+        CompletableFuture<SslCertificate> changed = writer.submit(result(2L, "Connection failed: refused"));
+        CompletableFuture<SslCertificate> changedAgain = writer.submit(result(2L, "Connection failed: refused"));
+        writer.flush();
+        
+        ArgumentCaptor<List<SslCertificate>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(sslCertificateRepository).saveAll(inserted.capture());
+        assertEquals(1, inserted.getValue().size());
+        assertSame(current, repeat.join());
+        assertEquals(2, current.getCheckCount());
+        assertSame(changed.join(), changedAgain.join());
+        assertEquals(2, changed.join().getCheckCount());
+        assertEquals(2, meterRegistry.get("ssl.monitor.results.rows").tag("outcome", "repeated").counter().count());
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_OnChangeKeepsNewChainOrRevocationOfTheSameLeaf() {
+        writer = newWriter(true, 10, Duration.ofHours(1));
+        SslCertificate first = served(1L, "-----BEGIN CERTIFICATE-----\nleaf\nold intermediate", "GOOD");
+        first.setId(7L);
+        SslCertificate second = served(2L, "-----BEGIN CERTIFICATE-----\nleaf\nintermediate", "GOOD");
+        second.setId(8L);
+        when(sslCertificateRepository.findLatestByDomainIds(Set.of(1L, 2L))).thenReturn(List.of(first, second));
+        when(sslCertificateRepository.saveAll(anyIterable()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        
+        CompletableFuture<SslCertificate> reissuedChain = writer.submit(
+                served(1L, "-----BEGIN CERTIFICATE-----\nleaf\nnew intermediate", "GOOD"));
+        CompletableFuture<SslCertificate> revoked = writer.submit(
+                served(2L, "-----BEGIN CERTIFICATE-----\nleaf\nintermediate", "REVOKED"));
+        writer.flush();
+        
+        ArgumentCaptor<List<SslCertificate>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(sslCertificateRepository).saveAll(inserted.capture());
+        assertEquals(2, inserted.getValue().size());
+        assertNotSame(first, reissuedChain.join());
+        assertNotSame(second, revoked.join());
+        assertEquals(1, first.getCheckCount());
+        assertEquals(1, second.getCheckCount());
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_UpdatesCheckTimesPerInterval() {
+        writer = newWriter(false, 10, Duration.ofHours(1));
+        when(sslCertificateRepository.saveAll(anyIterable()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        
+        Domain first = domain(1L, 60);
+        writer.submit(result(first, "Connection failed: reset"));
+        writer.submit(result(domain(2L, 1440), "Connection failed: reset"));
+        writer.submit(result(domain(3L, 60), "Connection failed: reset"));
+        writer.flush();
+        
+        ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<LocalDateTime> checkedAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> nextCheckAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(domainRepository, times(2)).updateCheckTimes(ids.capture(), checkedAt.capture(), nextCheckAt.capture());
+        
+        assertEquals(List.of(1L, 3L), List.copyOf(ids.getAllValues().get(0)));
+        assertEquals(checkedAt.getAllValues().get(0).plusMinutes(60), nextCheckAt.getAllValues().get(0));
+        assertEquals(List.of(2L), List.copyOf(ids.getAllValues().get(1)));
+        assertEquals(checkedAt.getAllValues().get(1).plusMinutes(1440), nextCheckAt.getAllValues().get(1));
+        
+        // Schedulers holding the domain see the new times without reloading it
+        assertEquals(nextCheckAt.getAllValues().get(0), first.getNextCheckAt());
+    }
+    
+    @Test
+    void testFlush_FailureCompletesBatchExceptionally() {
+        writer = newWriter(false, 10, Duration.ofHours(1));
+        when(sslCertificateRepository.saveAll(anyIterable())).thenThrow(new IllegalStateException("Database error"));
+        
+        CompletableFuture<SslCertificate> pending = writer.submit(result(1L, "Connection failed: reset"));
+        writer.flush();
+        
+        ExecutionException error = assertThrows(ExecutionException.class, pending::get);
+        assertEquals("Database error", error.getCause().getMessage());
+    }
+    
+    @Test
+    void testFlush_RejectedRowFailsAloneAndTheRestIsStored() {
+        writer = newWriter(false, 10, Duration.ofHours(1));
+        when(sslCertificateRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            List<SslCertificate> rows = invocation.getArgument(0);
+            rows.forEach(row -> row.setId(100 + row.getDomain().getId()));
+            if (rows.stream().anyMatch(row -> row.getDomain().getId() == 3L)) {
+                throw new DataIntegrityViolationException("Value too long for column SUBJECT");
+            }
+            return rows;
+        });
+        
+        List<CompletableFuture<SslCertificate>> results = List.of(1L, 2L, 3L, 4L, 5L).stream()
+                .map(id -> writer.submit(result(id, "Connection failed: reset")))
+                .toList();
+        writer.flush();
+        
+        assertThrows(ExecutionException.class, results.get(2)::get);
+        for (int i : new int[]{0, 1, 3, 4}) {
+            assertEquals(101L + i, results.get(i).join().getId());
+        }
+        verify(domainRepository, atLeastOnce()).updateCheckTimes(argThat(ids -> ids.contains(5L)), any(), any());
+        verify(domainRepository, never()).updateCheckTimes(argThat(ids -> ids.contains(3L)), any(), any());
+    }
+    
+    private CheckResultWriter newWriter(boolean onChange, int batchSize, Duration flushInterval) {
+        return new CheckResultWriter(sslCertificateRepository, domainRepository,
+                TransactionOperations.withoutTransaction(), CheckIntervalPolicy.fixed(), onChange, batchSize, flushInterval, 100, meterRegistry);
+    }
+    
+    private static Domain domain(Long id, int checkIntervalMinutes) {
+        return Domain.builder().id(id).name("host" + id + ".example.com").port(443)
+                .checkIntervalMinutes(checkIntervalMinutes).build();
+    }
+    
+    private static SslCertificate served(Long domainId, String chain, String revocationStatus) {
+        return SslCertificate.builder()
+                .domain(Domain.builder().id(domainId).name("host" + domainId + ".example.com").port(443).build())
+                .status(SslCertificate.CertificateStatus.VALID)
+                .fingerprintSha256("9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08")
+                .certificateChain(chain)
+                .revocationStatus(revocationStatus)
+                .lastSeenAt(LocalDateTime.now())
+                .checkCount(1)
+                .responseTimeMs(10L)
+                .build();
+    }
+    
+    private static SslCertificate result(Long domainId, String errorMessage) {
+        return result(Domain.builder().id(domainId).name("host" + domainId + ".example.com").port(443).build(),
+                errorMessage);
+    }
+    
+    private static SslCertificate result(Domain domain, String errorMessage) {
+        return SslCertificate.builder()
+                .domain(domain)
+                .status(SslCertificate.CertificateStatus.ERROR)
+                .errorMessage(errorMessage)
+                .lastSeenAt(LocalDateTime.now())
+                .checkCount(1)
+                .responseTimeMs(10L)
+                .responseTimeTotalMs(10L)
+                .responseTimeMaxMs(10L)
+                .build();
+    }
+}
@@ -0,0 +1,154 @@
+package org.avengers.boilerplate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+import org.avengers.boilerplate.repository.DomainRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DueCheckSchedulerTest {
+    
+    @Mock
+    private DomainRepository domainRepository;
+    
+    @Mock
+    private SslCertificateChecker sslCertificateChecker;
+    
+    private SimpleMeterRegistry meterRegistry;
+    
+    private DueCheckScheduler scheduler;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        scheduler = new DueCheckScheduler(domainRepository, sslCertificateChecker, 2, 10, Duration.ZERO, meterRegistry);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+    
+    @Test
+    void testSchedule_FiresWhenDueThenRequeuesOneIntervalLater() throws Exception {
+        Domain domain = domain(1L, 5, LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(300)));
+        when(domainRepository.findById(1L)).thenReturn(Optional.of(domain));
+        when(sslCertificateChecker.checkWithinDestinationLimits(domain))
+                .thenReturn(CompletableFuture.completedFuture(new SslCertificate()));
+        
+        scheduler.schedule(domain);
+        
+        verify(sslCertificateChecker, never()).checkWithinDestinationLimits(any());
+        verify(sslCertificateChecker, timeout(2000)).checkWithinDestinationLimits(domain);
+        
+        // Requeued once the check's future completes, just after the call returns
+        long deadline = System.currentTimeMillis() + 2000;
+        long delayMs = scheduler.getDelayMillis(1L);
+        while (delayMs <= TimeUnit.MINUTES.toMillis(4) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            delayMs = scheduler.getDelayMillis(1L);
+        }
+        assertTrue(delayMs > TimeUnit.MINUTES.toMillis(4), "requeued " + delayMs + "ms ahead");
+        assertEquals(1, meterRegistry.get("ssl.monitor.schedule.fired").counter().count());
+    }
+    
+    @Test
+    void testSchedule_DomainDeactivatedElsewhereIsDropped() {
+        Domain domain = domain(1L, 5, LocalDateTime.now());
+        Domain deactivated = domain(1L, 5, LocalDateTime.now());
+        deactivated.setActive(false);
+        when(domainRepository.findById(1L)).thenReturn(Optional.of(deactivated));
+        
+        scheduler.schedule(domain);
+        
+        verify(domainRepository, timeout(2000)).findById(1L);
+        verify(sslCertificateChecker, after(200).never()).checkWithinDestinationLimits(any());
+        assertEquals(0, scheduler.getQueuedCount());
+    }
+    
+    @Test
+    void testOnDomainChanged_ReplacesAndRemovesEntries() {
+        scheduler.schedule(domain(1L, 60, LocalDateTime.now().plusHours(1)));
+        assertTrue(scheduler.getDelayMillis(1L) > TimeUnit.MINUTES.toMillis(50));
+        
+        // A shorter interval brings the next check forward
+        scheduler.onDomainChanged(new DomainChangedEvent(domain(1L, 5, LocalDateTime.now().plusMinutes(5))));
+        assertTrue(scheduler.getDelayMillis(1L) <= TimeUnit.MINUTES.toMillis(5));
+        assertEquals(1, scheduler.getQueuedCount());
+        
+        Domain deactivated = domain(1L, 5, LocalDateTime.now().plusMinutes(5));
+        deactivated.setActive(false);
+        scheduler.onDomainChanged(new DomainChangedEvent(deactivated));
+        
+        assertEquals(-1, scheduler.getDelayMillis(1L));
+        assertEquals(0, scheduler.getQueuedCount());
+    }
+    
+    @Test
+    void testStart_QueuesActiveDomainsPageByPage() {
+        LocalDateTime later = LocalDateTime.now().plusHours(1);
+        when(domainRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(domain(1L, 60, later), domain(2L, 60, later)));
+        when(domainRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(eq(2L), any(Pageable.class)))
+                .thenReturn(List.of(domain(3L, 60, later)));
+        when(domainRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(eq(3L), any(Pageable.class)))
+                .thenReturn(List.of());
+        
+        scheduler.start();
+        
+        assertEquals(3, scheduler.getQueuedCount());
+        verifyNoInteractions(sslCertificateChecker);
+    }
+    
+    @Test
+    void testStart_SpreadsBacklogOverWindowInIdOrder() {
+        scheduler.close();
+        scheduler = new DueCheckScheduler(domainRepository, sslCertificateChecker, 10, 10, Duration.ofMinutes(60),
+                meterRegistry);
+        LocalDateTime later = LocalDateTime.now().plusMinutes(5);
+        when(domainRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(domain(1L, 60, null), domain(2L, 60, LocalDateTime.now().minusHours(1)),
+                        domain(3L, 60, later), domain(4L, 60, null)));
+        when(domainRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(eq(4L), any(Pageable.class)))
+                .thenReturn(List.of());
+        
+        scheduler.start();
+        
+        // Three due domains at 0, 20 and 40 minutes; the one not yet due keeps its own time
+        assertTrue(scheduler.getDelayMillis(2L) > TimeUnit.MINUTES.toMillis(19)
+                && scheduler.getDelayMillis(2L) <= TimeUnit.MINUTES.toMillis(20));
+        assertTrue(scheduler.getDelayMillis(4L) > TimeUnit.MINUTES.toMillis(39)
+                && scheduler.getDelayMillis(4L) <= TimeUnit.MINUTES.toMillis(40));
+        assertTrue(scheduler.getDelayMillis(3L) <= TimeUnit.MINUTES.toMillis(5));
+    }
+    
+    private static Domain domain(Long id, int checkIntervalMinutes, LocalDateTime nextCheckAt) {
+        return Domain.builder()
+                .id(id)
+                .name("host" + id + ".example.com")
+                .port(443)
+                .active(true)
+                .checkIntervalMinutes(checkIntervalMinutes)
+                .nextCheckAt(nextCheckAt)
+                .build();
+    }
+}
@@ -0,0 +1,205 @@
+package org.avengers.boilerplate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.domain.entity.SslCertificate;
+import org.avengers.boilerplate.repository.DomainRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Several schedulers sharing one embedded database, as replicas would.
+ * Test transactions are off so each claim commits like it does in production.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LeasedCheckSchedulerTest {
+    
+    @Autowired
+    private DomainRepository domainRepository;
+    
+    private final List<LeasedCheckScheduler> schedulers = new ArrayList<>();
+    
+    private final Map<Long, AtomicInteger> checks = new ConcurrentHashMap<>();
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    
+    @AfterEach
+    void tearDown() {
+        schedulers.forEach(LeasedCheckScheduler::close);
+        domainRepository.deleteAll();
+    }
+    
+    @Test
+    void testPollOnce_ConcurrentNodesCheckEachDueDomainOnce() throws Exception {
+        createDomains(60);
+        SslCertificateChecker checker = storingChecker();
+        List<LeasedCheckScheduler> nodes = List.of(node("a", checker, Duration.ofMinutes(2)),
+                node("b", checker, Duration.ofMinutes(2)), node("c", checker, Duration.ofMinutes(2)));
+        
+        CyclicBarrier start = new CyclicBarrier(nodes.size());
+        ExecutorService executor = Executors.newFixedThreadPool(nodes.size());
+        try {
+            List<Future<Integer>> claimed = new ArrayList<>();
+            for (LeasedCheckScheduler node : nodes) {
+                claimed.add(executor.submit(() -> {
+                    start.await();
+                    int total = 0;
+                    for (int count = node.pollOnce(); count > 0; count = node.pollOnce()) {
+                        total += count;
+                    }
+                    return total;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> future : claimed) {
+                total += future.get();
+            }
+            assertEquals(60, total);
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        assertEquals(60, checks.size());
+        assertTrue(checks.values().stream().allMatch(count -> count.get() == 1), "duplicate checks: " + checks);
+        assertTrue(domainRepository.findClaimableIds(LocalDateTime.now(), Pageable.unpaged()).isEmpty());
+    }
+    
+    @Test
+    void testPollOnce_NodesTakeTurnsOnTheBacklog() {
+        createDomains(30);
+        SslCertificateChecker checker = storingChecker();
+        LeasedCheckScheduler a = node("a", checker, Duration.ofMinutes(2));
+        LeasedCheckScheduler b = node("b", checker, Duration.ofMinutes(2));
+        LeasedCheckScheduler c = node("c", checker, Duration.ofMinutes(2));
+        
+        // Batches of 10: each node leases a third and the next poll finds nothing left
+        assertEquals(10, a.pollOnce());
+        assertEquals(10, b.pollOnce());
+        assertEquals(10, c.pollOnce());
+        assertEquals(0, a.pollOnce());
+        assertEquals(30, checks.size());
+        
+        // Finished leases are handed back by each node's next poll or heartbeat
+        assertEquals(20, domainRepository.findAll().stream().filter(domain -> domain.getLeaseOwner() != null).count());
+        b.heartbeat();
+        c.pollOnce();
+        assertTrue(domainRepository.findAll().stream().allMatch(domain -> domain.getLeaseOwner() == null));
+    }
+    
+    @Test
+    void testPollOnce_ExpiredLeasesOfDeadNodeAreReclaimed() throws Exception {
+        createDomains(5);
+        // Node a's checks never finish and it never heartbeats, as if it had died mid-check
+        SslCertificateChecker hung = mock(SslCertificateChecker.class);
+        when(hung.checkWithinDestinationLimits(any())).thenReturn(new CompletableFuture<>());
+        LeasedCheckScheduler a = node("a", hung, Duration.ofMillis(300));
+        LeasedCheckScheduler b = node("b", storingChecker(), Duration.ofMillis(300));
+        
+        assertEquals(5, a.pollOnce());
+        assertEquals(0, b.pollOnce());
+        
+        Thread.sleep(500);
+        
+        assertEquals(5, b.pollOnce());
+        assertEquals(5, checks.size());
+        // Both nodes share the registry here; in production each scrape target is one node
+        assertEquals(10, meterRegistry.get("ssl.monitor.lease.claimed").counter().count());
+    }
+    
+    @Test
+    void testPollOnce_UnstoredResultIsRetriedLater() {
+        createDomains(5);
+        SslCertificateChecker failing = mock(SslCertificateChecker.class);
+        when(failing.checkWithinDestinationLimits(any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Database error")));
+        LeasedCheckScheduler a = node("a", failing, Duration.ofMinutes(2));
+        LeasedCheckScheduler b = node("b", storingChecker(), Duration.ofMinutes(2));
+        
+        assertEquals(5, a.pollOnce());
+        
+        // Released by a's next poll, but not due again until the retry delay has passed
+        assertEquals(0, a.pollOnce());
+        assertEquals(0, b.pollOnce());
+        LocalDateTime retryFrom = LocalDateTime.now().plusMinutes(4);
+        assertTrue(domainRepository.findAll().stream().allMatch(domain -> domain.getLeaseOwner() == null
+                && domain.getNextCheckAt().isAfter(retryFrom)));
+    }
+    
+    @Test
+    void testHeartbeat_KeepsLeasesOfRunningChecks() throws Exception {
+        createDomains(3);
+        SslCertificateChecker hung = mock(SslCertificateChecker.class);
+        when(hung.checkWithinDestinationLimits(any())).thenReturn(new CompletableFuture<>());
+        LeasedCheckScheduler a = node("a", hung, Duration.ofMillis(300));
+        LeasedCheckScheduler b = node("b", storingChecker(), Duration.ofMillis(300));
+        
+        assertEquals(3, a.pollOnce());
+        Thread.sleep(200);
+        a.heartbeat();
+        Thread.sleep(200);
+        
+        assertEquals(0, b.pollOnce());
+        assertEquals(3, a.getInFlightCount());
+        
+        // Shutting down hands the leases over without waiting for them to expire
+        a.close();
+        assertEquals(3, b.pollOnce());
+    }
+    
+    private LeasedCheckScheduler node(String nodeId, SslCertificateChecker checker, Duration leaseDuration) {
+        LeasedCheckScheduler node = new LeasedCheckScheduler(domainRepository, checker, nodeId, 10, 100,
+                leaseDuration, Duration.ofSeconds(1), Duration.ofMinutes(5), meterRegistry);
+        schedulers.add(node);
+        return node;
+    }
+    
+    /**
+     * Stands in for a real check: records it and stores the next check time
+     * before completing, as the result writer does.
+     */
+    private SslCertificateChecker storingChecker() {
+        SslCertificateChecker checker = mock(SslCertificateChecker.class);
+        when(checker.checkWithinDestinationLimits(any())).thenAnswer(invocation -> {
+            Domain domain = invocation.getArgument(0);
+            checks.computeIfAbsent(domain.getId(), id -> new AtomicInteger()).incrementAndGet();
+            LocalDateTime now = LocalDateTime.now();
+            domainRepository.updateCheckTimes(List.of(domain.getId()), now, now.plusDays(1));
+            return CompletableFuture.completedFuture(new SslCertificate());
+        });
+        return checker;
+    }
+    
+    private void createDomains(int count) {
+        List<Domain> domains = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            domains.add(Domain.builder().name("host" + i + ".example.com").build());
+        }
+        domainRepository.saveAll(domains);
+    }
+}
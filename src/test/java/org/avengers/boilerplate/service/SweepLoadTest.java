@@ -0,0 +1,282 @@
+package org.avengers.boilerplate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.avengers.boilerplate.domain.entity.Domain;
+import org.avengers.boilerplate.repository.DomainRepository;
+import org.avengers.boilerplate.service.probe.CertificateProbe;
+import org.avengers.boilerplate.service.probe.DnsResolver;
+import org.avengers.boilerplate.service.probe.NioCertificateProbe;
+import org.avengers.boilerplate.service.probe.ProbeResult;
+import org.avengers.boilerplate.service.probe.TestDnsResolvers;
+import org.avengers.boilerplate.support.LocalTlsServerFarm;
+import org.avengers.boilerplate.support.LocalTlsServerFarm.Behaviour;
+import org.avengers.boilerplate.support.LocalTlsServerFarm.ChainShape;
+import org.avengers.boilerplate.support.LocalTlsServerFarm.EndpointSpec;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end sweep load against a {@link LocalTlsServerFarm}: seeds one
+ * domain per endpoint, runs full daily sweeps through
+ * {@link ScheduledSslCheckService} and prints checks/sec, probe latency
+ * percentiles and heap use for each. Skipped unless a domain count is given:
+ * <pre>
+ * mvn test -Dtest=SweepLoadTest -Dssl.monitor.load.domains=10000 \
+ *     [-Dssl.monitor.load.sweeps=3] [-Dssl.monitor.load.addressing=PORT] [-Dssl.monitor.load.latency-ms=50]
+ * </pre>
+ * Other {@code ssl.monitor.*} settings, such as the engine or destination
+ * limits, can be passed the same way. Every 100 endpoints hold 80 valid
+ * leaves, 5 expiring soon, 5 expired, 3 without their intermediate, 2 self
+ * signed, 2 with the full chain and one each that resets, black holes, or
+ * answers 500 ms late. Heap figures include the farm and the H2 database,
+ * both of which stay small next to the application at these sizes.
+ */
+@SpringBootTest(properties = {
+        "ssl.monitor.schedule.mode=cron",
+        "ssl.monitor.schedule.daily=-",
+        "ssl.monitor.schedule.hourly=-",
+        // The test profile shrinks the pool; load runs use the application defaults
+        "ssl.monitor.async.core-pool-size=5",
+        "ssl.monitor.async.max-pool-size=20",
+        "ssl.monitor.async.queue-capacity=100",
+        // Every SNI endpoint shares a few loopback listeners, which the per-address limits would throttle
+        "ssl.monitor.destination.max-per-address=2000",
+        "ssl.monitor.destination.max-per-subnet=0",
+        "ssl.monitor.destination.min-spacing-ms=0",
+        "ssl.monitor.destination.max-total=2000",
+        "spring.datasource.url=jdbc:h2:file:./target/sweep-load/db;DB_CLOSE_ON_EXIT=FALSE",
+        "logging.level.org.avengers.boilerplate=WARN"
+})
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "ssl.monitor.load.domains", matches = "\\d+")
+class SweepLoadTest {
+    
+    private static final int DOMAINS = Integer.getInteger("ssl.monitor.load.domains", 0);
+    private static final int SWEEPS = Integer.getInteger("ssl.monitor.load.sweeps", 3);
+    private static final int LATENCY_MS = Integer.getInteger("ssl.monitor.load.latency-ms", 0);
+    private static final LocalTlsServerFarm.Addressing ADDRESSING = LocalTlsServerFarm.Addressing.valueOf(
+            System.getProperty("ssl.monitor.load.addressing", "SNI"));
+    
+    private static final Recorder RECORDER = new Recorder(DOMAINS * 2);
+    private static LocalTlsServerFarm farm;
+    
+    @Autowired
+    private DomainRepository domainRepository;
+    
+    @Autowired
+    private ScheduledSslCheckService scheduledSslCheckService;
+    
+    @Autowired
+    private SslCertificateChecker sslCertificateChecker;
+    
+    @DynamicPropertySource
+    static void farmProperties(DynamicPropertyRegistry registry) throws Exception {
+        farm = LocalTlsServerFarm.start(DOMAINS, ADDRESSING, SweepLoadTest::spec);
+        Path trustStore = farm.writeTrustStore(Path.of("target", "sweep-load", "farm-trust.p12"));
+        registry.add("ssl.monitor.trust.store-path", trustStore::toString);
+        registry.add("ssl.monitor.trust.store-password", () -> "changeit");
+    }
+    
+    @AfterAll
+    static void stopFarm() {
+        if (farm != null) {
+            farm.close();
+        }
+    }
+    
+    @Test
+    void sweepFarm() {
+        // DataLoader's samples would send the sweep to the internet
+        domainRepository.deleteAll();
+        seed();
+        
+        for (int sweep = 1; sweep <= SWEEPS; sweep++) {
+            SweepReport report = runSweep(sweep);
+            assertEquals(DOMAINS, report.getSubmitted());
+            assertEquals(0, report.getAbandoned());
+        }
+    }
+    
+    private void seed() {
+        long started = System.nanoTime();
+        List<Domain> batch = new ArrayList<>(1000);
+        for (LocalTlsServerFarm.Endpoint endpoint : farm.getEndpoints()) {
+            batch.add(Domain.builder()
+                    .name(endpoint.host())
+                    .port(endpoint.port())
+                    .active(true)
+                    .build());
+            if (batch.size() == 1000) {
+                domainRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        domainRepository.saveAll(batch);
+        System.out.printf("Seeded %d domains (%s addressing) in %d ms%n",
+                DOMAINS, ADDRESSING, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+    
+    private SweepReport runSweep(int sweep) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+        AtomicLong peak = new AtomicLong(baseline);
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                0, 100, TimeUnit.MILLISECONDS);
+        RECORDER.reset();
+        long farmHellos = farm.getClientHellos();
+        
+        long started = System.nanoTime();
+        scheduledSslCheckService.performDailySslChecks();
+        long elapsedNanos = System.nanoTime() - started;
+        sampler.shutdownNow();
+        SweepReport report = sslCertificateChecker.getCurrentSweep();
+        
+        System.gc();
+        long retained = memory.getHeapMemoryUsage().getUsed();
+        long[] latencies = RECORDER.sorted();
+        System.out.printf("Sweep %d: %d checks in %d ms, %.1f checks/s; stored=%d errors=%d failed=%d; "
+                        + "farm client hellos=%d%n",
+                sweep, report.getSubmitted(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                report.getSubmitted() * 1e9 / elapsedNanos, report.getStored(), report.getErrors(),
+                report.getFailed(), farm.getClientHellos() - farmHellos);
+        System.out.printf("  probe latency ms: p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f (%d probes)%n",
+                percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                percentile(latencies, 99.9), percentile(latencies, 100), latencies.length);
+        System.out.printf("  heap MB: before=%d peak=%d after-gc=%d%n",
+                baseline >> 20, peak.get() >> 20, retained >> 20);
+        return report;
+    }
+    
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+    
+    private static EndpointSpec spec(int n) {
+        Duration latency = LATENCY_MS > 0 ? Duration.ofMillis(n % (LATENCY_MS + 1)) : Duration.ZERO;
+        int slot = n % 100;
+        if (slot < 80) {
+            return new EndpointSpec(Duration.ofDays(90), ChainShape.INTERMEDIATE, latency, Behaviour.HANDSHAKE);
+        } else if (slot < 85) {
+            return new EndpointSpec(Duration.ofDays(5), ChainShape.INTERMEDIATE, latency, Behaviour.HANDSHAKE);
+        } else if (slot < 90) {
+            return new EndpointSpec(Duration.ofDays(-5), ChainShape.INTERMEDIATE, latency, Behaviour.HANDSHAKE);
+        } else if (slot < 93) {
+            return new EndpointSpec(Duration.ofDays(90), ChainShape.LEAF, latency, Behaviour.HANDSHAKE);
+        } else if (slot < 95) {
+            return new EndpointSpec(Duration.ofDays(90), ChainShape.SELF_SIGNED, latency, Behaviour.HANDSHAKE);
+        } else if (slot < 97) {
+            return new EndpointSpec(Duration.ofDays(90), ChainShape.FULL, latency, Behaviour.HANDSHAKE);
+        } else if (slot == 97) {
+            return new EndpointSpec(Duration.ofDays(90), ChainShape.INTERMEDIATE, latency, Behaviour.RESET);
+        } else if (slot == 98) {
+            return new EndpointSpec(Duration.ofDays(90), ChainShape.INTERMEDIATE, latency, Behaviour.BLACK_HOLE);
+        }
+        return new EndpointSpec(Duration.ofDays(90), ChainShape.INTERMEDIATE, Duration.ofMillis(500),
+                Behaviour.HANDSHAKE);
+    }
+    
+    @TestConfiguration
+    static class FarmConfig {
+        
+        @Bean
+        @Primary
+        DnsResolver farmDnsResolver() {
+            return TestDnsResolvers.farm(farm, new SimpleMeterRegistry());
+        }
+        
+        @Bean
+        static BeanPostProcessor timedProbes() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof CertificateProbe probe ? new TimedProbe(probe) : bean;
+                }
+            };
+        }
+    }
+    
+    /**
+     * Times every probe attempt, retries included.
+     */
+    private record TimedProbe(CertificateProbe delegate) implements CertificateProbe, AutoCloseable {
+        
+        @Override
+        public CompletableFuture<ProbeResult> probe(String host, int port) {
+            long started = System.nanoTime();
+            return delegate.probe(host, port)
+                    .whenComplete((result, error) -> RECORDER.record(System.nanoTime() - started));
+        }
+        
+        @Override
+        public void close() {
+            // Only the nio engine holds threads to stop
+            if (delegate instanceof NioCertificateProbe nio) {
+                nio.close();
+            }
+        }
+    }
+    
+    private static final class Recorder {
+        
+        private final AtomicLongArray values;
+        private final AtomicInteger count = new AtomicInteger();
+        
+        Recorder(int capacity) {
+            values = new AtomicLongArray(Math.max(1, capacity));
+        }
+        
+        void record(long nanos) {
+            // Keeps the first capacity samples of a sweep
+            int index = count.getAndIncrement();
+            if (index < values.length()) {
+                values.set(index, nanos);
+            }
+        }
+        
+        void reset() {
+            count.set(0);
+        }
+        
+        long[] sorted() {
+            long[] sorted = new long[Math.min(count.get(), values.length())];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = values.get(i);
+            }
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.avengers.boilerplate.service.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEndpointTest {
+    
+    private JfrEndpoint endpoint;
+    
+    @BeforeEach
+    void setUp() {
+        endpoint = new JfrEndpoint();
+        ReflectionTestUtils.setField(endpoint, "defaultSettings", "default");
+        ReflectionTestUtils.setField(endpoint, "maxDurationMinutes", 10L);
+        ReflectionTestUtils.setField(endpoint, "maxAgeMinutes", 5L);
+        ReflectionTestUtils.setField(endpoint, "maxSizeMb", 16L);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        endpoint.close();
+    }
+    
+    @Test
+    void testDump_NothingRecorded() throws Exception {
+        assertEquals(WebEndpointResponse.STATUS_NOT_FOUND, endpoint.dump().getStatus());
+    }
+    
+    @Test
+    void testStart_BoundedByConfiguredLimits() {
+        WebEndpointResponse<Map<String, Object>> started = endpoint.start(600, null);
+        
+        assertEquals(WebEndpointResponse.STATUS_OK, started.getStatus());
+        assertEquals("RUNNING", started.getBody().get("state"));
+        assertEquals(Duration.ofMinutes(10), started.getBody().get("duration"));
+        assertEquals(Duration.ofMinutes(5), started.getBody().get("maxAge"));
+        assertEquals(16L * 1024 * 1024, started.getBody().get("maxSize"));
+    }
+    
+    @Test
+    void testStart_UnknownSettings() {
+        assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.start(null, "no-such-settings").getStatus());
+    }
+    
+    @Test
+    void testDump_ContainsEventsAndDeletesFileWhenRead() throws Exception {
+        endpoint.start(null, null);
+        SweepStartEvent.record(42, Duration.ZERO);
+        
+        Resource dump = endpoint.dump().getBody();
+        Path copy = Files.createTempFile("dump-", ".jfr");
+        try {
+            try (InputStream in = dump.getInputStream()) {
+                Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+            }
+            assertFalse(Files.exists(dump.getFile().toPath()));
+            
+            List<RecordedEvent> sweeps = RecordingFile.readAllEvents(copy).stream()
+                    .filter(event -> event.getEventType().getName().equals("org.avengers.boilerplate.SweepStart"))
+                    .toList();
+            assertEquals(1, sweeps.size());
+            assertEquals(42, sweeps.get(0).getLong("expected"));
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+    
+    @Test
+    void testDump_LeavesOutEnvironmentAndSystemProperties() throws Exception {
+        endpoint.start(null, "profile");
+        
+        Resource dump = endpoint.dump().getBody();
+        Path copy = Files.createTempFile("dump-", ".jfr");
+        try {
+            try (InputStream in = dump.getInputStream()) {
+                Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+            }
+            
+            List<String> sensitive = RecordingFile.readAllEvents(copy).stream()
+                    .map(event -> event.getEventType().getName())
+                    .filter(JfrEndpoint.SENSITIVE_EVENTS::contains)
+                    .toList();
+            assertEquals(List.of(), sensitive);
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+}
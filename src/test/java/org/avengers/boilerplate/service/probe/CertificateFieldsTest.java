@@ -0,0 +1,83 @@
+package org.avengers.boilerplate.service.probe;
+
+import org.avengers.boilerplate.support.TestCertificates;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CertificateFieldsTest {
+    
+    @Test
+    void testParse_MatchesJdkForEcLeaf() throws Exception {
+        TestCertificates.Issued ca = TestCertificates.selfSignedCa("Test CA");
+        X509Certificate leaf = TestCertificates.leaf(ca, "example.com", Duration.ofDays(90)).certificate();
+        
+        CertificateFields fields = CertificateFields.parse(leaf.getEncoded());
+        
+        assertEquals(leaf.getSubjectX500Principal().getName(), fields.subject());
+        assertEquals(leaf.getIssuerX500Principal().getName(), fields.issuer());
+        assertEquals(leaf.getSerialNumber().toString(), fields.serialNumber());
+        assertEquals(leaf.getNotBefore().toInstant(), fields.notBefore());
+        assertEquals(leaf.getNotAfter().toInstant(), fields.notAfter());
+        assertEquals(leaf.getSigAlgName(), fields.signatureAlgorithm());
+        assertEquals("EC", fields.keyAlgorithm());
+        assertEquals(256, fields.keySize());
+        assertEquals("example.com", fields.subjectAlternativeNames());
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(leaf.getEncoded())),
+                fields.fingerprintSha256());
+    }
+    
+    @Test
+    void testParse_MatchesJdkForEscapedNamesAndMixedAlternativeNames() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keys = generator.generateKeyPair();
+        X500Name name = new X500Name("CN=\\ Lead+OU=Ops,O=Acme\\, Inc.,L=a\\=b,C=US");
+        Instant notBefore = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(name, BigInteger.ONE.shiftLeft(70),
+                Date.from(notBefore), Date.from(notBefore.plus(Duration.ofDays(30))), name,
+                keys.getPublic());
+        builder.addExtension(Extension.subjectAlternativeName, false, new GeneralNames(new GeneralName[]{
+                new GeneralName(GeneralName.dNSName, "*.example.com"),
+                new GeneralName(GeneralName.iPAddress, "192.0.2.1"),
+                new GeneralName(GeneralName.iPAddress, "2001:db8::1"),
+                new GeneralName(GeneralName.rfc822Name, "ops@example.com"),
+                new GeneralName(GeneralName.uniformResourceIdentifier, "https://example.com/")}));
+        X509Certificate certificate = new JcaX509CertificateConverter().getCertificate(
+                builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(keys.getPrivate())));
+        
+        CertificateFields fields = CertificateFields.parse(certificate.getEncoded());
+        
+        assertEquals(certificate.getSubjectX500Principal().getName(), fields.subject());
+        assertEquals(certificate.getSerialNumber().toString(), fields.serialNumber());
+        assertEquals("SHA256withRSA", fields.signatureAlgorithm());
+        assertEquals("RSA", fields.keyAlgorithm());
+        assertEquals(2048, fields.keySize());
+        assertEquals("*.example.com,192.0.2.1,2001:db8:0:0:0:0:0:1,ops@example.com,https://example.com/",
+                fields.subjectAlternativeNames());
+    }
+    
+    @Test
+    void testParse_RejectsGarbage() {
+        assertThrows(IllegalArgumentException.class, () -> CertificateFields.parse(new byte[]{0x30, 0x03, 0x02}));
+    }
+}
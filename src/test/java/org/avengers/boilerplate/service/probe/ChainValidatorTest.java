@@ -0,0 +1,184 @@
+package org.avengers.boilerplate.service.probe;
+
+import com.google.common.base.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.avengers.boilerplate.support.TestCertificates;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChainValidatorTest {
+    
+    private final AtomicLong now = new AtomicLong();
+    
+    private SimpleMeterRegistry meterRegistry;
+    private TestCertificates.Issued root;
+    private TestCertificates.Issued intermediate;
+    private ChainValidator validator;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        root = TestCertificates.selfSignedCa("Test Root");
+        intermediate = TestCertificates.issue(root, "Test Intermediate", Duration.ofDays(365), true);
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return now.get();
+            }
+        };
+        validator = new ChainValidator(List.of(root.certificate()), Duration.ofMinutes(60), 100, meterRegistry,
+                ticker);
+    }
+    
+    @Test
+    void testValidate_LeavesUnderOneIntermediateBuildThePathOnce() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            TestCertificates.Issued leaf = TestCertificates.leaf(intermediate, "host" + i + ".example.com",
+                    Duration.ofDays(90));
+            assertTrue(validator.validate(leaf.chain()).trusted());
+        }
+        
+        assertEquals(1, validator.getCacheSize());
+        assertEquals(1, cacheCount("miss"));
+        assertEquals(4, cacheCount("hit"));
+    }
+    
+    @Test
+    void testValidate_VerdictExpiresAfterTtl() throws Exception {
+        TestCertificates.Issued leaf = TestCertificates.leaf(intermediate, "example.com", Duration.ofDays(90));
+        validator.validate(leaf.chain());
+        
+        now.addAndGet(TimeUnit.MINUTES.toNanos(61));
+        validator.validate(leaf.chain());
+        
+        assertEquals(2, cacheCount("miss"));
+    }
+    
+    @Test
+    void testValidate_ChainToUnknownRootIsUntrusted() throws Exception {
+        TestCertificates.Issued otherRoot = TestCertificates.selfSignedCa("Other Root");
+        TestCertificates.Issued otherIntermediate = TestCertificates.issue(otherRoot, "Other Intermediate",
+                Duration.ofDays(365), true);
+        TestCertificates.Issued leaf = TestCertificates.leaf(otherIntermediate, "example.com", Duration.ofDays(90));
+        
+        ChainValidator.Verdict verdict = validator.validate(leaf.chain());
+        
+        assertFalse(verdict.trusted());
+        assertNotNull(verdict.reason());
+        // A self-signed leaf fails the same way
+        assertFalse(validator.validate(otherRoot.chain()).trusted());
+    }
+    
+    @Test
+    void testValidate_LeafNotSignedByCachedIntermediateIsUntrusted() throws Exception {
+        TestCertificates.Issued good = TestCertificates.leaf(intermediate, "good.example.com", Duration.ofDays(90));
+        assertTrue(validator.validate(good.chain()).trusted());
+        
+        // Same issuer name, different key: only the signature check can tell
+        TestCertificates.Issued impostorCa = TestCertificates.selfSignedCa("Test Intermediate");
+        TestCertificates.Issued forged = TestCertificates.leaf(impostorCa, "forged.example.com", Duration.ofDays(90));
+        X509Certificate[] presented = {forged.certificate(), intermediate.certificate(), root.certificate()};
+        
+        ChainValidator.Verdict verdict = validator.validate(presented);
+        
+        assertFalse(verdict.trusted());
+        assertTrue(verdict.reason().startsWith("Leaf signature does not verify"));
+    }
+    
+    @Test
+    void testValidate_OutOfOrderChainIsTrusted() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            TestCertificates.Issued leaf = TestCertificates.leaf(intermediate, "host" + i + ".example.com",
+                    Duration.ofDays(90));
+            X509Certificate[] presented = {leaf.certificate(), root.certificate(), intermediate.certificate()};
+            
+            assertTrue(validator.validate(presented).trusted());
+        }
+        
+        // The failed validation as presented is shared, the built path is per leaf
+        assertEquals(4, cacheCount("miss"));
+        assertEquals(2, cacheCount("hit"));
+    }
+    
+    @Test
+    void testValidate_PathBuiltForOneLeafIsNotReusedForAnother() throws Exception {
+        TestCertificates.Issued otherRoot = TestCertificates.selfSignedCa("Other Root");
+        TestCertificates.Issued otherIntermediate = TestCertificates.issue(otherRoot, "Other Intermediate",
+                Duration.ofDays(365), true);
+        TestCertificates.Issued stranger = TestCertificates.leaf(otherIntermediate, "stranger.example.com",
+                Duration.ofDays(90));
+        TestCertificates.Issued leaf = TestCertificates.leaf(intermediate, "example.com", Duration.ofDays(90));
+        
+        // Both behind the same out-of-order issuers; only the second leaf has a path through them
+        assertFalse(validator.validate(new X509Certificate[]{stranger.certificate(), root.certificate(),
+                intermediate.certificate()}).trusted());
+        assertTrue(validator.validate(new X509Certificate[]{leaf.certificate(), root.certificate(),
+                intermediate.certificate()}).trusted());
+        assertTrue(validator.validate(new X509Certificate[]{leaf.certificate(), root.certificate(),
+                intermediate.certificate()}).trusted());
+        
+        assertEquals(3, cacheCount("miss"));
+        assertEquals(3, cacheCount("hit"));
+    }
+    
+    @Test
+    void testValidate_CrossSignedRootIsTrusted() throws Exception {
+        // The server sends the trusted root as cross-signed by an older root the store does not hold
+        TestCertificates.Issued oldRoot = TestCertificates.selfSignedCa("Old Root");
+        X509Certificate crossSigned = TestCertificates.crossSign(oldRoot, root, Duration.ofDays(365));
+        TestCertificates.Issued leaf = TestCertificates.leaf(intermediate, "example.com", Duration.ofDays(90));
+        
+        assertTrue(validator.validate(new X509Certificate[]{leaf.certificate(), intermediate.certificate(),
+                crossSigned}).trusted());
+        
+        // A leaf straight under the root, followed by only the cross-signed copy
+        TestCertificates.Issued direct = TestCertificates.leaf(root, "direct.example.com", Duration.ofDays(90));
+        assertTrue(validator.validate(new X509Certificate[]{direct.certificate(), crossSigned}).trusted());
+    }
+    
+    @Test
+    void testValidate_OutOfOrderChainWithoutTrustedRootIsUntrusted() throws Exception {
+        TestCertificates.Issued otherRoot = TestCertificates.selfSignedCa("Other Root");
+        TestCertificates.Issued otherIntermediate = TestCertificates.issue(otherRoot, "Other Intermediate",
+                Duration.ofDays(365), true);
+        TestCertificates.Issued leaf = TestCertificates.leaf(otherIntermediate, "example.com", Duration.ofDays(90));
+        
+        ChainValidator.Verdict verdict = validator.validate(new X509Certificate[]{leaf.certificate(),
+                otherRoot.certificate(), otherIntermediate.certificate()});
+        
+        assertFalse(verdict.trusted());
+        assertNotNull(verdict.reason());
+    }
+    
+    @Test
+    void testValidate_CacheKeepsAtMostMaxEntries() throws Exception {
+        ChainValidator small = new ChainValidator(List.of(root.certificate()), Duration.ofMinutes(60), 2,
+                new SimpleMeterRegistry());
+        for (int i = 0; i < 5; i++) {
+            TestCertificates.Issued ca = TestCertificates.issue(root, "Intermediate " + i, Duration.ofDays(365), true);
+            TestCertificates.Issued leaf = TestCertificates.leaf(ca, "host" + i + ".example.com", Duration.ofDays(90));
+            assertTrue(small.validate(leaf.chain()).trusted());
+        }
+        
+        assertEquals(2, small.getCacheSize());
+    }
+    
+    @Test
+    void testValidate_MissingIntermediateIsUntrusted() throws Exception {
+        TestCertificates.Issued leaf = TestCertificates.leaf(intermediate, "example.com", Duration.ofDays(90));
+        
+        assertFalse(validator.validate(new X509Certificate[]{leaf.certificate()}).trusted());
+    }
+    
+    private double cacheCount(String result) {
+        return meterRegistry.get("ssl.monitor.trust.cache").tag("result", result).counter().count();
+    }
+}
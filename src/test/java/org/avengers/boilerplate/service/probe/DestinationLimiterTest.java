@@ -0,0 +1,127 @@
+package org.avengers.boilerplate.service.probe;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DestinationLimiterTest {
+    
+    private DestinationLimiter limiter;
+    
+    @AfterEach
+    void tearDown() {
+        if (limiter != null) {
+            limiter.close();
+        }
+    }
+    
+    @Test
+    void testAcquire_QueuesBeyondPerAddressLimit() throws Exception {
+        limiter = newLimiter(2, 0, Duration.ZERO, 100);
+        InetAddress edge = address("10.0.0.1");
+        
+        DestinationLimiter.Permit first = limiter.acquire(edge).get(1, TimeUnit.SECONDS);
+        limiter.acquire(edge).get(1, TimeUnit.SECONDS);
+        CompletableFuture<DestinationLimiter.Permit> third = limiter.acquire(edge);
+        
+        assertFalse(third.isDone());
+        assertEquals(1, limiter.getQueuedCount());
+        
+        first.release();
+        
+        assertNotNull(third.get(1, TimeUnit.SECONDS));
+        assertEquals(0, limiter.getQueuedCount());
+    }
+    
+    @Test
+    void testAcquire_SaturatedAddressDoesNotBlockOthers() throws Exception {
+        limiter = newLimiter(1, 0, Duration.ZERO, 100);
+        
+        limiter.acquire(address("10.0.0.1")).get(1, TimeUnit.SECONDS);
+        CompletableFuture<DestinationLimiter.Permit> sameEdge = limiter.acquire(address("10.0.0.1"));
+        CompletableFuture<DestinationLimiter.Permit> otherEdge = limiter.acquire(address("10.0.9.1"));
+        
+        assertFalse(sameEdge.isDone());
+        assertNotNull(otherEdge.get(1, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    void testAcquire_SubnetLimitSpansAddresses() throws Exception {
+        limiter = newLimiter(4, 2, Duration.ZERO, 100);
+        
+        limiter.acquire(address("10.0.0.1")).get(1, TimeUnit.SECONDS);
+        DestinationLimiter.Permit second = limiter.acquire(address("10.0.0.2")).get(1, TimeUnit.SECONDS);
+        CompletableFuture<DestinationLimiter.Permit> sameSubnet = limiter.acquire(address("10.0.0.3"));
+        
+        assertFalse(sameSubnet.isDone());
+        assertNotNull(limiter.acquire(address("10.0.1.3")).get(1, TimeUnit.SECONDS));
+        
+        second.release();
+        
+        assertNotNull(sameSubnet.get(1, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    void testAcquire_SpacesProbesToOneAddress() throws Exception {
+        limiter = newLimiter(8, 0, Duration.ofMillis(200), 100);
+        InetAddress edge = address("10.0.0.1");
+        
+        long start = System.nanoTime();
+        limiter.acquire(edge).get(1, TimeUnit.SECONDS);
+        limiter.acquire(edge).get(1, TimeUnit.SECONDS);
+        limiter.acquire(edge).get(1, TimeUnit.SECONDS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        
+        assertTrue(elapsedMs >= 400, "three probes should start at least 200ms apart, took " + elapsedMs + "ms");
+    }
+    
+    @Test
+    void testAcquire_GlobalLimitAcrossDestinations() throws Exception {
+        limiter = newLimiter(8, 0, Duration.ZERO, 2);
+        
+        DestinationLimiter.Permit first = limiter.acquire(address("10.0.0.1")).get(1, TimeUnit.SECONDS);
+        limiter.acquire(address("10.0.1.1")).get(1, TimeUnit.SECONDS);
+        CompletableFuture<DestinationLimiter.Permit> third = limiter.acquire(address("10.0.2.1"));
+        
+        assertFalse(third.isDone());
+        
+        first.release();
+        first.release();
+        
+        assertNotNull(third.get(1, TimeUnit.SECONDS));
+        assertFalse(limiter.acquire(address("10.0.3.1")).isDone(), "a double release must not free a second slot");
+    }
+    
+    @Test
+    void testRelease_ForgetsIdleDestinations() throws Exception {
+        limiter = newLimiter(2, 4, Duration.ZERO, 100);
+        
+        DestinationLimiter.Permit permit = limiter.acquire(address("10.0.0.1")).get(1, TimeUnit.SECONDS);
+        assertEquals(2, limiter.getTrackedDestinations());
+        
+        permit.release();
+        
+        assertEquals(0, limiter.getTrackedDestinations());
+    }
+    
+    @Test
+    void testSubnetKey() throws Exception {
+        assertEquals("192.0.2.0/24", DestinationLimiter.subnetKey(address("192.0.2.77")));
+        assertEquals("2001:db8:0:1::/64", DestinationLimiter.subnetKey(InetAddress.getByName("2001:db8:0:1::5")));
+    }
+    
+    private DestinationLimiter newLimiter(int perAddress, int perSubnet, Duration spacing, int global) {
+        return new DestinationLimiter(perAddress, perSubnet, spacing, global, new SimpleMeterRegistry());
+    }
+    
+    private static InetAddress address(String literal) throws Exception {
+        return InetAddress.getByName(literal);
+    }
+}
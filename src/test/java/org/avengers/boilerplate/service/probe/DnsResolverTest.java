@@ -0,0 +1,155 @@
+package org.avengers.boilerplate.service.probe;
+
+import com.google.common.base.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DnsResolverTest {
+    
+    private final AtomicLong now = new AtomicLong();
+    private final Map<String, AtomicInteger> lookups = new ConcurrentHashMap<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile boolean blockLookups;
+    
+    private SimpleMeterRegistry meterRegistry;
+    private DnsResolver resolver;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return now.get();
+            }
+        };
+        resolver = new DnsResolver(this::lookup, Executors.newFixedThreadPool(2), Duration.ofSeconds(300),
+                Duration.ofSeconds(60), 1000, meterRegistry, ticker);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        resolver.close();
+    }
+    
+    @Test
+    void testResolve_CachesPositiveAnswer() throws Exception {
+        InetAddress first = resolver.resolve("example.com").get(5, TimeUnit.SECONDS);
+        InetAddress second = resolver.resolve("example.com").get(5, TimeUnit.SECONDS);
+        
+        assertEquals(first, second);
+        assertEquals(1, lookups.get("example.com").get());
+        assertEquals(1, counter("hit"));
+        assertEquals(1, counter("miss"));
+    }
+    
+    @Test
+    void testResolve_CachesNegativeAnswer() {
+        assertThrows(ExecutionException.class, () -> resolver.resolve("dead.invalid").get(5, TimeUnit.SECONDS));
+        
+        CompletableFuture<InetAddress> cached = resolver.resolve("dead.invalid");
+        
+        assertTrue(cached.isCompletedExceptionally());
+        assertEquals(1, lookups.get("dead.invalid").get());
+        assertEquals(1, counter("negative_hit"));
+        assertEquals("Connection failed: dead.invalid", DnsResolver.failureMessage(
+                assertThrows(ExecutionException.class, cached::get)));
+    }
+    
+    @Test
+    void testResolve_ExpiredEntryIsResolvedAgain() throws Exception {
+        resolver.resolve("dead.invalid").handle((address, error) -> null).get(5, TimeUnit.SECONDS);
+        resolver.resolve("example.com").get(5, TimeUnit.SECONDS);
+        
+        now.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        resolver.resolve("dead.invalid").handle((address, error) -> null).get(5, TimeUnit.SECONDS);
+        resolver.resolve("example.com").get(5, TimeUnit.SECONDS);
+        
+        assertEquals(2, lookups.get("dead.invalid").get());
+        assertEquals(1, lookups.get("example.com").get());
+        
+        now.addAndGet(TimeUnit.SECONDS.toNanos(300));
+        resolver.resolve("example.com").get(5, TimeUnit.SECONDS);
+        
+        assertEquals(2, lookups.get("example.com").get());
+    }
+    
+    @Test
+    void testResolve_ConcurrentRequestsShareOneLookup() throws Exception {
+        blockLookups = true;
+        List<CompletableFuture<InetAddress>> futures = List.of(
+                resolver.resolve("example.com"),
+                resolver.resolve("example.com"),
+                resolver.resolve("example.com"));
+        release.countDown();
+        
+        for (CompletableFuture<InetAddress> future : futures) {
+            assertNotNull(future.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, lookups.get("example.com").get());
+    }
+    
+    @Test
+    void testPrefetch_WarmsCacheForLaterProbes() throws Exception {
+        resolver.prefetch(List.of("a.example.com", "b.example.com"));
+        
+        resolver.resolve("a.example.com").get(5, TimeUnit.SECONDS);
+        resolver.resolve("b.example.com").get(5, TimeUnit.SECONDS);
+        
+        assertEquals(1, lookups.get("a.example.com").get());
+        assertEquals(1, lookups.get("b.example.com").get());
+        assertEquals(2, resolver.getCacheSize());
+    }
+    
+    @Test
+    void testResolve_CacheStaysBoundedByMaxEntries() throws Exception {
+        resolver.close();
+        resolver = new DnsResolver(this::lookup, Executors.newFixedThreadPool(2), Duration.ofSeconds(300),
+                Duration.ofSeconds(60), 10, meterRegistry, Ticker.systemTicker());
+        
+        // Fresh answers only, so nothing has expired to make room
+        for (int i = 0; i < 50; i++) {
+            resolver.resolve("host" + i + ".example.com").get(5, TimeUnit.SECONDS);
+        }
+        
+        assertEquals(10, resolver.getCacheSize());
+    }
+    
+    private InetAddress lookup(String host) throws UnknownHostException {
+        lookups.computeIfAbsent(host, name -> new AtomicInteger()).incrementAndGet();
+        if (blockLookups) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (host.endsWith(".invalid")) {
+            throw new UnknownHostException(host);
+        }
+        return InetAddress.getByAddress(host, new byte[]{10, 0, 0, 1});
+    }
+    
+    private double counter(String result) {
+        return meterRegistry.get("ssl.monitor.dns.cache").tag("result", result).counter().count();
+    }
+}
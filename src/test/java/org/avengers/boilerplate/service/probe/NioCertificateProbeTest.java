@@ -0,0 +1,218 @@
+package org.avengers.boilerplate.service.probe;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.avengers.boilerplate.support.LocalOcspResponder;
+import org.avengers.boilerplate.support.LocalTlsServer;
+import org.avengers.boilerplate.support.TestCertificates;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NioCertificateProbeTest {
+    
+    private DnsResolver dnsResolver;
+    private TestCertificates.Issued ca;
+    private TestCertificates.Issued leaf;
+    private LocalTlsServer server;
+    private ExecutorService taskPool;
+    private final Set<String> taskThreads = ConcurrentHashMap.newKeySet();
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        dnsResolver = new DnsResolver(2, Duration.ofMinutes(5), Duration.ofMinutes(1), 1000, new SimpleMeterRegistry());
+        ca = TestCertificates.selfSignedCa("Test Root CA");
+        leaf = TestCertificates.leaf(ca, "localhost", Duration.ofDays(60));
+        server = new LocalTlsServer(leaf.serverContext());
+        taskPool = Executors.newFixedThreadPool(2);
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        server.close();
+        dnsResolver.close();
+        taskPool.shutdownNow();
+    }
+    
+    @Test
+    void testProbe_CapturesPeerChain() throws Exception {
+        try (NioCertificateProbe probe = newProbe(TestCertificates.trusting(ca.certificate()), 5000)) {
+            ProbeResult result = probe.probeNow("localhost", server.getPort());
+            
+            assertTrue(result.isSuccess(), result.getErrorMessage());
+            assertEquals(leaf.certificate(), result.getLeafCertificate());
+            assertEquals(2, result.getPeerCertificates().length);
+            assertNotNull(result.getDnsMs());
+            assertNotNull(result.getConnectMs());
+            assertNotNull(result.getHandshakeMs());
+        }
+    }
+    
+    @Test
+    void testProbe_ManyConcurrentHandshakes() throws Exception {
+        try (NioCertificateProbe probe = newProbe(TestCertificates.trusting(ca.certificate()), 30000)) {
+            List<CompletableFuture<ProbeResult>> futures = IntStream.range(0, 200)
+                    .mapToObj(i -> probe.probe("localhost", server.getPort()))
+                    .toList();
+            
+            for (CompletableFuture<ProbeResult> future : futures) {
+                assertTrue(future.join().isSuccess());
+            }
+        }
+    }
+    
+    @Test
+    void testProbe_DelegatedTasksRunOffTheSelector() throws Exception {
+        try (NioCertificateProbe probe = newProbe(TestCertificates.trusting(ca.certificate()), 5000)) {
+            assertTrue(probe.probeNow("localhost", server.getPort()).isSuccess());
+        }
+        
+        assertFalse(taskThreads.isEmpty());
+        assertTrue(taskThreads.stream().noneMatch(name -> name.startsWith("SSL-Probe-Selector-")), taskThreads::toString);
+    }
+    
+    @Test
+    void testProbe_RejectedDelegatedTasksFailInsteadOfRunningOnTheSelector() throws Exception {
+        ProbeTimeouts timeouts = new ProbeTimeouts(5000, 5000, 5000, 60000);
+        try (NioCertificateProbe probe = new NioCertificateProbe(TestCertificates.trusting(ca.certificate()),
+                timeouts, 1, 16, dnsResolver, task -> {
+                    throw new RejectedExecutionException("saturated");
+                })) {
+            ProbeResult result = probe.probeNow("localhost", server.getPort());
+            
+            assertFalse(result.isSuccess());
+            assertEquals("Unexpected error: saturated", result.getErrorMessage());
+        }
+    }
+    
+    @Test
+    void testProbe_AfterCloseFailsInsteadOfHanging() throws Exception {
+        NioCertificateProbe probe = newProbe(TestCertificates.trusting(ca.certificate()), 5000);
+        probe.close();
+        
+        ProbeResult result = probe.probe("localhost", server.getPort()).get(5, TimeUnit.SECONDS);
+        assertFalse(result.isSuccess());
+        assertEquals("Unexpected error: probe engine is shut down", result.getErrorMessage());
+    }
+    
+    @Test
+    void testProbe_UntrustedCertificate() throws Exception {
+        SSLContext defaultContext = SSLContext.getInstance("TLS");
+        defaultContext.init(null, null, null);
+        
+        try (NioCertificateProbe probe = newProbe(defaultContext, 5000)) {
+            ProbeResult result = probe.probeNow("localhost", server.getPort());
+            
+            assertFalse(result.isSuccess());
+            assertTrue(result.getErrorMessage().startsWith("SSL handshake failed"));
+        }
+    }
+    
+    @Test
+    void testProbe_CaptureModeReturnsExpiredChainWithoutFinishingHandshake() throws Exception {
+        TestCertificates.Issued expired = TestCertificates.leaf(ca, "localhost", Duration.ofDays(-1));
+        try (LocalTlsServer expiredServer = new LocalTlsServer(expired.serverContext());
+             NioCertificateProbe probe = newProbe(capturingContext(), 5000)) {
+            ProbeResult result = probe.probeNow("localhost", expiredServer.getPort());
+            
+            assertTrue(result.isSuccess(), result.getErrorMessage());
+            assertEquals(expired.certificate(), result.getLeafCertificate());
+            assertEquals(2, result.getPeerCertificates().length);
+            assertNotNull(result.getHandshakeMs());
+            assertEquals(0, expiredServer.getCompletedHandshakes());
+        }
+    }
+    
+    @Test
+    void testProbe_CaptureModeKeepsStapledOcspResponse() throws Exception {
+        try (LocalOcspResponder responder = new LocalOcspResponder(ca, Duration.ofDays(1), Clock.systemUTC())) {
+            TestCertificates.Issued stapled = TestCertificates.leaf(ca, "localhost", Duration.ofDays(60),
+                    responder.getUrl());
+            try (LocalTlsServer staplingServer = new LocalTlsServer(stapled.staplingServerContext());
+                 NioCertificateProbe probe = newProbe(capturingContext(), 5000)) {
+                ProbeResult result = probe.probeNow("localhost", staplingServer.getPort());
+                
+                assertTrue(result.isSuccess(), result.getErrorMessage());
+                assertEquals(stapled.certificate(), result.getLeafCertificate());
+                assertNotNull(result.getStapledOcspResponse(), "stapled response lost with the aborted handshake");
+                assertEquals(OCSPResp.SUCCESSFUL, new OCSPResp(result.getStapledOcspResponse()).getStatus());
+                assertEquals(0, staplingServer.getCompletedHandshakes());
+            }
+        }
+    }
+    
+    @Test
+    void testProbe_SilentPeerTimesOut() throws Exception {
+        try (ServerSocket blackHole = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+             NioCertificateProbe probe = newProbe(TestCertificates.trusting(ca.certificate()), 300)) {
+            ProbeResult result = probe.probeNow("localhost", blackHole.getLocalPort());
+            
+            assertFalse(result.isSuccess());
+            assertEquals("Connection failed: Read timed out", result.getErrorMessage());
+            assertNotNull(result.getConnectMs());
+            assertNull(result.getHandshakeMs());
+        }
+    }
+    
+    @Test
+    void testProbe_PeerClosingMidHandshakeIsReset() throws Exception {
+        try (ServerSocket hangUp = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+             NioCertificateProbe probe = newProbe(TestCertificates.trusting(ca.certificate()), 5000)) {
+            // Read the ClientHello, then hang up without answering
+            taskPool.execute(() -> {
+                try (Socket socket = hangUp.accept()) {
+                    socket.getInputStream().read(new byte[512]);
+                } catch (IOException ignored) {
+                }
+            });
+            ProbeResult result = probe.probeNow("localhost", hangUp.getLocalPort());
+            
+            assertFalse(result.isSuccess());
+            assertEquals(ProbeFailure.RESET, result.getFailure());
+        }
+    }
+    
+    @Test
+    void testProbe_UnknownHost() throws Exception {
+        try (NioCertificateProbe probe = newProbe(TestCertificates.trusting(ca.certificate()), 5000)) {
+            ProbeResult result = probe.probeNow("invalid-domain-that-does-not-exist.invalid", 443);
+            
+            assertFalse(result.isSuccess());
+            assertTrue(result.getErrorMessage().startsWith("Connection failed"));
+        }
+    }
+    
+    private static SSLContext capturingContext() throws Exception {
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, new TrustManager[]{new CapturingTrustManager()}, null);
+        return sslContext;
+    }
+    
+    private NioCertificateProbe newProbe(SSLContext sslContext, int handshakeTimeout) throws Exception {
+        ProbeTimeouts timeouts = new ProbeTimeouts(5000, 5000, handshakeTimeout, 60000);
+        return new NioCertificateProbe(sslContext, timeouts, 2, 256, dnsResolver, task -> taskPool.execute(() -> {
+            taskThreads.add(Thread.currentThread().getName());
+            task.run();
+        }));
+    }
+}
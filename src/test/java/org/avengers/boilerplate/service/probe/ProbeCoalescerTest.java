@@ -0,0 +1,83 @@
+package org.avengers.boilerplate.service.probe;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProbeCoalescerTest {
+    
+    private SimpleMeterRegistry meterRegistry;
+    private ProbeCoalescer coalescer;
+    private InetAddress edge;
+    private final AtomicInteger handshakes = new AtomicInteger();
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new ProbeCoalescer(meterRegistry);
+        edge = InetAddress.getByName("10.0.0.1");
+    }
+    
+    @Test
+    void testProbe_SharesHandshakeInFlight() {
+        CompletableFuture<ProbeResult> handshake = new CompletableFuture<>();
+        
+        CompletableFuture<ProbeResult> first = coalescer.probe(edge, "example.com", 443, () -> start(handshake));
+        CompletableFuture<ProbeResult> alias = coalescer.probe(edge, "EXAMPLE.com", 443, () -> start(handshake));
+        ProbeResult result = ProbeResult.failure("Connection failed: reset", 12);
+        handshake.complete(result);
+        
+        assertSame(result, first.join());
+        assertSame(result, alias.join());
+        assertEquals(1, handshakes.get());
+        assertEquals(1, meterRegistry.get("ssl.monitor.probe.coalesced").counter().count());
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+    
+    @Test
+    void testProbe_DistinctTargetsProbeSeparately() {
+        CompletableFuture<ProbeResult> handshake = new CompletableFuture<>();
+        
+        coalescer.probe(edge, "example.com", 443, () -> start(handshake));
+        coalescer.probe(edge, "www.example.com", 443, () -> start(handshake));
+        coalescer.probe(edge, "example.com", 8443, () -> start(handshake));
+        
+        assertEquals(3, handshakes.get());
+        assertEquals(3, coalescer.getInFlightCount());
+    }
+    
+    @Test
+    void testProbe_CompletedTargetIsProbedAgain() {
+        coalescer.probe(edge, "example.com", 443,
+                () -> start(CompletableFuture.completedFuture(ProbeResult.failure("first", 1)))).join();
+        ProbeResult second = coalescer.probe(edge, "example.com", 443,
+                () -> start(CompletableFuture.completedFuture(ProbeResult.failure("second", 1)))).join();
+        
+        assertEquals("second", second.getErrorMessage());
+        assertEquals(2, handshakes.get());
+    }
+    
+    @Test
+    void testProbe_FailureReachesEveryWaiter() {
+        CompletableFuture<ProbeResult> handshake = new CompletableFuture<>();
+        
+        CompletableFuture<ProbeResult> first = coalescer.probe(edge, "example.com", 443, () -> start(handshake));
+        CompletableFuture<ProbeResult> alias = coalescer.probe(edge, "example.com", 443, () -> start(handshake));
+        handshake.completeExceptionally(new IllegalStateException("engine shut down"));
+        
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(alias.isCompletedExceptionally());
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+    
+    private CompletableFuture<ProbeResult> start(CompletableFuture<ProbeResult> handshake) {
+        handshakes.incrementAndGet();
+        return handshake;
+    }
+}
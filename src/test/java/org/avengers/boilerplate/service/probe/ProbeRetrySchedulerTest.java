@@ -0,0 +1,116 @@
+package org.avengers.boilerplate.service.probe;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.avengers.boilerplate.support.TestCertificates;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLHandshakeException;
+import java.io.EOFException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProbeRetrySchedulerTest {
+    
+    private SimpleMeterRegistry meterRegistry;
+    private ProbeRetryScheduler scheduler;
+    private final AtomicInteger attempts = new AtomicInteger();
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        scheduler = new ProbeRetryScheduler(Duration.ofMillis(20), Duration.ofMillis(200),
+                EnumSet.of(ProbeFailure.TIMEOUT, ProbeFailure.RESET, ProbeFailure.REFUSED), meterRegistry);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+    
+    @Test
+    void testWithRetries_RetriesTransientFailureUntilSuccess() throws Exception {
+        TestCertificates.Issued ca = TestCertificates.selfSignedCa("Retry Root CA");
+        Queue<ProbeResult> outcomes = new ArrayDeque<>(List.of(
+                ProbeResult.failure(ProbeFailure.TIMEOUT, "Connection failed: Connect timed out", 5),
+                ProbeResult.failure(ProbeFailure.RESET, "Connection failed: Connection reset", 5),
+                ProbeResult.success(new X509Certificate[]{ca.certificate()}, 5)));
+        
+        ProbeResult result = scheduler.withRetries(() -> next(outcomes), 3).get(5, TimeUnit.SECONDS);
+        
+        assertTrue(result.isSuccess());
+        assertEquals(3, result.getAttempts());
+        assertEquals(3, attempts.get());
+        assertEquals(1, meterRegistry.get("ssl.monitor.probe.retries").tag("kind", "timeout").counter().count());
+        assertEquals(1, meterRegistry.get("ssl.monitor.probe.retries").tag("kind", "reset").counter().count());
+    }
+    
+    @Test
+    void testWithRetries_DoesNotRetryPermanentFailure() throws Exception {
+        ProbeResult result = scheduler.withRetries(() -> failWith(ProbeFailure.HANDSHAKE), 3)
+                .get(5, TimeUnit.SECONDS);
+        
+        assertFalse(result.isSuccess());
+        assertEquals(ProbeFailure.HANDSHAKE, result.getFailure());
+        assertEquals(1, result.getAttempts());
+        assertEquals(1, attempts.get());
+    }
+    
+    @Test
+    void testWithRetries_GivesUpAfterMaxRetries() throws Exception {
+        ProbeResult result = scheduler.withRetries(() -> failWith(ProbeFailure.REFUSED), 2)
+                .get(5, TimeUnit.SECONDS);
+        
+        assertFalse(result.isSuccess());
+        assertEquals(3, result.getAttempts());
+        assertEquals(3, attempts.get());
+    }
+    
+    @Test
+    void testBackoffMillis_StaysWithinJitteredBounds() {
+        for (int i = 0; i < 100; i++) {
+            long first = scheduler.backoffMillis(1);
+            long third = scheduler.backoffMillis(3);
+            long capped = scheduler.backoffMillis(10);
+            
+            assertTrue(first >= 10 && first <= 20, "first retry waited " + first + "ms");
+            assertTrue(third >= 40 && third <= 80, "third retry waited " + third + "ms");
+            assertTrue(capped >= 100 && capped <= 200, "capped retry waited " + capped + "ms");
+        }
+    }
+    
+    @Test
+    void testClassify() {
+        assertEquals(ProbeFailure.TIMEOUT, ProbeFailure.classify(new SocketTimeoutException("Read timed out")));
+        assertEquals(ProbeFailure.REFUSED, ProbeFailure.classify(new ConnectException("Connection refused")));
+        assertEquals(ProbeFailure.RESET, ProbeFailure.classify(new SocketException("Connection reset")));
+        assertEquals(ProbeFailure.HANDSHAKE, ProbeFailure.classify(new SSLHandshakeException("PKIX path building failed")));
+        
+        SSLHandshakeException hangUp = new SSLHandshakeException("Remote host terminated the handshake");
+        hangUp.initCause(new EOFException("SSL peer shut down incorrectly"));
+        assertEquals(ProbeFailure.RESET, ProbeFailure.classify(hangUp));
+    }
+    
+    private CompletableFuture<ProbeResult> next(Queue<ProbeResult> outcomes) {
+        attempts.incrementAndGet();
+        return CompletableFuture.completedFuture(outcomes.poll());
+    }
+    
+    private CompletableFuture<ProbeResult> failWith(ProbeFailure failure) {
+        attempts.incrementAndGet();
+        return CompletableFuture.completedFuture(ProbeResult.failure(failure, "failed", 5));
+    }
+}
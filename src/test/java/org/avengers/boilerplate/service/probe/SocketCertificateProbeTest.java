@@ -0,0 +1,224 @@
+package org.avengers.boilerplate.service.probe;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.avengers.boilerplate.support.LocalOcspResponder;
+import org.avengers.boilerplate.support.LocalTlsServer;
+import org.avengers.boilerplate.support.TestCertificates;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SocketCertificateProbeTest {
+    
+    private ExecutorService executor;
+    private DnsResolver dnsResolver;
+    private ScheduledExecutorService watchdog;
+    private TestCertificates.Issued ca;
+    private LocalTlsServer server;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        dnsResolver = new DnsResolver(2, Duration.ofMinutes(5), Duration.ofMinutes(1), 1000, new SimpleMeterRegistry());
+        watchdog = Executors.newSingleThreadScheduledExecutor();
+        ca = TestCertificates.selfSignedCa("Test Root CA");
+        TestCertificates.Issued leaf = TestCertificates.leaf(ca, "localhost", Duration.ofDays(60));
+        server = new LocalTlsServer(leaf.serverContext());
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        server.close();
+        executor.shutdownNow();
+        dnsResolver.close();
+        watchdog.shutdownNow();
+    }
+    
+    @Test
+    void testProbe_RecordsPhaseTimings() throws Exception {
+        SocketCertificateProbe probe = newProbe(new ProbeTimeouts(5000, 5000, 5000, 15000));
+        
+        ProbeResult result = probe.probeNow("localhost", server.getPort());
+        
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+        assertNotNull(result.getDnsMs());
+        assertNotNull(result.getConnectMs());
+        assertNotNull(result.getHandshakeMs());
+        assertTrue(result.getElapsedMs() >= result.getHandshakeMs());
+    }
+    
+    @Test
+    void testProbe_CaptureModeReturnsExpiredChainWithoutFinishingHandshake() throws Exception {
+        TestCertificates.Issued expired = TestCertificates.leaf(ca, "localhost", Duration.ofDays(-1));
+        SSLContext capturing = SSLContext.getInstance("TLS");
+        capturing.init(null, new TrustManager[]{new CapturingTrustManager()}, null);
+        SocketCertificateProbe probe = new SocketCertificateProbe(capturing, new ProbeTimeouts(5000, 5000, 5000, 15000),
+                executor, dnsResolver, watchdog);
+        
+        try (LocalTlsServer expiredServer = new LocalTlsServer(expired.serverContext())) {
+            ProbeResult result = probe.probeNow("localhost", expiredServer.getPort());
+            
+            assertTrue(result.isSuccess(), result.getErrorMessage());
+            assertEquals(expired.certificate(), result.getLeafCertificate());
+            assertEquals(2, result.getPeerCertificates().length);
+            assertNotNull(result.getHandshakeMs());
+            assertEquals(0, expiredServer.getCompletedHandshakes());
+        }
+    }
+    
+    @Test
+    void testProbe_CaptureModeKeepsStapledOcspResponse() throws Exception {
+        SSLContext capturing = SSLContext.getInstance("TLS");
+        capturing.init(null, new TrustManager[]{new CapturingTrustManager()}, null);
+        SocketCertificateProbe probe = new SocketCertificateProbe(capturing, new ProbeTimeouts(5000, 5000, 5000, 15000),
+                executor, dnsResolver, watchdog);
+        
+        try (LocalOcspResponder responder = new LocalOcspResponder(ca, Duration.ofDays(1), Clock.systemUTC())) {
+            TestCertificates.Issued stapled = TestCertificates.leaf(ca, "localhost", Duration.ofDays(60),
+                    responder.getUrl());
+            try (LocalTlsServer staplingServer = new LocalTlsServer(stapled.staplingServerContext())) {
+                ProbeResult result = probe.probeNow("localhost", staplingServer.getPort());
+                
+                assertTrue(result.isSuccess(), result.getErrorMessage());
+                assertEquals(stapled.certificate(), result.getLeafCertificate());
+                assertNotNull(result.getStapledOcspResponse(), "stapled response lost with the aborted handshake");
+                assertEquals(OCSPResp.SUCCESSFUL, new OCSPResp(result.getStapledOcspResponse()).getStatus());
+                assertEquals(0, staplingServer.getCompletedHandshakes());
+            }
+        }
+    }
+    
+    @Test
+    void testProbe_SilentPeerBoundedByTotalDeadline() throws Exception {
+        SocketCertificateProbe probe = newProbe(new ProbeTimeouts(5000, 5000, 30000, 500));
+        
+        try (ServerSocket blackHole = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            ProbeResult result = probe.probeNow("localhost", blackHole.getLocalPort());
+            
+            assertFalse(result.isSuccess());
+            assertTrue(result.getErrorMessage().startsWith("Connection failed"), result.getErrorMessage());
+            assertEquals(ProbeFailure.TIMEOUT, result.getFailure());
+            assertNotNull(result.getConnectMs());
+            assertNull(result.getHandshakeMs());
+            assertTrue(result.getElapsedMs() < 5000, "probe overran its total deadline");
+        }
+    }
+    
+    @Test
+    void testProbe_SlowHandshakeCutOffByWatchdog() throws Exception {
+        try (LocalTlsServer slow = new LocalTlsServer(
+                TestCertificates.leaf(ca, "localhost", Duration.ofDays(60)).serverContext(), Duration.ofSeconds(10))) {
+            SocketCertificateProbe probe = newProbe(new ProbeTimeouts(5000, 5000, 400, 15000));
+            
+            ProbeResult result = probe.probeNow("localhost", slow.getPort());
+            
+            assertFalse(result.isSuccess());
+            assertTrue(result.getErrorMessage().startsWith("Connection failed"), result.getErrorMessage());
+            assertTrue(result.getElapsedMs() < 5000, "handshake overran its phase limit");
+        }
+    }
+    
+    @Test
+    void testProbe_RecordsFlightRecorderEvents() throws Exception {
+        // Only the black hole should time out, even on a loaded machine
+        SocketCertificateProbe probe = newProbe(new ProbeTimeouts(5000, 5000, 30000, 30000));
+        SocketCertificateProbe impatient = newProbe(new ProbeTimeouts(5000, 5000, 30000, 500));
+        Path file = Files.createTempFile("probe-", ".jfr");
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording();
+             ServerSocket blackHole = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            recording.enable("org.avengers.boilerplate.Probe");
+            recording.enable("org.avengers.boilerplate.ProbePhase");
+            recording.start();
+            probe.probeNow("localhost", server.getPort());
+            impatient.probeNow("localhost", blackHole.getLocalPort());
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        
+        List<String> attempts = events.stream()
+                .filter(event -> event.getEventType().getName().equals("org.avengers.boilerplate.Probe"))
+                .map(event -> event.getString("outcome") + "/" + event.getInt("chainLength"))
+                .sorted()
+                .toList();
+        assertEquals(List.of("success/2", "timeout/0"), attempts);
+        List<String> phases = events.stream()
+                .filter(event -> event.getEventType().getName().equals("org.avengers.boilerplate.ProbePhase"))
+                .map(event -> event.getString("phase") + "/" + event.getString("outcome"))
+                .sorted()
+                .toList();
+        assertEquals(List.of("connect/ok", "connect/ok", "dns/ok", "dns/ok", "handshake/ok", "handshake/timeout"),
+                phases);
+    }
+    
+    @Test
+    void testProbe_QueueWaitCountsAgainstNeitherPhaseNorDeadline() throws Exception {
+        Executor slowPool = CompletableFuture.delayedExecutor(1500, TimeUnit.MILLISECONDS, executor);
+        SocketCertificateProbe probe = new SocketCertificateProbe(TestCertificates.trusting(ca.certificate()),
+                new ProbeTimeouts(1000, 1000, 1000, 1000), slowPool, dnsResolver, watchdog);
+        
+        ProbeResult result = probe.probe("localhost", server.getPort()).get(10, TimeUnit.SECONDS);
+        
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+        assertTrue(result.getDnsMs() < 1000, "dns " + result.getDnsMs());
+        assertTrue(result.getConnectMs() < 1000, "connect " + result.getConnectMs());
+        assertTrue(result.getElapsedMs() < 1000, "elapsed " + result.getElapsedMs());
+    }
+    
+    @Test
+    void testProbe_FullPoolFailsInsteadOfRunningOnTheCaller() throws Exception {
+        SocketCertificateProbe probe = new SocketCertificateProbe(TestCertificates.trusting(ca.certificate()),
+                new ProbeTimeouts(5000, 5000, 5000, 15000), task -> {
+                    throw new RejectedExecutionException("full");
+                }, dnsResolver, watchdog);
+        
+        ProbeResult result = probe.probe("localhost", server.getPort()).get(5, TimeUnit.SECONDS);
+        
+        assertFalse(result.isSuccess());
+        assertEquals("Unexpected error: probe pool is full", result.getErrorMessage());
+        assertEquals(0, server.getCompletedHandshakes());
+    }
+    
+    @Test
+    void testProbe_UnknownHost() throws Exception {
+        SocketCertificateProbe probe = newProbe(new ProbeTimeouts(5000, 5000, 5000, 15000));
+        
+        ProbeResult result = probe.probeNow("invalid-domain-that-does-not-exist.invalid", 443);
+        
+        assertFalse(result.isSuccess());
+        assertTrue(result.getErrorMessage().startsWith("Connection failed"));
+        assertEquals(ProbeFailure.DNS, result.getFailure());
+        assertNull(result.getDnsMs());
+    }
+    
+    private SocketCertificateProbe newProbe(ProbeTimeouts timeouts) throws Exception {
+        return new SocketCertificateProbe(TestCertificates.trusting(ca.certificate()), timeouts,
+                executor, dnsResolver, watchdog);
+    }
+}
@@ -0,0 +1,29 @@
+package org.avengers.boilerplate.service.probe;
+
+import com.google.common.base.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.avengers.boilerplate.support.LocalTlsServerFarm;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * Resolvers for tests outside this package, which cannot reach the lookup
+ * constructor of {@link DnsResolver}.
+ */
+public final class TestDnsResolvers {
+    
+    private TestDnsResolvers() {
+    }
+    
+    /**
+     * Resolves the farm's endpoint names, and nothing else.
+     */
+    public static DnsResolver farm(LocalTlsServerFarm farm, MeterRegistry meterRegistry) {
+        return new DnsResolver(farm::resolve, Executors.newFixedThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "SSL-DNS-farm");
+            thread.setDaemon(true);
+            return thread;
+        }), Duration.ofHours(1), Duration.ofMinutes(1), Integer.MAX_VALUE, meterRegistry, Ticker.systemTicker());
+    }
+}
@@ -0,0 +1,142 @@
+package org.avengers.boilerplate.service.revocation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.avengers.boilerplate.support.LocalCrlServer;
+import org.avengers.boilerplate.support.MutableClock;
+import org.avengers.boilerplate.support.TestCertificates;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigInteger;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrlStoreTest {
+    
+    private final MutableClock clock = new MutableClock();
+    
+    @TempDir
+    Path directory;
+    
+    private SimpleMeterRegistry meterRegistry;
+    private TestCertificates.Issued issuer;
+    private LocalCrlServer server;
+    private CrlStore store;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        issuer = TestCertificates.selfSignedCa("Test CA");
+        server = new LocalCrlServer(issuer, Duration.ofHours(1), clock);
+        store = newStore(Duration.ofHours(24));
+    }
+    
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+    
+    @Test
+    void testCheck_DownloadsOnceUntilNextUpdate() throws Exception {
+        TestCertificates.Issued good = leaf("good.example.com");
+        TestCertificates.Issued bad = leaf("bad.example.com");
+        server.revoke(bad.certificate(), clock.instant().minus(Duration.ofDays(1)));
+        
+        assertEquals(Revocation.Status.GOOD, check(good).status());
+        assertEquals(Revocation.Status.REVOKED, check(bad).status());
+        assertEquals("crl", check(good).source());
+        assertEquals(1, server.getRequestCount());
+        
+        // Past the CRL's nextUpdate it is downloaded again
+        clock.advance(Duration.ofMinutes(61));
+        assertEquals(Revocation.Status.GOOD, check(good).status());
+        assertEquals(2, server.getRequestCount());
+    }
+    
+    @Test
+    void testCheck_RevokedSerialAmongManyIsFound() throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            // Mixed widths, including serials that need a leading zero byte
+            server.revoke(new BigInteger(8 + random.nextInt(152), random), clock.instant());
+        }
+        TestCertificates.Issued bad = leaf("bad.example.com");
+        Instant revokedAt = clock.instant().minus(Duration.ofDays(3));
+        server.revoke(bad.certificate(), revokedAt);
+        
+        Revocation revocation = check(bad);
+        
+        assertTrue(revocation.isRevoked());
+        assertEquals(revokedAt, revocation.revokedAt());
+        assertEquals("KEY_COMPROMISE", revocation.detail());
+        assertEquals(Revocation.Status.GOOD, check(leaf("good.example.com")).status());
+    }
+    
+    @Test
+    void testCheck_IndexOnDiskSurvivesRestart() throws Exception {
+        TestCertificates.Issued bad = leaf("bad.example.com");
+        server.revoke(bad.certificate(), clock.instant());
+        check(bad);
+        
+        store = newStore(Duration.ofHours(24));
+        
+        assertTrue(check(bad).isRevoked());
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, meterRegistry.get("ssl.monitor.crl.fetches").tag("result", "disk").counter().count());
+    }
+    
+    @Test
+    void testCheck_CrlSignedByAnotherKeyIsUnknown() throws Exception {
+        server.signWith(TestCertificates.newKeyPair());
+        
+        Revocation revocation = check(leaf("example.com"));
+        
+        assertEquals(Revocation.Status.UNKNOWN, revocation.status());
+        assertTrue(revocation.detail().startsWith("Invalid CRL"), revocation.detail());
+    }
+    
+    @Test
+    void testCheck_PreviousCrlKeptWhileRefreshFails() throws Exception {
+        server.close();
+        server = new LocalCrlServer(issuer, Duration.ofDays(7), clock);
+        store = newStore(Duration.ofHours(1));
+        TestCertificates.Issued bad = leaf("bad.example.com");
+        server.revoke(bad.certificate(), clock.instant());
+        assertTrue(check(bad).isRevoked());
+        
+        // Due for a refresh by max-ttl, but the CRL itself is still current
+        server.close();
+        clock.advance(Duration.ofMinutes(61));
+        
+        assertTrue(check(bad).isRevoked());
+    }
+    
+    @Test
+    void testCheck_LeafWithoutDistributionPointIsNotChecked() throws Exception {
+        TestCertificates.Issued leaf = TestCertificates.leaf(issuer, "example.com", Duration.ofDays(90));
+        
+        assertNull(check(leaf));
+        assertEquals(0, server.getRequestCount());
+    }
+    
+    private TestCertificates.Issued leaf(String hostName) throws Exception {
+        return TestCertificates.leaf(issuer, hostName, Duration.ofDays(90), null, server.getUrl());
+    }
+    
+    private Revocation check(TestCertificates.Issued leaf) throws Exception {
+        return store.check(leaf.certificate(), issuer.certificate()).get(10, TimeUnit.SECONDS);
+    }
+    
+    private CrlStore newStore(Duration maxTtl) {
+        return new CrlStore(true, directory, HttpClient.newHttpClient(), Duration.ofSeconds(5), Duration.ofHours(24),
+                maxTtl, Duration.ofMinutes(15), meterRegistry, clock);
+    }
+}
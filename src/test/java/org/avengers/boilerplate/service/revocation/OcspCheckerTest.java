@@ -0,0 +1,141 @@
+package org.avengers.boilerplate.service.revocation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.avengers.boilerplate.support.LocalOcspResponder;
+import org.avengers.boilerplate.support.MutableClock;
+import org.avengers.boilerplate.support.TestCertificates;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OcspCheckerTest {
+    
+    private final MutableClock clock = new MutableClock();
+    
+    private SimpleMeterRegistry meterRegistry;
+    private TestCertificates.Issued issuer;
+    private LocalOcspResponder responder;
+    private OcspChecker checker;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        issuer = TestCertificates.selfSignedCa("Test CA");
+        responder = new LocalOcspResponder(issuer, Duration.ofHours(1), clock);
+        checker = newChecker(1000);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        responder.close();
+    }
+    
+    @Test
+    void testCheck_QueriesResponderOnceUntilNextUpdate() throws Exception {
+        TestCertificates.Issued leaf = TestCertificates.leaf(issuer, "example.com", Duration.ofDays(90),
+                responder.getUrl());
+        
+        Revocation first = check(leaf, null);
+        Revocation second = check(leaf, null);
+        
+        assertEquals(Revocation.Status.GOOD, first.status());
+        assertEquals("responder", first.source());
+        assertSame(first, second);
+        assertEquals(1, responder.getRequestCount());
+        assertEquals(1, cacheCount("hit"));
+        
+        // Past the response's nextUpdate the responder is asked again
+        clock.advance(Duration.ofMinutes(61));
+        assertEquals(Revocation.Status.GOOD, check(leaf, null).status());
+        assertEquals(2, responder.getRequestCount());
+    }
+    
+    @Test
+    void testCheck_RevokedCertificateReportsTimeAndReason() throws Exception {
+        TestCertificates.Issued leaf = TestCertificates.leaf(issuer, "example.com", Duration.ofDays(90),
+                responder.getUrl());
+        Instant revokedAt = clock.instant().minus(Duration.ofDays(2));
+        responder.revoke(leaf.certificate(), revokedAt);
+        
+        Revocation revocation = check(leaf, null);
+        
+        assertTrue(revocation.isRevoked());
+        assertEquals(revokedAt, revocation.revokedAt());
+        assertEquals("KEY_COMPROMISE", revocation.detail());
+    }
+    
+    @Test
+    void testCheck_PrefersStapledResponse() throws Exception {
+        TestCertificates.Issued leaf = TestCertificates.leaf(issuer, "example.com", Duration.ofDays(90),
+                responder.getUrl());
+        
+        Revocation revocation = check(leaf, responder.responseFor(leaf.certificate()));
+        
+        assertEquals(Revocation.Status.GOOD, revocation.status());
+        assertEquals("stapled", revocation.source());
+        assertEquals(0, responder.getRequestCount());
+        assertEquals(1, meterRegistry.get("ssl.monitor.ocsp.responses")
+                .tag("source", "stapled").tag("status", "good").counter().count());
+    }
+    
+    @Test
+    void testCheck_ForgedStapledResponseFallsBackToResponder() throws Exception {
+        TestCertificates.Issued leaf = TestCertificates.leaf(issuer, "example.com", Duration.ofDays(90),
+                responder.getUrl());
+        responder.revoke(leaf.certificate(), clock.instant().minus(Duration.ofDays(1)));
+        byte[] forged = responder.forgedResponseFor(leaf.certificate(), TestCertificates.newKeyPair());
+        
+        Revocation revocation = check(leaf, forged);
+        
+        assertTrue(revocation.isRevoked());
+        assertEquals("responder", revocation.source());
+        assertEquals(1, responder.getRequestCount());
+    }
+    
+    @Test
+    void testCheck_UnreachableResponderIsUnknownAndCachedBriefly() throws Exception {
+        String url = responder.getUrl();
+        responder.close();
+        TestCertificates.Issued leaf = TestCertificates.leaf(issuer, "example.com", Duration.ofDays(90), url);
+        
+        Revocation revocation = check(leaf, null);
+        
+        assertEquals(Revocation.Status.UNKNOWN, revocation.status());
+        assertNotNull(revocation.detail());
+        assertSame(revocation, check(leaf, null));
+        clock.advance(Duration.ofMinutes(6));
+        assertNotSame(revocation, check(leaf, null));
+    }
+    
+    @Test
+    void testCheck_CacheStaysWithinMaxEntries() throws Exception {
+        checker = newChecker(3);
+        for (int i = 0; i < 10; i++) {
+            TestCertificates.Issued leaf = TestCertificates.leaf(issuer, "host" + i + ".example.com",
+                    Duration.ofDays(90), responder.getUrl());
+            check(leaf, responder.responseFor(leaf.certificate()));
+        }
+        
+        assertTrue(checker.getCacheSize() <= 3, "cache size " + checker.getCacheSize());
+    }
+    
+    private Revocation check(TestCertificates.Issued leaf, byte[] stapled) throws Exception {
+        return checker.check(leaf.certificate(), issuer.certificate(), stapled).get(10, TimeUnit.SECONDS);
+    }
+    
+    private OcspChecker newChecker(int maxEntries) {
+        return new OcspChecker(true, HttpClient.newHttpClient(), Duration.ofSeconds(5), Duration.ofMinutes(60),
+                Duration.ofHours(24), Duration.ofMinutes(5), maxEntries, meterRegistry, clock);
+    }
+    
+    private double cacheCount(String result) {
+        return meterRegistry.get("ssl.monitor.ocsp.cache").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,103 @@
+package org.avengers.boilerplate.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loopback CRL distribution point for one issuer. Every request gets a CRL
+ * freshly signed with the issuer's key (or {@link #signWith another one}),
+ * listing the serials marked revoked, with {@code nextUpdate} one validity
+ * period after the server clock's current time.
+ */
+public class LocalCrlServer implements AutoCloseable {
+    
+    private final TestCertificates.Issued issuer;
+    private final Duration validity;
+    private final Clock clock;
+    private final HttpServer server;
+    private final Map<BigInteger, Instant> revoked = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile KeyPair signer;
+    
+    public LocalCrlServer(TestCertificates.Issued issuer, Duration validity, Clock clock) throws IOException {
+        this.issuer = issuer;
+        this.validity = validity;
+        this.clock = clock;
+        this.signer = issuer.keyPair();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+    
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/issuer.crl";
+    }
+    
+    public int getRequestCount() {
+        return requests.get();
+    }
+    
+    public void revoke(X509Certificate certificate, Instant revokedAt) {
+        revoke(certificate.getSerialNumber(), revokedAt);
+    }
+    
+    public void revoke(BigInteger serial, Instant revokedAt) {
+        revoked.put(serial, revokedAt);
+    }
+    
+    public void signWith(KeyPair signer) {
+        this.signer = signer;
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            byte[] body;
+            try {
+                body = crl();
+            } catch (Exception e) {
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/pkix-crl");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+    
+    private byte[] crl() throws Exception {
+        Instant now = clock.instant();
+        X509v2CRLBuilder builder = new X509v2CRLBuilder(
+                X500Name.getInstance(issuer.certificate().getSubjectX500Principal().getEncoded()), Date.from(now));
+        builder.setNextUpdate(Date.from(now.plus(validity)));
+        revoked.forEach((serial, revokedAt) ->
+                builder.addCRLEntry(serial, Date.from(revokedAt), CRLReason.keyCompromise));
+        return builder.build(new JcaContentSignerBuilder("SHA256withECDSA").build(signer.getPrivate())).getEncoded();
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
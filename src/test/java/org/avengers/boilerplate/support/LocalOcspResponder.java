@@ -0,0 +1,136 @@
+package org.avengers.boilerplate.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.BasicOCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPReq;
+import org.bouncycastle.cert.ocsp.OCSPRespBuilder;
+import org.bouncycastle.cert.ocsp.Req;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
+import org.bouncycastle.cert.ocsp.jcajce.JcaBasicOCSPRespBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loopback OCSP responder answering for the certificates of one issuer,
+ * signing with the issuer's key. Serials marked revoked are reported as such,
+ * everything else as good, with {@code nextUpdate} one validity period after
+ * the responder clock's current time.
+ */
+public class LocalOcspResponder implements AutoCloseable {
+    
+    private final TestCertificates.Issued issuer;
+    private final Duration validity;
+    private final Clock clock;
+    private final HttpServer server;
+    private final Map<BigInteger, Instant> revoked = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    
+    public LocalOcspResponder(TestCertificates.Issued issuer, Duration validity, Clock clock) throws IOException {
+        this.issuer = issuer;
+        this.validity = validity;
+        this.clock = clock;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+    
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+    
+    public int getRequestCount() {
+        return requests.get();
+    }
+    
+    public void revoke(X509Certificate certificate, Instant revokedAt) {
+        revoked.put(certificate.getSerialNumber(), revokedAt);
+    }
+    
+    /**
+     * DER-encoded response about {@code certificate}, as a server would staple it.
+     */
+    public byte[] responseFor(X509Certificate certificate) throws Exception {
+        return respond(certificateId(certificate.getSerialNumber()), issuer.keyPair());
+    }
+    
+    /**
+     * Same as {@link #responseFor} but signed by {@code signer}, which the
+     * checker must not accept.
+     */
+    public byte[] forgedResponseFor(X509Certificate certificate, KeyPair signer) throws Exception {
+        return respond(certificateId(certificate.getSerialNumber()), signer);
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange; InputStream in = exchange.getRequestBody()) {
+            byte[] body;
+            try {
+                // The JDK's client, as used for server-side stapling, sends small requests as GET
+                byte[] encoded = "GET".equals(exchange.getRequestMethod())
+                        ? Base64.getDecoder().decode(URLDecoder.decode(
+                                exchange.getRequestURI().getRawPath().substring(1), StandardCharsets.UTF_8))
+                        : in.readAllBytes();
+                Req request = new OCSPReq(encoded).getRequestList()[0];
+                body = respond(request.getCertID(), issuer.keyPair());
+            } catch (Exception e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/ocsp-response");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+    
+    private byte[] respond(CertificateID id, KeyPair signer) throws Exception {
+        Instant now = clock.instant();
+        Instant revokedAt = revoked.get(id.getSerialNumber());
+        CertificateStatus status = revokedAt != null
+                ? new RevokedStatus(Date.from(revokedAt), 1)
+                : CertificateStatus.GOOD;
+        
+        BasicOCSPRespBuilder builder = new JcaBasicOCSPRespBuilder(signer.getPublic(),
+                new JcaDigestCalculatorProviderBuilder().build().get(CertificateID.HASH_SHA1));
+        builder.addResponse(id, status, Date.from(now), Date.from(now.plus(validity)), null);
+        BasicOCSPResp basic = builder.build(new JcaContentSignerBuilder("SHA256withECDSA").build(signer.getPrivate()),
+                null, Date.from(now));
+        return new OCSPRespBuilder().build(OCSPRespBuilder.SUCCESSFUL, basic).getEncoded();
+    }
+    
+    private CertificateID certificateId(BigInteger serial) throws Exception {
+        return new CertificateID(new JcaDigestCalculatorProviderBuilder().build().get(CertificateID.HASH_SHA1),
+                new JcaX509CertificateHolder(issuer.certificate()), serial);
+    }
+    
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,83 @@
+package org.avengers.boilerplate.support;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loopback TLS endpoint that completes the handshake and then waits for the
+ * client to hang up. An optional delay before the handshake stands in for
+ * network latency. Closing the server stops the accept loop and all sessions.
+ */
+public class LocalTlsServer implements AutoCloseable {
+    
+    private final SSLServerSocket serverSocket;
+    private final Duration handshakeDelay;
+    private final AtomicInteger completedHandshakes = new AtomicInteger();
+    private final ExecutorService sessions = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "local-tls-session");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public LocalTlsServer(SSLContext serverContext) throws IOException {
+        this(serverContext, Duration.ZERO);
+    }
+    
+    public LocalTlsServer(SSLContext serverContext, Duration handshakeDelay) throws IOException {
+        this.handshakeDelay = handshakeDelay;
+        this.serverSocket = (SSLServerSocket) serverContext.getServerSocketFactory()
+                .createServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        sessions.execute(this::acceptLoop);
+    }
+    
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    
+    /**
+     * Handshakes the server saw through to the client's Finished message.
+     */
+    public int getCompletedHandshakes() {
+        return completedHandshakes.get();
+    }
+    
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                sessions.execute(() -> serve((SSLSocket) socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+    
+    private void serve(SSLSocket socket) {
+        try (socket) {
+            if (!handshakeDelay.isZero()) {
+                Thread.sleep(handshakeDelay.toMillis());
+            }
+            socket.startHandshake();
+            completedHandshakes.incrementAndGet();
+            socket.getInputStream().read();
+        } catch (IOException ignored) {
+            // Probes hang up right after the handshake
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        sessions.shutdownNow();
+    }
+}
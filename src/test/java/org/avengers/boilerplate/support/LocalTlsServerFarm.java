@@ -0,0 +1,505 @@
+package org.avengers.boilerplate.support;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.X509ExtendedKeyManager;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Thousands of loopback TLS endpoints for load runs, each with its own
+ * certificate, chain shape, latency and failure behaviour.
+ * <p>
+ * With {@link Addressing#PORT} every endpoint listens on its own loopback
+ * address ({@code 127.x.y.z}) and is probed by that address, without SNI.
+ * With {@link Addressing#SNI} endpoints are named {@code ep-<n>.farm.test}
+ * and share a few listeners that pick the endpoint from the ClientHello;
+ * the names only resolve through {@link #resolve}. PORT needs a file
+ * descriptor per endpoint, SNI scales to 100k endpoints.
+ * <p>
+ * All leaves share one key and are issued by one intermediate under a root
+ * that {@link #writeTrustStore} exports. Certificates are kept DER-encoded
+ * so the farm's own heap stays small next to the application it loads.
+ */
+public class LocalTlsServerFarm implements AutoCloseable {
+    
+    public enum Addressing { PORT, SNI }
+    
+    public enum ChainShape {
+        /** Leaf only, without the intermediate that issued it. */
+        LEAF,
+        /** Leaf and intermediate, as servers should send it. */
+        INTERMEDIATE,
+        /** Leaf, intermediate and root. */
+        FULL,
+        /** Self-signed leaf. */
+        SELF_SIGNED
+    }
+    
+    public enum Behaviour {
+        HANDSHAKE,
+        /** Connection reset as soon as the endpoint is known. */
+        RESET,
+        /** Connection accepted and never answered, until the farm closes. */
+        BLACK_HOLE
+    }
+    
+    public record EndpointSpec(Duration validity, ChainShape chain, Duration latency, Behaviour behaviour) {
+        
+        public static EndpointSpec valid(Duration validity) {
+            return new EndpointSpec(validity, ChainShape.INTERMEDIATE, Duration.ZERO, Behaviour.HANDSHAKE);
+        }
+    }
+    
+    public record Endpoint(int index, String host, int port, EndpointSpec spec) {
+    }
+    
+    private static final String FARM_DOMAIN = ".farm.test";
+    private static final int TLS_HANDSHAKE_RECORD = 22;
+    private static final int CLIENT_HELLO = 1;
+    private static final int SERVER_NAME_EXTENSION = 0;
+    
+    private final TestCertificates.Issued root;
+    private final TestCertificates.Issued intermediate;
+    private final KeyPair leafKeys;
+    private final List<Endpoint> endpoints;
+    private final byte[][] leaves;
+    private final Map<String, Endpoint> byName = new HashMap<>();
+    private final Map<SocketAddress, Endpoint> byListener = new HashMap<>();
+    private final Map<String, InetAddress> addresses = new HashMap<>();
+    private final List<ServerSocketChannel> listeners = new ArrayList<>();
+    private final Map<Socket, Endpoint> handshaking = new ConcurrentHashMap<>();
+    private final Set<Socket> held = ConcurrentHashMap.newKeySet();
+    private final Selector selector;
+    private final SSLSocketFactory socketFactory;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService delays;
+    
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong clientHellos = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    private final AtomicLong blackHoled = new AtomicLong();
+    private volatile boolean closed;
+    
+    private LocalTlsServerFarm(int count, Addressing addressing, int sniListeners, int workerThreads,
+                               IntFunction<EndpointSpec> specs) throws Exception {
+        root = TestCertificates.selfSignedCa("Farm Root CA");
+        intermediate = TestCertificates.issue(root, "Farm Intermediate CA", Duration.ofDays(3650), true);
+        leafKeys = TestCertificates.newKeyPair();
+        selector = Selector.open();
+        
+        int listenerCount = addressing == Addressing.PORT ? count : Math.min(count, sniListeners);
+        for (int i = 0; i < listenerCount; i++) {
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            channel.bind(new InetSocketAddress(loopbackAddress(i), 0), 1024);
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_ACCEPT);
+            listeners.add(channel);
+        }
+        
+        List<Endpoint> all = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ServerSocketChannel listener = listeners.get(i % listenerCount);
+            InetSocketAddress local = (InetSocketAddress) listener.getLocalAddress();
+            String host = addressing == Addressing.PORT ? local.getAddress().getHostAddress() : "ep-" + i + FARM_DOMAIN;
+            Endpoint endpoint = new Endpoint(i, host, local.getPort(), specs.apply(i));
+            all.add(endpoint);
+            addresses.put(host, local.getAddress());
+            if (addressing == Addressing.PORT) {
+                byListener.put(local, endpoint);
+            } else {
+                byName.put(host, endpoint);
+            }
+        }
+        endpoints = Collections.unmodifiableList(all);
+        
+        // Signing dominates start-up, spread it over the cores
+        leaves = new byte[count][];
+        IntStream.range(0, count).parallel().forEach(i -> leaves[i] = issueLeaf(endpoints.get(i)));
+        
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(new KeyManager[]{new FarmKeyManager()}, null, null);
+        socketFactory = sslContext.getSocketFactory();
+        workers = Executors.newFixedThreadPool(workerThreads, daemonThreads("farm-worker-"));
+        delays = Executors.newSingleThreadScheduledExecutor(daemonThreads("farm-delay-"));
+        
+        Thread acceptor = daemonThreads("farm-acceptor-").newThread(this::acceptLoop);
+        acceptor.start();
+    }
+    
+    /**
+     * Starts {@code count} endpoints, the n-th described by {@code specs.apply(n)}.
+     */
+    public static LocalTlsServerFarm start(int count, Addressing addressing, IntFunction<EndpointSpec> specs)
+            throws Exception {
+        return start(count, addressing, 16, Math.max(8, Runtime.getRuntime().availableProcessors() * 4), specs);
+    }
+    
+    public static LocalTlsServerFarm start(int count, Addressing addressing, int sniListeners, int workerThreads,
+                                           IntFunction<EndpointSpec> specs) throws Exception {
+        return new LocalTlsServerFarm(count, addressing, sniListeners, workerThreads, specs);
+    }
+    
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+    
+    /**
+     * Address of an endpoint's host name; the lookup to route probes with.
+     */
+    public InetAddress resolve(String host) throws UnknownHostException {
+        InetAddress address = addresses.get(host);
+        if (address == null) {
+            throw new UnknownHostException(host);
+        }
+        return address;
+    }
+    
+    public X509Certificate getRootCertificate() {
+        return root.certificate();
+    }
+    
+    /**
+     * Writes a PKCS12 trust store holding only the farm's root, for
+     * {@code ssl.monitor.trust.store-path}.
+     */
+    public Path writeTrustStore(Path file) throws Exception {
+        KeyStore trustStore = KeyStore.getInstance("PKCS12");
+        trustStore.load(null, null);
+        trustStore.setCertificateEntry("farm-root", root.certificate());
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (OutputStream out = Files.newOutputStream(file)) {
+            trustStore.store(out, "changeit".toCharArray());
+        }
+        return file;
+    }
+    
+    public long getAccepted() {
+        return accepted.get();
+    }
+    
+    /**
+     * ClientHellos answered by endpoints that handshake, whether or not the
+     * client went on to finish; capturing probes abort once they have the
+     * chain.
+     */
+    public long getClientHellos() {
+        return clientHellos.get();
+    }
+    
+    public long getResets() {
+        return resets.get();
+    }
+    
+    public long getBlackHoled() {
+        return blackHoled.get();
+    }
+    
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    ServerSocketChannel listener = (ServerSocketChannel) key.channel();
+                    SocketChannel channel;
+                    while ((channel = listener.accept()) != null) {
+                        accepted.incrementAndGet();
+                        channel.configureBlocking(true);
+                        Socket socket = channel.socket();
+                        Endpoint endpoint = byListener.get(listener.getLocalAddress());
+                        workers.execute(() -> serve(socket, endpoint));
+                    }
+                }
+                selector.selectedKeys().clear();
+            } catch (IOException | ClosedSelectorException | RejectedExecutionException e) {
+                if (!closed) {
+                    throw new IllegalStateException("Farm acceptor failed", e);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Reads the ClientHello to find the endpoint by SNI when the port did not
+     * name it, then answers as the endpoint's spec says.
+     */
+    private void serve(Socket socket, Endpoint known) {
+        try {
+            Endpoint endpoint = known;
+            InputStream consumed = null;
+            if (endpoint == null) {
+                socket.setSoTimeout(10_000);
+                byte[] clientHello = readRecord(socket.getInputStream());
+                endpoint = byName.get(serverName(clientHello));
+                if (endpoint == null) {
+                    reset(socket);
+                    return;
+                }
+                consumed = new ByteArrayInputStream(clientHello);
+            }
+            EndpointSpec spec = endpoint.spec();
+            switch (spec.behaviour()) {
+                case RESET -> {
+                    resets.incrementAndGet();
+                    reset(socket);
+                }
+                case BLACK_HOLE -> {
+                    blackHoled.incrementAndGet();
+                    held.add(socket);
+                }
+                case HANDSHAKE -> {
+                    Endpoint target = endpoint;
+                    InputStream hello = consumed;
+                    if (spec.latency().isZero()) {
+                        handshake(socket, target, hello);
+                    } else {
+                        // Waiting connections hold no worker
+                        delays.schedule(() -> workers.execute(() -> handshake(socket, target, hello)),
+                                spec.latency().toNanos(), TimeUnit.NANOSECONDS);
+                    }
+                }
+            }
+        } catch (IOException | RejectedExecutionException e) {
+            closeQuietly(socket);
+        }
+    }
+    
+    private void handshake(Socket socket, Endpoint endpoint, InputStream consumed) {
+        SSLSocket ssl = null;
+        try {
+            ssl = (SSLSocket) socketFactory.createSocket(socket, consumed, true);
+            handshaking.put(ssl, endpoint);
+            clientHellos.incrementAndGet();
+            ssl.startHandshake();
+        } catch (IOException ignored) {
+            // Capturing probes abort the handshake once they have the chain
+        } finally {
+            if (ssl != null) {
+                handshaking.remove(ssl);
+            }
+            closeQuietly(ssl != null ? ssl : socket);
+        }
+    }
+    
+    private byte[] issueLeaf(Endpoint endpoint) {
+        try {
+            EndpointSpec spec = endpoint.spec();
+            X509Certificate leaf = spec.chain() == ChainShape.SELF_SIGNED
+                    ? TestCertificates.selfSigned(leafKeys, endpoint.host(), spec.validity())
+                    : TestCertificates.leaf(intermediate, leafKeys, endpoint.host(), spec.validity());
+            return leaf.getEncoded();
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot issue certificate for " + endpoint.host(), e);
+        }
+    }
+    
+    private X509Certificate[] chain(Endpoint endpoint) {
+        X509Certificate leaf;
+        try {
+            leaf = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(
+                    new ByteArrayInputStream(leaves[endpoint.index()]));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return switch (endpoint.spec().chain()) {
+            case LEAF, SELF_SIGNED -> new X509Certificate[]{leaf};
+            case INTERMEDIATE -> new X509Certificate[]{leaf, intermediate.certificate()};
+            case FULL -> new X509Certificate[]{leaf, intermediate.certificate(), root.certificate()};
+        };
+    }
+    
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+            // Closing anyway
+        }
+        listeners.forEach(LocalTlsServerFarm::closeQuietly);
+        held.forEach(LocalTlsServerFarm::closeQuietly);
+        workers.shutdownNow();
+        delays.shutdownNow();
+    }
+    
+    /**
+     * {@code 127.x.y.z} for the n-th listener; Linux routes all of 127/8 to the
+     * loopback interface, so no setup is needed. Skips .0 and .255.
+     */
+    static InetAddress loopbackAddress(int n) throws UnknownHostException {
+        return InetAddress.getByAddress(new byte[]{
+                127, (byte) (1 + n / (254 * 256)), (byte) (n / 254 % 256), (byte) (1 + n % 254)});
+    }
+    
+    /**
+     * One TLS record, which for a ClientHello from the probes always holds
+     * the whole message.
+     */
+    private static byte[] readRecord(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] header = new byte[5];
+        data.readFully(header);
+        int length = ((header[3] & 0xff) << 8) | (header[4] & 0xff);
+        byte[] record = new byte[5 + length];
+        System.arraycopy(header, 0, record, 0, 5);
+        data.readFully(record, 5, length);
+        return record;
+    }
+    
+    /**
+     * The host name from a ClientHello's server_name extension, or null.
+     */
+    static String serverName(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        if (buffer.remaining() < 9 || buffer.get() != TLS_HANDSHAKE_RECORD) {
+            return null;
+        }
+        buffer.position(5);
+        if (buffer.get() != CLIENT_HELLO) {
+            return null;
+        }
+        try {
+            // Handshake length, version and random
+            buffer.position(buffer.position() + 3 + 2 + 32);
+            skip(buffer, buffer.get() & 0xff);
+            skip(buffer, buffer.getShort() & 0xffff);
+            skip(buffer, buffer.get() & 0xff);
+            int extensionsEnd = (buffer.getShort() & 0xffff) + buffer.position();
+            while (buffer.position() + 4 <= extensionsEnd) {
+                int type = buffer.getShort() & 0xffff;
+                int length = buffer.getShort() & 0xffff;
+                if (type != SERVER_NAME_EXTENSION) {
+                    skip(buffer, length);
+                    continue;
+                }
+                // Name list length, then entries of type, length and name
+                buffer.getShort();
+                if (buffer.get() != 0) {
+                    return null;
+                }
+                byte[] name = new byte[buffer.getShort() & 0xffff];
+                buffer.get(name);
+                return new String(name, StandardCharsets.US_ASCII);
+            }
+        } catch (RuntimeException e) {
+            // Truncated or malformed
+        }
+        return null;
+    }
+    
+    private static void skip(ByteBuffer buffer, int bytes) {
+        buffer.position(buffer.position() + bytes);
+    }
+    
+    private static void reset(Socket socket) {
+        try {
+            socket.setSoLinger(true, 0);
+        } catch (IOException ignored) {
+            // Closed normally instead
+        }
+        closeQuietly(socket);
+    }
+    
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // Nothing left to do
+        }
+    }
+    
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    /**
+     * Serves the certificate of the endpoint a handshake belongs to.
+     */
+    private final class FarmKeyManager extends X509ExtendedKeyManager {
+        
+        @Override
+        public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+            Endpoint endpoint = handshaking.get(socket);
+            return endpoint != null && "EC".equals(keyType) ? Integer.toString(endpoint.index()) : null;
+        }
+        
+        @Override
+        public X509Certificate[] getCertificateChain(String alias) {
+            return chain(endpoints.get(Integer.parseInt(alias)));
+        }
+        
+        @Override
+        public PrivateKey getPrivateKey(String alias) {
+            return leafKeys.getPrivate();
+        }
+        
+        @Override
+        public String[] getServerAliases(String keyType, Principal[] issuers) {
+            return null;
+        }
+        
+        @Override
+        public String chooseEngineServerAlias(String keyType, Principal[] issuers, SSLEngine engine) {
+            return null;
+        }
+        
+        @Override
+        public String[] getClientAliases(String keyType, Principal[] issuers) {
+            return null;
+        }
+        
+        @Override
+        public String chooseClientAlias(String[] keyType, Principal[] issuers, Socket socket) {
+            return null;
+        }
+    }
+}
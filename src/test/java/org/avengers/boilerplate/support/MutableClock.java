@@ -0,0 +1,35 @@
+package org.avengers.boilerplate.support;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * UTC clock that only moves when a test advances it.
+ */
+public class MutableClock extends Clock {
+    
+    private volatile Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    
+    public void advance(Duration duration) {
+        now = now.plus(duration);
+    }
+    
+    @Override
+    public Instant instant() {
+        return now;
+    }
+    
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+    
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return this;
+    }
+}
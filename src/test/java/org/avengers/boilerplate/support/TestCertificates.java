@@ -0,0 +1,206 @@
+package org.avengers.boilerplate.support;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.DistributionPoint;
+import org.bouncycastle.asn1.x509.DistributionPointName;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BouncyCastle-generated certificates for tests that need real TLS endpoints.
+ */
+public final class TestCertificates {
+    
+    private static final char[] PASSWORD = "changeit".toCharArray();
+    private static final String SERVER_STAPLING = "jdk.tls.server.enableStatusRequestExtension";
+    private static final AtomicLong SERIALS = new AtomicLong(System.currentTimeMillis());
+    
+    private TestCertificates() {
+    }
+    
+    public record Issued(KeyPair keyPair, X509Certificate certificate, X509Certificate[] chain) {
+        
+        public SSLContext serverContext() throws Exception {
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(null, null);
+            keyStore.setKeyEntry("server", keyPair.getPrivate(), PASSWORD, chain);
+            
+            KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            kmf.init(keyStore, PASSWORD);
+            
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(kmf.getKeyManagers(), null, null);
+            return sslContext;
+        }
+        
+        /**
+         * Server context that staples an OCSP response, fetched from the
+         * responder named in the leaf, to every handshake. The JDK reads the
+         * switch when the context is created, so only this one staples.
+         */
+        public SSLContext staplingServerContext() throws Exception {
+            String previous = System.setProperty(SERVER_STAPLING, "true");
+            try {
+                return serverContext();
+            } finally {
+                if (previous == null) {
+                    System.clearProperty(SERVER_STAPLING);
+                } else {
+                    System.setProperty(SERVER_STAPLING, previous);
+                }
+            }
+        }
+    }
+    
+    public static KeyPair newKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        return generator.generateKeyPair();
+    }
+    
+    public static Issued selfSignedCa(String commonName) throws Exception {
+        KeyPair keyPair = newKeyPair();
+        X500Name name = new X500Name("CN=" + commonName);
+        X509Certificate certificate = sign(name, keyPair, name, keyPair, Duration.ofDays(3650), true, null, null, null);
+        return new Issued(keyPair, certificate, new X509Certificate[]{certificate});
+    }
+    
+    public static Issued issue(Issued issuer, String commonName, Duration validity, boolean ca) throws Exception {
+        KeyPair keyPair = newKeyPair();
+        X500Name subject = new X500Name("CN=" + commonName);
+        X500Name issuerName = X500Name.getInstance(issuer.certificate().getSubjectX500Principal().getEncoded());
+        X509Certificate certificate = sign(subject, keyPair, issuerName, issuer.keyPair(), validity, ca,
+                ca ? null : commonName, null, null);
+        return chained(issuer, keyPair, certificate);
+    }
+    
+    public static Issued leaf(Issued issuer, String hostName, Duration validity) throws Exception {
+        return issue(issuer, hostName, validity, false);
+    }
+    
+    /**
+     * Leaf naming {@code ocspUrl} as its OCSP responder.
+     */
+    public static Issued leaf(Issued issuer, String hostName, Duration validity, String ocspUrl) throws Exception {
+        return leaf(issuer, hostName, validity, ocspUrl, null);
+    }
+    
+    /**
+     * Leaf naming {@code ocspUrl} as its OCSP responder and {@code crlUrl} as
+     * its CRL distribution point; either may be null.
+     */
+    public static Issued leaf(Issued issuer, String hostName, Duration validity, String ocspUrl, String crlUrl)
+            throws Exception {
+        KeyPair keyPair = newKeyPair();
+        X500Name issuerName = X500Name.getInstance(issuer.certificate().getSubjectX500Principal().getEncoded());
+        X509Certificate certificate = sign(new X500Name("CN=" + hostName), keyPair, issuerName, issuer.keyPair(),
+                validity, false, hostName, ocspUrl, crlUrl);
+        return chained(issuer, keyPair, certificate);
+    }
+    
+    /**
+     * Leaf for an existing {@code keyPair}, so many leaves can share one key
+     * instead of generating one each.
+     */
+    public static X509Certificate leaf(Issued issuer, KeyPair keyPair, String hostName, Duration validity)
+            throws Exception {
+        X500Name issuerName = X500Name.getInstance(issuer.certificate().getSubjectX500Principal().getEncoded());
+        return sign(new X500Name("CN=" + hostName), keyPair, issuerName, issuer.keyPair(), validity, false,
+                hostName, null, null);
+    }
+    
+    /**
+     * CA certificate for {@code subject}'s name and key issued by
+     * {@code issuer}, as when a new root is cross-signed by an older one.
+     */
+    public static X509Certificate crossSign(Issued issuer, Issued subject, Duration validity) throws Exception {
+        X500Name subjectName = X500Name.getInstance(subject.certificate().getSubjectX500Principal().getEncoded());
+        X500Name issuerName = X500Name.getInstance(issuer.certificate().getSubjectX500Principal().getEncoded());
+        return sign(subjectName, subject.keyPair(), issuerName, issuer.keyPair(), validity, true, null, null, null);
+    }
+    
+    public static X509Certificate selfSigned(KeyPair keyPair, String hostName, Duration validity) throws Exception {
+        X500Name name = new X500Name("CN=" + hostName);
+        return sign(name, keyPair, name, keyPair, validity, false, hostName, null, null);
+    }
+    
+    private static Issued chained(Issued issuer, KeyPair keyPair, X509Certificate certificate) {
+        X509Certificate[] chain = new X509Certificate[issuer.chain().length + 1];
+        chain[0] = certificate;
+        System.arraycopy(issuer.chain(), 0, chain, 1, issuer.chain().length);
+        return new Issued(keyPair, certificate, chain);
+    }
+    
+    public static SSLContext trusting(X509Certificate... anchors) throws Exception {
+        KeyStore trustStore = KeyStore.getInstance("PKCS12");
+        trustStore.load(null, null);
+        for (int i = 0; i < anchors.length; i++) {
+            trustStore.setCertificateEntry("anchor-" + i, anchors[i]);
+        }
+        
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(trustStore);
+        
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, tmf.getTrustManagers(), new SecureRandom());
+        return sslContext;
+    }
+    
+    private static X509Certificate sign(X500Name subject, KeyPair subjectKeys, X500Name issuer, KeyPair issuerKeys,
+                                        Duration validity, boolean ca, String dnsName, String ocspUrl,
+                                        String crlUrl) throws Exception {
+        Instant now = Instant.now();
+        Instant notBefore = validity.isNegative() ? now.plus(validity).minus(Duration.ofDays(1)) : now.minus(Duration.ofHours(1));
+        Instant notAfter = now.plus(validity);
+        
+        X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(
+                issuer,
+                BigInteger.valueOf(SERIALS.incrementAndGet()),
+                Date.from(notBefore),
+                Date.from(notAfter),
+                subject,
+                subjectKeys.getPublic());
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(ca));
+        if (dnsName != null) {
+            builder.addExtension(Extension.subjectAlternativeName, false,
+                    new GeneralNames(new GeneralName(GeneralName.dNSName, dnsName)));
+        }
+        if (ocspUrl != null) {
+            builder.addExtension(Extension.authorityInfoAccess, false, new AuthorityInformationAccess(
+                    AccessDescription.id_ad_ocsp, new GeneralName(GeneralName.uniformResourceIdentifier, ocspUrl)));
+        }
+        if (crlUrl != null) {
+            GeneralNames location = new GeneralNames(new GeneralName(GeneralName.uniformResourceIdentifier, crlUrl));
+            builder.addExtension(Extension.cRLDistributionPoints, false, new CRLDistPoint(new DistributionPoint[]{
+                    new DistributionPoint(new DistributionPointName(location), null, null)}));
+        }
+        
+        ContentSigner signer = new JcaContentSignerBuilder("SHA256withECDSA").build(issuerKeys.getPrivate());
+        return new JcaX509CertificateConverter().getCertificate(builder.build(signer));
+    }
+}